@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Loading the same random network with insertVertex/insertEdge calls and with a GraphBuilder, then timing a full traversal
+ * of each since the builder also changes where the Lines end up in memory. The collector time of each load is shown next to it,
+ * the first rounds also pay for the heap growing.
+ * Names and end points are generated up front so that only the loading itself is timed.
+ * Usage: BulkLoadBenchmark [vertices] [edges] (10M edges needs -Dbench.jvmargs="-Xmx4g")
+ * @author Edoardo Sanguineti
+ */
+public class BulkLoadBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        Random rnd = new Random(1);
+        String[] stations = new String[n];
+        for(int i = 0; i < n; i++)
+            stations[i] = "Station " + i;
+        String[] lines = new String[m];
+        int[] from = new int[m], to = new int[m];
+        for(int i = 0; i < m; i++) {
+            from[i] = rnd.nextInt(n);
+            to[i] = rnd.nextInt(n);
+            lines[i] = "Line " + i / 1000;
+        }
+
+        for(int round = 0; round < 5; round++) {
+            long gc = gcMillis();
+            long start = System.nanoTime();
+            Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+            for(int i = 0; i < n; i++)
+                g.insertVertex(stations[i]);
+            ArrayList<Vertex> vertices = g.vertices();
+            for(int i = 0; i < m; i++)
+                g.insertEdge(vertices.get(from[i]), vertices.get(to[i]), lines[i]);
+            double incremental = (System.nanoTime() - start) / 1e6;
+            long incrementalGc = gcMillis() - gc;
+            double incrementalBfs = traverse(g);
+            g = null;
+            System.gc();
+
+            gc = gcMillis();
+            start = System.nanoTime();
+            GraphBuilder b = new GraphBuilder(n, m);
+            b.addVertices(stations);
+            b.addEdges(from, to, lines, null);
+            g = b.build();
+            double bulk = (System.nanoTime() - start) / 1e6;
+            long bulkGc = gcMillis() - gc;
+            double bulkBfs = traverse(g);
+            b = null;
+            g = null;
+            System.gc();
+
+            System.out.printf("round %d: %d Lines, insertEdge %.0f ms (GC %d), GraphBuilder %.0f ms (GC %d), %.1fx, full BFS %.0f ms vs %.0f ms%n",
+                    round, m, incremental, incrementalGc, bulk, bulkGc, incremental / bulk, incrementalBfs, bulkBfs);
+        }
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    private static double traverse(Graph g) {
+        long start = System.nanoTime();
+        g.bfTraverse();
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Insert/remove mix over a pre-filled Graph, used to compare the cost of structural updates.
+ * Usage: ChurnBenchmark [operations] [initial vertices] [initial edges]
+ * @author Edoardo Sanguineti
+ */
+public class ChurnBenchmark {
+
+    public static void main(String[] args) {
+        int ops = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int initialVertices = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int initialEdges = args.length > 2 ? Integer.parseInt(args[2]) : 40_000;
+
+        for (int round = 0; round < 3; round++) { //The first rounds are just warm up for the JIT
+            long time = run(ops, initialVertices, initialEdges, 42 + round);
+            System.out.printf("round %d: %d ops in %.1f ms (%.0f ns/op)%n",
+                    round, ops, time / 1e6, (double) time / ops);
+        }
+    }
+
+    private static long run(int ops, int initialVertices, int initialEdges, long seed) {
+        Random rnd = new Random(seed);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+
+        for (int i = 0; i < initialVertices; i++)
+            g.insertVertex("Station " + i);
+        for (int i = 0; i < initialEdges; i++)
+            g.insertEdge(randomVertex(g, rnd), randomVertex(g, rnd), "Line " + i);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            switch (rnd.nextInt(4)) {
+                case 0:
+                    g.insertVertex("Station " + i);
+                    break;
+                case 1:
+                    if (g.numVertices() > 2)
+                        g.removeVertex(randomVertex(g, rnd));
+                    break;
+                case 2:
+                    g.insertEdge(randomVertex(g, rnd), randomVertex(g, rnd), "Line " + i);
+                    break;
+                default:
+                    if (g.numEdges() > 0)
+                        g.removeEdge(g.edges().get(rnd.nextInt(g.numEdges())));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static Vertex randomVertex(Graph g, Random rnd) {
+        return g.vertices().get(rnd.nextInt(g.numVertices()));
+    }
+}
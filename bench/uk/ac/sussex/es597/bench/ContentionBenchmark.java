@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Mixed reads (areAdjacent and incidentEdges) and writes (a Line inserted then removed again) from 1 to 64 threads,
+ * on a ConcurrentGraph and on a Graph behind one global lock, for a few read/write ratios.
+ * Usage: ContentionBenchmark [vertices] [milliseconds per run]
+ * @author Edoardo Sanguineti
+ */
+public class ContentionBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int[] READ_PERCENT = {50, 90, 99};
+
+    /**
+     * The two graphs behind the same operations
+     */
+    private interface Target {
+        int read(Vertex v, Vertex w);
+        void write(Vertex v, Vertex w);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int millis = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        ConcurrentGraph concurrent = new ConcurrentGraph();
+        Graph locked = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex[] cv = new Vertex[n], lv = new Vertex[n];
+        for(int i = 0; i < n; i++) {
+            cv[i] = concurrent.insertVertex("Station " + i);
+            lv[i] = locked.insertVertex("Station " + i);
+        }
+        Random rnd = new Random(1);
+        for(int i = 0; i < n * 3 / 2; i++) {
+            int a = rnd.nextInt(n), b = rnd.nextInt(n);
+            concurrent.insertEdge(cv[a], cv[b], "Line " + i);
+            locked.insertEdge(lv[a], lv[b], "Line " + i);
+        }
+
+        Target onConcurrent = new Target() {
+            public int read(Vertex v, Vertex w) {
+                return (concurrent.areAdjacent(v, w) ? 1 : 0) + concurrent.incidentEdges(v).size();
+            }
+            public void write(Vertex v, Vertex w) {
+                concurrent.removeEdge(concurrent.insertEdge(v, w, "Temporary"));
+            }
+        };
+        Target onLocked = new Target() {
+            public int read(Vertex v, Vertex w) {
+                synchronized(locked) {
+                    return (locked.areAdjacent(v, w) ? 1 : 0) + locked.incidentEdges(v).size();
+                }
+            }
+            public void write(Vertex v, Vertex w) {
+                synchronized(locked) {
+                    locked.removeEdge(locked.insertEdge(v, w, "Temporary"));
+                }
+            }
+        };
+
+        for(int round = 0; round < 2; round++) { //The first round is warm up for the JIT
+            for(int reads : READ_PERCENT) {
+                for(int threads : THREADS) {
+                    double c = run(onConcurrent, cv, threads, reads, millis);
+                    double l = run(onLocked, lv, threads, reads, millis);
+                    System.out.printf("round %d, %d%% reads, %2d threads: concurrent %.2f Mops/s, global lock %.2f Mops/s (%.1fx)%n",
+                            round, reads, threads, c, l, c / l);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return millions of operations per second over all the threads
+     */
+    private static double run(Target target, Vertex[] stations, int threads, int readPercent, int millis) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] sink = new long[threads * 8]; //Spread out so the threads don't share cache lines
+        Thread[] workers = new Thread[threads];
+        long[] deadline = new long[1];
+
+        for(int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                long done = 0, result = 0;
+                try {
+                    start.await();
+                } catch(InterruptedException e) {
+                    return;
+                }
+                while(System.nanoTime() < deadline[0]) {
+                    for(int k = 0; k < 64; k++) { //Only look at the clock every so often
+                        Vertex v = stations[rnd.nextInt(stations.length)], w = stations[rnd.nextInt(stations.length)];
+                        if(rnd.nextInt(100) < readPercent)
+                            result += target.read(v, w);
+                        else
+                            target.write(v, w);
+                    }
+                    done += 64;
+                }
+                ops.add(done);
+                sink[id * 8] = result;
+            });
+            workers[t].start();
+        }
+
+        deadline[0] = System.nanoTime() + millis * 1_000_000L;
+        start.countDown(); //The latch also publishes the deadline
+        for(Thread t : workers)
+            t.join();
+        return ops.sum() / (millis * 1e3);
+    }
+}
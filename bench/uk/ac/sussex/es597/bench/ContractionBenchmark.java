@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.List;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Preprocessing time, size and query speed of a contraction hierarchy compared with Dijkstra, on a rail-shaped network and a smaller grid.
+ * Usage: ContractionBenchmark [vertices] [queries]
+ * @author Edoardo Sanguineti
+ */
+public class ContractionBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Random rnd = new Random(9);
+
+        Graph rail = RouteBenchmark.railGraph(n, rnd);
+        for(Edge e : rail.edges())
+            rail.setWeight(e, 1 + rnd.nextInt(3));
+        run("rail", rail, queries);
+
+        //Grids have no hierarchy at all (every separator is long), this is close to the worst case
+        Graph grid = RouteBenchmark.gridGraph((int) Math.sqrt(n / 2.5));
+        for(Edge e : grid.edges())
+            grid.setWeight(e, 1 + rnd.nextDouble());
+        run("grid", grid, queries);
+    }
+
+    private static void run(String name, Graph g, int queries) {
+        long start = System.nanoTime();
+        ContractionHierarchy ch = g.contract(true);
+        long build = System.nanoTime() - start;
+        System.out.printf("%s: %d stations, %d lines, preprocessing %.2f s, %d shortcuts (+%.0f%% arcs), %.1f MB%n",
+                name, g.numVertices(), g.numEdges(), build / 1e9, ch.numShortcuts(),
+                100.0 * ch.numShortcuts() / g.numEdges(), ch.memoryBytes() / 1e6);
+
+        Router router = g.router();
+        Random rnd = new Random(77);
+        for(int round = 0; round < 3; round++) { //The first rounds are just warm up for the JIT
+            Vertex[] from = new Vertex[queries], to = new Vertex[queries];
+            for(int i = 0; i < queries; i++) {
+                from[i] = g.vertices().get(rnd.nextInt(g.numVertices()));
+                to[i] = g.vertices().get(rnd.nextInt(g.numVertices()));
+            }
+
+            long settledDijkstra = 0, settledCh = 0;
+            double check = 0;
+            start = System.nanoTime();
+            for(int i = 0; i < queries; i++) {
+                check += weight(g, router.dijkstra(from[i], to[i]));
+                settledDijkstra += router.lastSettled();
+            }
+            long dijkstra = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < queries; i++) {
+                check -= weight(g, ch.route(from[i], to[i]));
+                settledCh += ch.lastSettled();
+            }
+            long hierarchy = System.nanoTime() - start;
+
+            System.out.printf("%s round %d: Dijkstra %.1f us/query (%d settled), hierarchy %.1f us/query (%d settled), %.0fx%s%n",
+                    name, round, dijkstra / 1e3 / queries, settledDijkstra / queries, hierarchy / 1e3 / queries, settledCh / queries,
+                    (double) dijkstra / hierarchy, Math.abs(check) < 1e-6 ? "" : " WEIGHTS DIFFER");
+        }
+    }
+
+    private static double weight(Graph g, List<Edge> route) {
+        return route == null ? 0 : g.routeWeight(route);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.io.BufferedWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Import and export speed of EdgeListFile on a generated CSV edge list, in Lines per second, with the time spent in GC while reading.
+ * Usage: EdgeListBenchmark [stations] [lines]
+ * @author Edoardo Sanguineti
+ */
+public class EdgeListBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        Path file = Files.createTempFile("edges", ".csv");
+        Path copy = Files.createTempFile("edges", ".csv");
+
+        try {
+            Random rnd = new Random(1);
+            try(BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for(int i = 0; i < m; i++) {
+                    out.write("Station " + rnd.nextInt(n) + ",Station " + rnd.nextInt(n) + ",Line " + i / 1000 + "," + rnd.nextInt(20));
+                    out.newLine();
+                }
+            }
+
+            for(int round = 0; round < 3; round++) {
+                System.gc(); //The previous round's Graph is garbage by now
+                long gc = gcMillis();
+                long start = System.nanoTime();
+                Graph g = EdgeListFile.read(file, ',', null);
+                double read = (System.nanoTime() - start) / 1e9;
+                gc = gcMillis() - gc;
+
+                start = System.nanoTime();
+                EdgeListFile.write(g, copy, ',');
+                double write = (System.nanoTime() - start) / 1e9;
+
+                System.out.printf("round %d: %.0f MB, %d Stations, %d Lines, read %.2f s (%.1fM Lines/s, GC %d ms), write %.2f s (%.1fM Lines/s)%n",
+                        round, Files.size(file) / 1e6, g.numVertices(), g.numEdges(), read, m / read / 1e6, gc, write, m / write / 1e6);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+}
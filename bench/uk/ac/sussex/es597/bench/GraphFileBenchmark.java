@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Time to get a usable network after a restart: rebuilding the Graph object by object, reading a GraphFile back into a Graph,
+ * or just mapping the file and traversing it in place.
+ * Usage: GraphFileBenchmark [vertices]
+ * @author Edoardo Sanguineti
+ */
+public class GraphFileBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Path file = Files.createTempFile("graph", ".bin");
+
+        try {
+            for(int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                Graph g = RouteBenchmark.railGraph(n, new Random(1));
+                double build = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                GraphFile.write(g, file);
+                double write = (System.nanoTime() - start) / 1e6;
+                g = null; //Let the collector have it before the next part
+
+                start = System.nanoTime();
+                MappedGraph mapped = GraphFile.open(file);
+                double open = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                int reached = mapped.countReachable(0);
+                double traverse = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                Graph back = mapped.toGraph();
+                double load = (System.nanoTime() - start) / 1e6;
+
+                System.out.printf("round %d: %.0f MB, build %.0f ms, write %.0f ms, open %.2f ms, BFS off the mapping %.0f ms (%d Stations), toGraph %.0f ms (%d Lines)%n",
+                        round, Files.size(file) / 1e6, build, write, open, traverse, reached, load, back.numEdges());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Quick version of the JMH InstrumentationBenchmark: areAdjacent on the bare Graph and through an InstrumentedGraph switched off,
+ * switched on, and switched on timing 1 call in 64, then two hop breadthFirst traversals with Graph.setMetrics off and on.
+ * Usage: InstrumentationOverheadBenchmark [vertices]
+ * @author Edoardo Sanguineti
+ */
+public class InstrumentationOverheadBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Graph g = RouteBenchmark.railGraph(n, new Random(1));
+        GraphMetrics metrics = new GraphMetrics(g);
+        GraphMetrics sampled = new GraphMetrics(g);
+        sampled.setSampling(64);
+        GraphADT[] modes = {g, new InstrumentedGraph(g, null), new InstrumentedGraph(g, metrics), new InstrumentedGraph(g, sampled)};
+        String[] names = {"plain", "off", "on", "1/64"};
+
+        int queries = 1 << 16;
+        Vertex[] a = new Vertex[queries], b = new Vertex[queries];
+        Random rnd = new Random(2);
+        for(int i = 0; i < queries; i++) {
+            Edge e = g.edgeAt(rnd.nextInt(g.numEdges()));
+            a[i] = e.getEndPointA();
+            b[i] = e.getEndPointB();
+        }
+        long sink = 0;
+
+        for(int round = 0; round < 5; round++) {
+            StringBuilder line = new StringBuilder("round " + round + ":");
+            for(int m = 0; m < modes.length; m++) {
+                GraphADT adt = modes[m];
+                long start = System.nanoTime();
+                for(int r = 0; r < 100; r++) {
+                    for(int i = 0; i < queries; i++)
+                        sink += adt.areAdjacent(a[i], b[i]) ? 1 : 0;
+                }
+                line.append(String.format(" areAdjacent %s %.1f ns", names[m], (System.nanoTime() - start) / (100.0 * queries)));
+            }
+            for(int m = 0; m < 2; m++) {
+                g.setMetrics(m == 0 ? null : metrics);
+                long start = System.nanoTime();
+                for(int i = 0; i < queries; i++)
+                    sink += g.breadthFirst(a[i], 2, null).size();
+                line.append(String.format(", breadthFirst %s %.2f us", m == 0 ? "off" : "on", (System.nanoTime() - start) / 1e3 / queries));
+            }
+            g.setMetrics(null);
+            System.out.println(line);
+        }
+        System.out.println(metrics.latency(GraphMetrics.Operation.ARE_ADJACENT).summary());
+        System.out.println(metrics.getTraversalEdges());
+        System.out.println("checksum " + sink);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Whole-graph neighbour scans and adjacency checks through Vertex and Edge objects, through the int methods of Graph
+ * (degree/neighbour/adjacent) and through a frozen CsrGraph, plus what the int arrays cost to build and keep.
+ * Usage: IntApiBenchmark [vertices]
+ * @author Edoardo Sanguineti
+ */
+public class IntApiBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Graph g = RouteBenchmark.railGraph(n, new Random(1));
+        System.out.printf("%d Stations, %d Lines%n", g.numVertices(), g.numEdges());
+
+        long before = usedHeap();
+        long start = System.nanoTime();
+        g.degree(0); //Builds the int arrays
+        double build = (System.nanoTime() - start) / 1e6;
+        long footprint = usedHeap() - before;
+        CsrGraph csr = g.freeze();
+        System.out.printf("int arrays built in %.0f ms, %.1f MB%n", build, footprint / 1e6);
+
+        int queries = 1 << 20;
+        int[] a = new int[queries], b = new int[queries];
+        Random rnd = new Random(2);
+        for(int i = 0; i < queries; i++) {
+            Edge e = g.edgeAt(rnd.nextInt(g.numEdges()));
+            a[i] = g.vertexId(e.getEndPointA());
+            b[i] = rnd.nextBoolean() ? g.vertexId(e.getEndPointB()) : rnd.nextInt(n);
+        }
+        long sink = 0;
+
+        for(int round = 0; round < 5; round++) {
+            start = System.nanoTime();
+            for(Vertex v : g.vertices()) {
+                ArrayList<Edge> incidence = g.incidentEdges(v);
+                for(int i = 0; i < incidence.size(); i++)
+                    sink += g.vertexId(g.opposite(incidence.get(i), v));
+            }
+            double objects = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for(int v = 0; v < n; v++) {
+                int d = g.degree(v);
+                for(int i = 0; i < d; i++)
+                    sink += g.neighbour(v, i);
+            }
+            double ints = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for(int v = 0; v < n; v++) {
+                int d = csr.degree(v);
+                for(int i = 0; i < d; i++)
+                    sink += csr.neighbour(v, i);
+            }
+            double frozen = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for(int i = 0; i < queries; i++)
+                sink += g.areAdjacent(g.vertexAt(a[i]), g.vertexAt(b[i])) ? 1 : 0;
+            double pairObjects = (double) (System.nanoTime() - start) / queries;
+
+            start = System.nanoTime();
+            for(int i = 0; i < queries; i++)
+                sink += g.adjacent(a[i], b[i]) ? 1 : 0;
+            double pairInts = (double) (System.nanoTime() - start) / queries;
+
+            System.out.printf("round %d: scan objects %.0f ms, ints %.0f ms, CsrGraph %.0f ms; areAdjacent %.0f ns, adjacent %.0f ns%n",
+                    round, objects, ints, frozen, pairObjects, pairInts);
+        }
+        System.out.println("checksum " + sink);
+    }
+
+    private static long usedHeap() {
+        for(int i = 0; i < 3; i++)
+            System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
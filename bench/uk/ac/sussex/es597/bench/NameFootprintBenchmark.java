@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Heap taken by the names of a graph with a million Lines, where every Line name is built separately (as a loader would)
+ * but only a few thousand of them are different. Prints the live heap and the String and byte[] rows of a heap histogram
+ * taken with jcmd, which has to be on the path.
+ * Usage: NameFootprintBenchmark [stations] [lines] [lines per name]
+ * @author Edoardo Sanguineti
+ */
+public class NameFootprintBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int perName = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        long before = liveHeap();
+
+        long start = System.nanoTime();
+        Random rnd = new Random(1);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < n; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < m; i++)
+            g.insertEdge(g.vertices().get(rnd.nextInt(n)), g.vertices().get(rnd.nextInt(n)), "Jubilee Line " + i / perName);
+        double build = (System.nanoTime() - start) / 1e6;
+
+        long after = liveHeap();
+        System.out.printf("%d Stations, %d Lines, %d Line names: built in %.0f ms, graph takes %.1f MB of heap%n",
+                g.numVertices(), g.numEdges(), (m + perName - 1) / perName, build, (after - before) / 1e6);
+        histogram();
+        System.out.println(g.numEdges()); //Keeps the graph alive until after the histogram
+    }
+
+    private static long liveHeap() throws InterruptedException {
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void histogram() throws Exception {
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        Process p = new ProcessBuilder("jcmd", pid, "GC.class_histogram").redirectErrorStream(true).start();
+        try(BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            for(String line; (line = in.readLine()) != null; ) {
+                String[] cols = line.trim().split("\\s+");
+                String type = cols.length > 3 ? cols[3] : "";
+                if(type.equals("java.lang.String") || type.equals("[B") || type.equals("[C") || type.startsWith("uk.ac.sussex.es597.")
+                        || line.contains("num ") || line.startsWith("Total"))
+                    System.out.println(line);
+            }
+        }
+        p.waitFor();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Finding Stations by name: scanning vertices() as callers used to, the name index of Graph, and prefix searches for autocomplete.
+ * Usage: NameLookupBenchmark [vertices]
+ * @author Edoardo Sanguineti
+ */
+public class NameLookupBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = 200_000;
+        long sink = 0;
+
+        for(int round = 0; round < 3; round++) {
+            Graph g = RouteBenchmark.railGraph(n, new Random(1));
+            Random rnd = new Random(2);
+
+            long start = System.nanoTime();
+            for(int q = 0; q < 20; q++) {
+                String name = "Station " + rnd.nextInt(n);
+                for(Vertex v : g.vertices()) {
+                    if(v.getElement().equals(name)) {
+                        sink += v.hashCode();
+                        break;
+                    }
+                }
+            }
+            double scan = (System.nanoTime() - start) / 1e3 / 20;
+
+            start = System.nanoTime();
+            g.findVertex("Station 0");
+            double build = (System.nanoTime() - start) / 1e6;
+
+            String[] names = new String[queries];
+            for(int q = 0; q < queries; q++)
+                names[q] = "Station " + rnd.nextInt(n);
+            start = System.nanoTime();
+            for(int q = 0; q < queries; q++)
+                sink += g.findVertex(names[q]).hashCode();
+            double exact = (double) (System.nanoTime() - start) / queries;
+
+            start = System.nanoTime();
+            g.vertexNamesStartingWith("Station", 1);
+            double sort = (System.nanoTime() - start) / 1e6;
+
+            for(int q = 0; q < queries; q++)
+                names[q] = "Station " + rnd.nextInt(n / 10);
+            start = System.nanoTime();
+            for(int q = 0; q < queries; q++)
+                sink += g.vertexNamesStartingWith(names[q], 10).size();
+            double prefix = (System.nanoTime() - start) / 1e3 / queries;
+
+            start = System.nanoTime();
+            for(int i = 0; i < queries; i++)
+                g.insertVertex("New " + i);
+            double insert = (double) (System.nanoTime() - start) / queries;
+
+            System.out.printf("round %d: scan %.0f us, index built in %.0f ms then %.0f ns/lookup, sorted in %.0f ms then top-10 prefix %.2f us, insertVertex with both indexes %.0f ns%n",
+                    round, scan, build, exact, sort, prefix, insert);
+        }
+        System.out.println("checksum " + sink); //Keeps the lookups from being optimised away
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * "Which Stations are within 2 or 3 Lines of X": a full allReachable followed by a filter on hops, as application code did it,
+ * against breadthFirst with a depth limit, which stops expanding at the last level, and against Graph.neighbourhood on a hot set
+ * of 10,000 Stations with a Line added every 100 queries, which goes through the cache.
+ * Usage: NeighbourhoodQueryBenchmark [vertices]
+ * @author Edoardo Sanguineti
+ */
+public class NeighbourhoodQueryBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Graph g = RouteBenchmark.railGraph(n, new Random(1));
+        CsrGraph csr = g.freeze();
+        long sink = 0;
+
+        for(int round = 0; round < 3; round++) {
+            Random rnd = new Random(2);
+            int full = 10;
+            long start = System.nanoTime();
+            for(int q = 0; q < full; q++) {
+                int source = rnd.nextInt(n);
+                int[] dist = csr.distances(source); //Cheapest way to get hops out of the old API
+                for(int d : dist) {
+                    if(d >= 0 && d <= 3)
+                        sink++;
+                }
+            }
+            double scan = (System.nanoTime() - start) / 1e6 / full;
+
+            int queries = 200_000;
+            for(int depth = 2; depth <= 3; depth++) {
+                start = System.nanoTime();
+                for(int q = 0; q < queries; q++)
+                    sink += g.breadthFirst(g.vertexAt(rnd.nextInt(n)), depth, null).size();
+                double bounded = (System.nanoTime() - start) / 1e3 / queries;
+                System.out.printf("round %d: full traversal and filter %.1f ms, breadthFirst to depth %d %.2f us%n", round, scan, depth, bounded);
+            }
+
+            NeighbourhoodCache cache = g.neighbourhoodCache();
+            cache.resetCounters();
+            start = System.nanoTime();
+            for(int q = 0; q < queries; q++) {
+                if(q % 100 == 99)
+                    g.insertEdge(g.vertexAt(rnd.nextInt(n)), g.vertexAt(rnd.nextInt(n)), "Extra");
+                sink += g.neighbourhood(g.vertexAt(rnd.nextInt(10_000)), 3).size();
+            }
+            double cached = (System.nanoTime() - start) / 1e3 / queries;
+            System.out.printf("round %d: neighbourhood(v, 3) %.2f us, hit rate %.3f, %d invalidations, %d evictions, %d Stations held%n",
+                    round, cached, cache.hitRate(), cache.invalidations(), cache.evictions(), cache.heldStations());
+        }
+        System.out.println("checksum " + sink);
+    }
+}
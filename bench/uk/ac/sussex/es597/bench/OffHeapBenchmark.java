@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * The same rail network held by Graph and by OffHeapGraph: heap and direct memory taken, how long a full collection
+ * takes with the network live, and the collector time and latency of a workload of Line changes and routes.
+ * Usage: OffHeapBenchmark [vertices] (large sizes need -XX:MaxDirectMemorySize)
+ * @author Edoardo Sanguineti
+ */
+public class OffHeapBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long empty = usedHeap();
+
+        Graph heap = RouteBenchmark.railGraph(n, new Random(1));
+        System.out.printf("%d Stations, %d Lines%n", heap.numVertices(), heap.numEdges());
+        System.out.printf("Graph: heap %.1f MB, full GC %.0f ms%n", (usedHeap() - empty) / 1e6, fullGc());
+        run("Graph", heap, heap.vertices());
+
+        OffHeapGraph off = OffHeapGraph.copyOf(heap);
+        heap = null;
+        ArrayList<Vertex> stations = off.vertices();
+        long handles = usedHeap();
+        stations = null;
+        long offHeap = usedHeap() - empty;
+        System.out.printf("OffHeapGraph: heap %.1f MB (plus %.1f MB for a list of all the Station handles), direct %.1f MB, full GC %.0f ms%n",
+                offHeap / 1e6, (handles - empty - offHeap) / 1e6, off.offHeapBytes() / 1e6, fullGc());
+        run("OffHeapGraph", off, off.vertices());
+    }
+
+    /**
+     * Removes and inserts random Lines, with a fewest-Lines route between two random Stations every 2000 changes
+     */
+    private static void run(String name, GraphADT g, ArrayList<Vertex> stations) {
+        Random rnd = new Random(3);
+        ArrayList<Edge> lines = new ArrayList<>(g.edges()); //Graph hands out its own list
+        long sink = 0;
+        for(int round = 0; round < 3; round++) {
+            long gc = gcMillis();
+            long start = System.nanoTime();
+            long routeNanos = 0;
+            int changes = 200_000, routes = 0;
+            for(int i = 0; i < changes; i++) {
+                int k = rnd.nextInt(lines.size());
+                Edge e = lines.get(k);
+                Vertex a = e.getEndPointA(), b = e.getEndPointB();
+                g.removeEdge(e);
+                lines.set(k, g.insertEdge(a, b, "Line " + i));
+                if(i % 2000 == 0) {
+                    Vertex u = stations.get(rnd.nextInt(stations.size())), v = stations.get(rnd.nextInt(stations.size()));
+                    long t = System.nanoTime();
+                    ArrayList<Edge> route = g instanceof Graph ? ((Graph) g).mostDirectRoute(u, v) : ((OffHeapGraph) g).mostDirectRoute(u, v);
+                    routeNanos += System.nanoTime() - t;
+                    routes++;
+                    sink += route == null ? 0 : route.size();
+                }
+            }
+            double total = (System.nanoTime() - start) / 1e6;
+            System.out.printf("  %s round %d: %.0f ms, %.2f ms per route, GC %d ms%n",
+                    name, round, total, routeNanos / 1e6 / routes, gcMillis() - gc);
+        }
+        System.out.println("  checksum " + sink);
+    }
+
+    private static double fullGc() {
+        System.gc();
+        long start = System.nanoTime();
+        System.gc();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    private static long usedHeap() {
+        for(int i = 0; i < 3; i++)
+            System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
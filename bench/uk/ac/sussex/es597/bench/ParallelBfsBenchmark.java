@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Sequential CsrGraph BFS against ParallelBfs on pools of 1, 2, 4... threads up to the number of cores.
+ * Usage: ParallelBfsBenchmark [vertices] [edges]
+ * @author Edoardo Sanguineti
+ */
+public class ParallelBfsBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        CsrGraph g = RouteBenchmark.randomGraph(n, m, new Random(1)).freeze();
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d Stations, %d Lines, %d cores%n", g.numVertices(), g.numEdges(), cores);
+
+        for(int round = 0; round < 3; round++) { //The first rounds are just warm up for the JIT
+            long start = System.nanoTime();
+            int expected = g.countReachable(0);
+            double sequential = (System.nanoTime() - start) / 1e6;
+            System.out.printf("round %d: sequential %.1f ms%n", round, sequential);
+
+            for(int threads = 1; threads <= cores; threads *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    ParallelBfs bfs = new ParallelBfs(g, pool);
+                    start = System.nanoTime();
+                    int count = bfs.countReachable(0);
+                    double parallel = (System.nanoTime() - start) / 1e6;
+                    System.out.printf("round %d: %2d threads %.1f ms (%.1fx)%s%n", round, threads, parallel, sequential / parallel,
+                            count == expected ? "" : " REACHABILITY DIFFERS");
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Compares the bidirectional search behind mostDirectRoute with a one-sided BFS on a random graph and on a grid.
+ * Usage: RouteBenchmark [vertices] [queries]
+ * @author Edoardo Sanguineti
+ */
+public class RouteBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        run("random", randomGraph(n, n * 3 / 2, new Random(1)), queries);
+        run("grid", gridGraph((int) Math.sqrt(n)), queries);
+    }
+
+    private static void run(String name, Graph g, int queries) {
+        BfsEngine bfs = g.bfsEngine();
+
+        for(int round = 0; round < 3; round++) { //The first rounds are just warm up for the JIT
+            Random rnd = new Random(1000 + round); //Not the seed the random graph was built with
+            Vertex[] from = new Vertex[queries], to = new Vertex[queries];
+            for(int i = 0; i < queries; i++) {
+                from[i] = g.vertices().get(rnd.nextInt(g.numVertices()));
+                to[i] = g.vertices().get(rnd.nextInt(g.numVertices()));
+            }
+
+            long hops = 0;
+            long start = System.nanoTime();
+            for(int i = 0; i < queries; i++)
+                hops += length(bfs.route(from[i], to[i], false));
+            long oneSided = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < queries; i++)
+                hops -= length(bfs.route(from[i], to[i], true));
+            long bidirectional = System.nanoTime() - start;
+
+            System.out.printf("%s round %d: one-sided %.1f us/query, bidirectional %.1f us/query (%.1fx)%s%n",
+                    name, round, oneSided / 1e3 / queries, bidirectional / 1e3 / queries,
+                    (double) oneSided / bidirectional, hops == 0 ? "" : " ROUTE LENGTHS DIFFER");
+        }
+    }
+
+    private static int length(ArrayList<Edge> route) {
+        return route == null ? -1 : route.size();
+    }
+
+    static Graph randomGraph(int n, int m, Random rnd) {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < n; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < m; i++)
+            g.insertEdge(g.vertices().get(rnd.nextInt(n)), g.vertices().get(rnd.nextInt(n)), "Line " + i);
+        return g;
+    }
+
+    static Graph gridGraph(int side) {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < side * side; i++)
+            g.insertVertex("Station " + i);
+        for(int r = 0; r < side; r++) {
+            for(int c = 0; c < side; c++) {
+                Vertex v = g.vertices().get(r * side + c);
+                if(c + 1 < side)
+                    g.insertEdge(v, g.vertices().get(r * side + c + 1), "Row " + r);
+                if(r + 1 < side)
+                    g.insertEdge(v, g.vertices().get((r + 1) * side + c), "Column " + c);
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Rail-shaped network: mostly long lines, each new Station continuing the current line or branching off a recent Station,
+     * plus one loop closing back to a nearby Station every twenty Stations
+     */
+    static Graph railGraph(int n, Random rnd) {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        g.insertVertex("Station 0");
+        for(int i = 1; i < n; i++) {
+            Vertex v = g.insertVertex("Station " + i);
+            int previous = rnd.nextInt(10) < 9 ? i - 1 : Math.max(0, i - 1 - rnd.nextInt(200));
+            g.insertEdge(g.vertices().get(previous), v, "Line " + i / 50);
+        }
+        for(int i = 0; i < n / 20; i++) {
+            int a = rnd.nextInt(n);
+            int b = Math.max(0, a - 1 - rnd.nextInt(500));
+            g.insertEdge(g.vertices().get(a), g.vertices().get(b), "Loop " + i);
+        }
+        return g;
+    }
+}
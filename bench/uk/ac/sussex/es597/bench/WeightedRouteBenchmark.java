@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.bench;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Point-to-point Dijkstra and A* queries on a weighted grid, where each Line costs between 1 and 2 times its length.
+ * Usage: WeightedRouteBenchmark [vertices] [queries] [max distance between the two ends, in grid steps]
+ * @author Edoardo Sanguineti
+ */
+public class WeightedRouteBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int radius = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        int side = (int) Math.sqrt(n);
+        Graph g = RouteBenchmark.gridGraph(side);
+        Random rnd = new Random(5);
+        for(Edge e : g.edges())
+            g.setWeight(e, 1 + rnd.nextDouble());
+
+        IdentityHashMap<Vertex, Integer> slot = new IdentityHashMap<>();
+        for(int i = 0; i < g.numVertices(); i++)
+            slot.put(g.vertices().get(i), i);
+        RouteHeuristic h = RouteHeuristic.straightLine((v) -> slot.get(v) % side, (v) -> slot.get(v) / side, 1);
+        Router router = g.router();
+
+        for(int round = 0; round < 3; round++) { //The first rounds are just warm up for the JIT
+            Vertex[] from = new Vertex[queries], to = new Vertex[queries];
+            for(int i = 0; i < queries; i++) { //Local trips, like most journeys on a rail network
+                int r = rnd.nextInt(side), c = rnd.nextInt(side);
+                int r2 = Math.min(side - 1, Math.max(0, r + rnd.nextInt(2 * radius + 1) - radius));
+                int c2 = Math.min(side - 1, Math.max(0, c + rnd.nextInt(2 * radius + 1) - radius));
+                from[i] = g.vertices().get(r * side + c);
+                to[i] = g.vertices().get(r2 * side + c2);
+            }
+
+            long settledDijkstra = 0, settledAStar = 0;
+            double check = 0;
+            long start = System.nanoTime();
+            for(int i = 0; i < queries; i++) {
+                check += g.routeWeight(router.dijkstra(from[i], to[i]));
+                settledDijkstra += router.lastSettled();
+            }
+            long dijkstra = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < queries; i++) {
+                check -= g.routeWeight(router.aStar(from[i], to[i], h));
+                settledAStar += router.lastSettled();
+            }
+            long aStar = System.nanoTime() - start;
+
+            System.out.printf("round %d: Dijkstra %.1f us/query (%d settled), A* %.1f us/query (%d settled)%s%n",
+                    round, dijkstra / 1e3 / queries, settledDijkstra / queries, aStar / 1e3 / queries, settledAStar / queries,
+                    Math.abs(check) < 1e-6 ? "" : " WEIGHTS DIFFER");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.jmh;
+
+import java.util.ArrayList;
+import java.util.Random;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Synthetic rail networks for the JMH suite. Every generator aims for roughly the requested number of Lines
+ * and only uses a handful of distinct names, so that the biggest graphs are mostly Stations and Lines rather than Strings.
+ * @author Edoardo Sanguineti
+ */
+final class GraphShapes {
+    private static final String[] NAMES = new String[64];
+
+    static {
+        for(int i = 0; i < NAMES.length; i++)
+            NAMES[i] = "Line " + i;
+    }
+
+    private GraphShapes() {
+    }
+
+    /**
+     * Builds a graph of the given shape
+     * @param shape one of erdos-renyi, scale-free, grid, rail
+     * @param edges roughly how many Lines the graph should have
+     * @param seed for the random shapes
+     * @return Graph
+     */
+    static Graph build(String shape, int edges, long seed) {
+        Random rnd = new Random(seed);
+        switch(shape) {
+            case "erdos-renyi":
+                return erdosRenyi(Math.max(2, edges * 2 / 3), edges, rnd);
+            case "scale-free":
+                return scaleFree(Math.max(3, edges / 2), rnd);
+            case "grid":
+                return grid(Math.max(2, (int) Math.sqrt(edges / 2.0)));
+            case "rail":
+                return rail(Math.max(2, (int) (edges / 1.05)), rnd);
+            default:
+                throw new IllegalArgumentException("Unknown graph shape: " + shape);
+        }
+    }
+
+    /**
+     * m Lines between Stations picked uniformly at random, average degree 3 with the default sizing
+     */
+    static Graph erdosRenyi(int n, int m, Random rnd) {
+        Graph g = stations(n);
+        ArrayList<Vertex> vertices = g.vertices();
+        for(int i = 0; i < m; i++)
+            g.insertEdge(vertices.get(rnd.nextInt(n)), vertices.get(rnd.nextInt(n)), NAMES[i & 63]);
+        return g;
+    }
+
+    /**
+     * Barabási–Albert preferential attachment: each new Station opens two Lines to Stations picked in proportion to their degree,
+     * so a few hubs end up with very long incidence lists
+     */
+    static Graph scaleFree(int n, Random rnd) {
+        Graph g = stations(n);
+        ArrayList<Vertex> vertices = g.vertices();
+        int[] ends = new int[4 * n]; //Both end points of every Line so far, picking from it is picking by degree
+        int count = 0;
+
+        g.insertEdge(vertices.get(0), vertices.get(1), NAMES[0]);
+        g.insertEdge(vertices.get(1), vertices.get(2), NAMES[0]);
+        ends[count++] = 0; ends[count++] = 1;
+        ends[count++] = 1; ends[count++] = 2;
+
+        for(int i = 3; i < n; i++) {
+            for(int k = 0; k < 2; k++) {
+                int target = ends[rnd.nextInt(count)];
+                g.insertEdge(vertices.get(i), vertices.get(target), NAMES[i & 63]);
+                ends[count++] = i;
+                ends[count++] = target;
+            }
+        }
+        return g;
+    }
+
+    /**
+     * side x side Stations, each joined to its right and lower neighbour
+     */
+    static Graph grid(int side) {
+        Graph g = stations(side * side);
+        ArrayList<Vertex> vertices = g.vertices();
+        for(int r = 0; r < side; r++) {
+            for(int c = 0; c < side; c++) {
+                Vertex v = vertices.get(r * side + c);
+                if(c + 1 < side)
+                    g.insertEdge(v, vertices.get(r * side + c + 1), NAMES[r & 63]);
+                if(r + 1 < side)
+                    g.insertEdge(v, vertices.get((r + 1) * side + c), NAMES[c & 63]);
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Same shape as RouteBenchmark.railGraph: long lines with the odd branch, plus a loop back to a nearby Station every twenty Stations
+     */
+    static Graph rail(int n, Random rnd) {
+        Graph g = stations(n);
+        ArrayList<Vertex> vertices = g.vertices();
+        for(int i = 1; i < n; i++) {
+            int previous = rnd.nextInt(10) < 9 ? i - 1 : Math.max(0, i - 1 - rnd.nextInt(200));
+            g.insertEdge(vertices.get(previous), vertices.get(i), NAMES[(i / 50) & 63]);
+        }
+        for(int i = 0; i < n / 20; i++) {
+            int a = rnd.nextInt(n);
+            int b = Math.max(0, a - 1 - rnd.nextInt(500));
+            g.insertEdge(vertices.get(a), vertices.get(b), NAMES[i & 63]);
+        }
+        return g;
+    }
+
+    private static Graph stations(int n) {
+        Graph g = new Graph(new ArrayList<>(n), new ArrayList<>());
+        for(int i = 0; i < n; i++)
+            g.insertVertex("Station " + i);
+        return g;
+    }
+}
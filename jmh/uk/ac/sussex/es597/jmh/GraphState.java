@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.jmh;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.ac.sussex.es597.*;
+
+/**
+ * One synthetic graph per shape and size, shared by all the threads of a read-only benchmark.
+ * Stations and Lines to query are drawn up front so that picking them is not part of what gets measured
+ * @author Edoardo Sanguineti
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+    static final int QUERIES = 1 << 10; //Power of two, next() wraps with a mask
+
+    @Param({"erdos-renyi", "scale-free", "grid", "rail"})
+    public String shape;
+
+    @Param({"1000", "100000", "10000000"})
+    public int edges;
+
+    public Graph graph;
+    Vertex[] from, to;
+    Edge[] lines;
+    Vertex[] onLine; //An end point of the Line in the same position of lines
+    Vertex[] otherEnd; //And the Station at its other end
+
+    @Setup(Level.Trial)
+    public void build() {
+        graph = GraphShapes.build(shape, edges, 42);
+        Random rnd = new Random(7);
+        int n = graph.numVertices();
+
+        from = new Vertex[QUERIES];
+        to = new Vertex[QUERIES];
+        lines = new Edge[QUERIES];
+        onLine = new Vertex[QUERIES];
+        otherEnd = new Vertex[QUERIES];
+        for(int i = 0; i < QUERIES; i++) {
+            from[i] = graph.vertices().get(rnd.nextInt(n));
+            to[i] = graph.vertices().get(rnd.nextInt(n));
+            lines[i] = graph.edges().get(rnd.nextInt(graph.numEdges()));
+            onLine[i] = rnd.nextBoolean() ? lines[i].getEndPointA() : lines[i].getEndPointB();
+            otherEnd[i] = onLine[i] == lines[i].getEndPointA() ? lines[i].getEndPointB() : lines[i].getEndPointA();
+        }
+    }
+
+    /**
+     * Position in the query arrays, one per thread
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int i;
+
+        int next() {
+            return i = (i + 1) & (QUERIES - 1);
+        }
+    }
+}
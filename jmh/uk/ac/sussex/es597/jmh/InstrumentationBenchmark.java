@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.jmh;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Cost of GraphMetrics: the same queries on the bare Graph ("plain"), through an InstrumentedGraph and with Graph.setMetrics
+ * switched off ("off") and on ("on"). plain and off should be within noise of each other; for the traversal they run the
+ * very same code, so it only shows what switching the metrics on costs
+ * @author Edoardo Sanguineti
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class InstrumentationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Metrics {
+        @Param({"plain", "off", "on"})
+        public String mode;
+
+        GraphADT adt;
+
+        @Setup(Level.Trial)
+        public void wrap(GraphState s) {
+            GraphMetrics metrics = new GraphMetrics(s.graph);
+            switch(mode) {
+                case "plain":
+                    adt = s.graph;
+                    s.graph.setMetrics(null);
+                    break;
+                case "off":
+                    adt = new InstrumentedGraph(s.graph, null);
+                    s.graph.setMetrics(null);
+                    break;
+                default:
+                    adt = new InstrumentedGraph(s.graph, metrics);
+                    s.graph.setMetrics(metrics);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean areAdjacent(GraphState s, Metrics m, GraphState.Cursor c) {
+        int i = c.next();
+        return m.adt.areAdjacent(s.onLine[i], s.otherEnd[i]);
+    }
+
+    @Benchmark
+    public ArrayList<Edge> incidentEdges(GraphState s, Metrics m, GraphState.Cursor c) {
+        return m.adt.incidentEdges(s.from[c.next()]);
+    }
+
+    @Benchmark
+    public TraversalResult breadthFirstTwoHops(GraphState s, Metrics m, GraphState.Cursor c) {
+        return s.graph.breadthFirst(s.from[c.next()], 2, null);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.sussex.es597.*;
+
+/**
+ * The GraphADT updates. Every benchmark undoes its own change, so the graph keeps the same size for the whole run,
+ * and every thread gets its own graph because Graph is not thread-safe
+ * @author Edoardo Sanguineti
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class MutationBenchmark {
+
+    @State(Scope.Thread)
+    public static class Network {
+        @Param({"erdos-renyi", "scale-free", "grid", "rail"})
+        public String shape;
+
+        @Param({"1000", "100000", "10000000"})
+        public int edges;
+
+        Graph graph;
+        Vertex[] stations;
+        Edge[] lines;
+        private int i;
+
+        @Setup(Level.Trial)
+        public void build() {
+            graph = GraphShapes.build(shape, edges, 42);
+            stations = new Vertex[GraphState.QUERIES];
+            Random rnd = new Random(7);
+            for(int k = 0; k < stations.length; k++)
+                stations[k] = graph.vertices().get(rnd.nextInt(graph.numVertices()));
+
+            //Lines are only renamed, never removed, so they can be drawn up front as well
+            lines = new Edge[GraphState.QUERIES];
+            for(int k = 0; k < lines.length; k++)
+                lines[k] = graph.edges().get(rnd.nextInt(graph.numEdges()));
+        }
+
+        int next() {
+            return i = (i + 1) & (GraphState.QUERIES - 1);
+        }
+    }
+
+    @Benchmark
+    public String insertRemoveVertex(Network s) {
+        return s.graph.removeVertex(s.graph.insertVertex("Temporary"));
+    }
+
+    @Benchmark
+    public String insertRemoveEdge(Network s) {
+        int i = s.next();
+        return s.graph.removeEdge(s.graph.insertEdge(s.stations[i], s.stations[(i + 1) & (GraphState.QUERIES - 1)], "Temporary"));
+    }
+
+    /**
+     * A new Station with two Lines, then removed again, which also removes its Lines
+     */
+    @Benchmark
+    public String insertRemoveLinkedVertex(Network s) {
+        int i = s.next();
+        Vertex v = s.graph.insertVertex("Temporary");
+        s.graph.insertEdge(v, s.stations[i], "Temporary");
+        s.graph.insertEdge(s.stations[(i + 1) & (GraphState.QUERIES - 1)], v, "Temporary");
+        return s.graph.removeVertex(v);
+    }
+
+    @Benchmark
+    public String renameVertex(Network s) {
+        Vertex v = s.stations[s.next()];
+        return s.graph.rename(v, v.getElement());
+    }
+
+    @Benchmark
+    public String renameEdge(Network s) {
+        Edge e = s.lines[s.next()];
+        return s.graph.rename(e, e.getElement());
+    }
+}
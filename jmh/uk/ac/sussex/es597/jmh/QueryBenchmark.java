@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.jmh;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.sussex.es597.*;
+
+/**
+ * The read-only GraphADT operations plus getEdge, on a graph shared by every benchmark thread.
+ * Throughput mode gives operations per microsecond, sample mode the latency percentiles
+ * @author Edoardo Sanguineti
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g") //The 10^7 Line graphs need a few GB
+public class QueryBenchmark {
+
+    @Benchmark
+    public Vertex opposite(GraphState s, GraphState.Cursor c) {
+        int i = c.next();
+        return s.graph.opposite(s.lines[i], s.onLine[i]);
+    }
+
+    @Benchmark
+    public boolean areAdjacent(GraphState s, GraphState.Cursor c) {
+        int i = c.next();
+        return s.graph.areAdjacent(s.onLine[i], s.otherEnd[i]);
+    }
+
+    @Benchmark
+    public boolean areAdjacentRandomPair(GraphState s, GraphState.Cursor c) { //Almost always false
+        int i = c.next();
+        return s.graph.areAdjacent(s.from[i], s.to[i]);
+    }
+
+    @Benchmark
+    public Edge getEdge(GraphState s, GraphState.Cursor c) {
+        int i = c.next();
+        return s.graph.getEdge(s.otherEnd[i], s.onLine[i]);
+    }
+
+    @Benchmark
+    public ArrayList<Edge> incidentEdges(GraphState s, GraphState.Cursor c) {
+        return s.graph.incidentEdges(s.from[c.next()]);
+    }
+
+    @Benchmark
+    public ArrayList<Vertex> vertices(GraphState s) {
+        return s.graph.vertices();
+    }
+
+    @Benchmark
+    public ArrayList<Edge> edges(GraphState s) {
+        return s.graph.edges();
+    }
+}
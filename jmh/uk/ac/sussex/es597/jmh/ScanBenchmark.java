@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.jmh;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Summing the degree of every Station through the different ways of scanning a graph:
+ * a defensive copy of vertices(), the forEach callbacks, and the sequential and parallel streams
+ * @author Edoardo Sanguineti
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class ScanBenchmark {
+
+    @Benchmark
+    public long copyOfVertices(GraphState s) {
+        long sum = 0;
+        for(Vertex v : new ArrayList<>(s.graph.vertices()))
+            sum += s.graph.incidentEdges(v).size();
+        return sum;
+    }
+
+    @Benchmark
+    public long forEachVertex(GraphState s) {
+        long[] sum = new long[1];
+        s.graph.forEachVertex(v -> sum[0] += s.graph.incidentEdges(v).size());
+        return sum[0];
+    }
+
+    @Benchmark
+    public long forEachIncidentEdge(GraphState s) {
+        long[] sum = new long[1];
+        s.graph.forEachVertex(v -> s.graph.forEachIncidentEdge(v, e -> sum[0]++));
+        return sum[0];
+    }
+
+    @Benchmark
+    public long vertexStream(GraphState s) {
+        return s.graph.vertexStream().mapToLong(v -> s.graph.incidentEdges(v).size()).sum();
+    }
+
+    @Benchmark
+    public long parallelVertexStream(GraphState s) {
+        return s.graph.vertexStream().parallel().mapToLong(v -> s.graph.incidentEdges(v).size()).sum();
+    }
+
+    @Benchmark
+    public long neighbourIds(GraphState s) {
+        return s.graph.vertexIds().mapToLong(id -> s.graph.neighbourIds(s.graph.vertexAt(id)).count()).sum();
+    }
+}
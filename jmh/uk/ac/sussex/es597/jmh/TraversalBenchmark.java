@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597.jmh;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.sussex.es597.*;
+
+/**
+ * Whole-graph traversals and mostDirectRoute. On the biggest graphs a single call takes a good part of a second,
+ * so iterations are longer than in QueryBenchmark
+ * @author Edoardo Sanguineti
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class TraversalBenchmark {
+
+    @Benchmark
+    public void bfTraverse(GraphState s, GraphState.Cursor c) {
+        s.graph.bfTraverse(s.from[c.next()]);
+    }
+
+    @Benchmark
+    public void bfTraverseAll(GraphState s) {
+        s.graph.bfTraverse();
+    }
+
+    @Benchmark
+    public ArrayList<Vertex> allReachable(GraphState s, GraphState.Cursor c) {
+        return s.graph.allReachable(s.from[c.next()]);
+    }
+
+    @Benchmark
+    public boolean allConnected(GraphState s) {
+        return s.graph.allConnected();
+    }
+
+    @Benchmark
+    public ArrayList<Edge> mostDirectRoute(GraphState s, GraphState.Cursor c) {
+        int i = c.next();
+        return s.graph.mostDirectRoute(s.from[i], s.to[i]);
+    }
+}
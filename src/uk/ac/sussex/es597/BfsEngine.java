@@ -0,0 +1,443 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Breadth-first search over a Graph that does not allocate anything once it is warmed up.
+ * Stations are identified by their slot in the Graph, the visited Set is a long[] bitset and the queue an int[].
+ * Each thread keeps its own bitset and queue, and instead of clearing the bitset before every traversal each word carries
+ * the epoch (traversal number) it was last written in: a word from an older epoch counts as all zeroes.
+ * @author Edoardo Sanguineti
+ */
+public final class BfsEngine {
+    private final Graph graph;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public BfsEngine(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Visits every Station that can be reached from v
+     * @param v Starting station
+     * @return the number of Stations visited, v included, or 0 if v is not in the graph
+     */
+    public int traverse(Vertex v) {
+        if(!graph.contains(v))
+            return 0;
+
+        Scratch s = acquire();
+        try {
+            s.begin(graph.numVertices());
+            return run(s, v.index, null);
+        } finally {
+            release(s);
+        }
+    }
+
+    /**
+     * Visits every Station of the graph, one connected component after the other.
+     * Stations are scanned by slot only once, so a very fragmented graph still costs O(V+E)
+     * @return the number of connected components
+     */
+    public int traverseAll() {
+        Scratch s = acquire();
+        try {
+            int n = graph.numVertices();
+            int components = 0;
+            s.begin(n);
+
+            for(int i = 0; i < n; i++) {
+                if(!s.isMarked(i)) {
+                    run(s, i, null);
+                    components++;
+                }
+            }
+            return components;
+        } finally {
+            release(s);
+        }
+    }
+
+    /**
+     * Returns all the Stations that can be reached from v, excluding v itself, in visit order
+     * @param v Starting station
+     * @return ArrayList the reachable Stations
+     */
+    public ArrayList<Vertex> reachable(Vertex v) {
+        ArrayList<Vertex> found = new ArrayList<>();
+        if(!graph.contains(v))
+            return found;
+
+        Scratch s = acquire();
+        try {
+            s.begin(graph.numVertices());
+            run(s, v.index, found::add);
+        } finally {
+            release(s);
+        }
+        return found;
+    }
+
+    /**
+     * Returns all the Stations that can be reached from v, excluding v itself, as a read-only bitset-backed Set.
+     * The Set only holds one bit per Station of the graph and stops being usable once the graph is modified
+     * @param v Starting station
+     * @return Set the reachable Stations
+     */
+    public Set<Vertex> reachableSet(Vertex v) {
+        int n = graph.numVertices();
+        long[] bits = new long[(n + 63) >>> 6];
+        if(!graph.contains(v))
+            return new ReachableSet(graph, bits);
+
+        Scratch s = acquire();
+        try {
+            s.begin(n);
+            run(s, v.index, null);
+            s.copyBits(bits);
+        } finally {
+            release(s);
+        }
+        bits[v.index >>> 6] &= ~(1L << v.index);
+        return new ReachableSet(graph, bits);
+    }
+
+    /**
+     * Hands every Station reachable from v (v excluded) to the action as soon as it is discovered.
+     * The traversal stops as soon as the action returns false, so callers only pay for what they look at
+     * @param v Starting station
+     * @param action called with each discovered Station, returns false to stop
+     * @return the number of Stations handed to the action
+     */
+    public int forEachReachable(Vertex v, Predicate<? super Vertex> action) {
+        if(!graph.contains(v))
+            return 0;
+
+        Scratch s = acquire();
+        try {
+            s.begin(graph.numVertices());
+            return run(s, v.index, action) - 1; //The source is counted by run but never handed out
+        } finally {
+            release(s);
+        }
+    }
+
+    /**
+     * Returns true if every Station can be reached from the first one, false if otherwise or if the graph is empty
+     * @return Boolean connected
+     */
+    public boolean allConnected() {
+        int n = graph.numVertices();
+        if(n == 0)
+            return false;
+
+        Scratch s = acquire();
+        try {
+            s.begin(n);
+            return run(s, 0, null) == n;
+        } finally {
+            release(s);
+        }
+    }
+
+    /**
+     * Returns a route from u to v with the fewest Lines, or null if v cannot be reached from u (or either is not in the graph).
+     * The bidirectional search grows one frontier from each end, always expanding a whole level of the smaller one,
+     * and stops as soon as the two meet. The one-sided search is the plain BFS from u, kept as a reference
+     * @param u Start Station
+     * @param v End Station
+     * @param bidirectional true to search from both ends
+     * @return The Lines of the route in order from u to v, empty if u == v, or null
+     */
+    public ArrayList<Edge> route(Vertex u, Vertex v, boolean bidirectional) {
+        if(!graph.contains(u) || !graph.contains(v))
+            return null;
+        if(u == v)
+            return new ArrayList<>();
+
+        Scratch s = acquire();
+        try {
+            s.beginRoute(graph.numVertices());
+            Frontier forward = s.forward, backward = s.backward;
+            forward.start(u.index, s.epoch);
+            backward.start(v.index, s.epoch);
+
+            int meet = -1;
+            if(bidirectional) {
+                while(meet < 0 && !forward.isEmpty() && !backward.isEmpty()) {
+                    if(forward.size() <= backward.size())
+                        meet = expandLevel(s, forward, backward);
+                    else
+                        meet = expandLevel(s, backward, forward);
+                }
+            } else {
+                while(meet < 0 && !forward.isEmpty())
+                    meet = expandLevel(s, forward, backward);
+            }
+            s.visited = forward.tail + backward.tail;
+
+            return meet < 0 ? null : buildRoute(s, meet);
+        } finally {
+            release(s);
+        }
+    }
+
+    /**
+     * Returns the number of Stations reached by the last traversal or route search of this thread, for GraphMetrics
+     */
+    int lastVisited() {
+        return scratch.get().visited;
+    }
+
+    /**
+     * Returns the number of Lines looked at by the last traversal or route search of this thread
+     */
+    long lastScanned() {
+        return scratch.get().scanned;
+    }
+
+    /**
+     * Expands every Station of the current level of one frontier.
+     * Since both searches went level by level without touching each other, the first Station seen by both sides lies on a shortest route
+     * @return the id of the Station where the two searches met, or -1
+     */
+    private int expandLevel(Scratch s, Frontier from, Frontier other) {
+        ArrayList<Vertex> vertices = graph.vertices();
+        int epoch = s.epoch;
+        int end = from.tail;
+
+        while(from.head < end) {
+            Vertex w = vertices.get(from.queue[from.head++]);
+            ArrayList<Edge> incidentEdges = w.getIncidenceColl();
+            s.scanned += incidentEdges.size();
+
+            for(int i = 0; i < incidentEdges.size(); i++) {
+                Edge e = incidentEdges.get(i);
+                Vertex o = graph.across(e, w);
+                if(o == null || from.seen[o.index] == epoch)
+                    continue;
+
+                from.seen[o.index] = epoch;
+                from.parent[o.index] = e.index;
+                if(other.seen[o.index] == epoch)
+                    return o.index;
+                from.queue[from.tail++] = o.index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Follows the parent Lines from the meeting Station back to u, then forward to v
+     */
+    private ArrayList<Edge> buildRoute(Scratch s, int meet) {
+        ArrayList<Edge> path = new ArrayList<>();
+        collectParents(s.forward, meet, s.epoch, path);
+        Collections.reverse(path);
+        collectParents(s.backward, meet, s.epoch, path);
+        return path;
+    }
+
+    private void collectParents(Frontier f, int from, int epoch, ArrayList<Edge> path) {
+        ArrayList<Vertex> vertices = graph.vertices();
+        ArrayList<Edge> edges = graph.edges();
+        int x = from;
+
+        while(f.seen[x] == epoch && f.parent[x] >= 0) {
+            Edge e = edges.get(f.parent[x]);
+            Vertex xv = vertices.get(x);
+            path.add(e);
+            x = (e.getEndPointA() == xv ? e.getEndPointB() : e.getEndPointA()).index;
+        }
+    }
+
+    /**
+     * The BFS itself. Reached Stations (not the source) are handed to the action when it is not null, and the traversal ends early
+     * if the action returns false
+     * @return the number of Stations marked, source included
+     */
+    private int run(Scratch s, int source, Predicate<? super Vertex> action) {
+        ArrayList<Vertex> vertices = graph.vertices();
+        int[] queue = s.queue;
+        int head = 0, tail = 0;
+        long scanned = 0;
+
+        s.mark(source);
+        queue[tail++] = source;
+
+        while(head < tail) {
+            Vertex w = vertices.get(queue[head++]);
+            ArrayList<Edge> incidentEdges = w.getIncidenceColl();
+            scanned += incidentEdges.size();
+
+            for(int i = 0; i < incidentEdges.size(); i++) { //Indexed loop, no Iterator
+                Vertex o = graph.across(incidentEdges.get(i), w);
+
+                if(o != null && s.mark(o.index)) {
+                    queue[tail++] = o.index; //Every Station is queued at most once, so the queue never wraps
+                    if(action != null && !action.test(o)) {
+                        head = tail; //Nothing else gets expanded
+                        break;
+                    }
+                }
+            }
+        }
+        s.visited += tail;
+        s.scanned += scanned;
+        return tail;
+    }
+
+    /**
+     * Hands out this thread's scratch space, or a fresh one if the thread is already inside a traversal.
+     * Traverser borrows it too for its visited flags
+     */
+    Scratch acquire() {
+        Scratch s = scratch.get();
+        if(s.inUse)
+            return new Scratch();
+        s.inUse = true;
+        return s;
+    }
+
+    void release(Scratch s) {
+        s.inUse = false;
+    }
+
+    /**
+     * One side of a route search: queue, epoch stamps of the Stations it has seen and the Line slot each one was reached through
+     */
+    private static final class Frontier {
+        private final int[] queue;
+        private final int[] seen;
+        private final int[] parent;
+        private int head, tail;
+
+        Frontier(int n) {
+            queue = new int[n];
+            seen = new int[n];
+            parent = new int[n];
+        }
+
+        void start(int source, int epoch) {
+            head = 0;
+            tail = 0;
+            seen[source] = epoch;
+            parent[source] = -1;
+            queue[tail++] = source;
+        }
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+
+        int size() {
+            return tail - head;
+        }
+    }
+
+    /**
+     * Per-thread visited bitset and queue, plus the two route frontiers once a route has been asked for
+     */
+    static final class Scratch {
+        private long[] bits = new long[0];
+        private int[] wordEpoch = new int[0];
+        private int[] queue = new int[0];
+        private Frontier forward, backward;
+        private int epoch;
+        private int visited; //Totals of the current traversal, for GraphMetrics
+        private long scanned;
+        private boolean inUse;
+
+        /**
+         * Starts a new traversal over n Stations, growing the arrays only if the graph got bigger
+         */
+        void begin(int n) {
+            visited = 0;
+            scanned = 0;
+            if(queue.length < n) {
+                int words = (n + 63) >>> 6;
+                bits = new long[words];
+                wordEpoch = new int[words];
+                queue = new int[n];
+                if(forward != null) { //Every stamp array has to start again from epoch 0
+                    forward = new Frontier(n);
+                    backward = new Frontier(n);
+                }
+                epoch = 0;
+            }
+            if(++epoch == 0) { //Wrapped around after 2^32 traversals, old stamps could look current again
+                Arrays.fill(wordEpoch, 0);
+                if(forward != null) {
+                    Arrays.fill(forward.seen, 0);
+                    Arrays.fill(backward.seen, 0);
+                }
+                epoch = 1;
+            }
+        }
+
+        /**
+         * Same as begin, making sure the route frontiers exist
+         */
+        void beginRoute(int n) {
+            begin(n);
+            if(forward == null) {
+                forward = new Frontier(queue.length);
+                backward = new Frontier(queue.length);
+            }
+        }
+
+        /**
+         * Marks a Station as visited
+         * @return true if it was not visited yet
+         */
+        boolean mark(int id) {
+            int w = id >>> 6;
+            long bit = 1L << id;
+
+            if(wordEpoch[w] != epoch) {
+                wordEpoch[w] = epoch;
+                bits[w] = bit;
+                return true;
+            }
+            if((bits[w] & bit) != 0)
+                return false;
+
+            bits[w] |= bit;
+            return true;
+        }
+
+        /**
+         * Copies the visited flags of the current traversal into a plain bitset
+         */
+        void copyBits(long[] into) {
+            for(int w = 0; w < into.length; w++)
+                into[w] = wordEpoch[w] == epoch ? bits[w] : 0;
+        }
+
+        boolean isMarked(int id) {
+            int w = id >>> 6;
+            return wordEpoch[w] == epoch && (bits[w] & (1L << id)) != 0;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Connected components of a Graph, kept in a union-find over the slots of the Stations (union by size, path halving).
+ * Inserting a Station or a Line updates it straight away, so after inserts allConnected, sameComponent and the component
+ * sizes cost next to nothing. Union-find cannot split a component, so a removal only marks it stale and the next query
+ * rebuilds it from scratch in O(V+E).
+ * Component ids are the slot of one Station of the component; they stay valid until the graph changes.
+ * Queries may be made from several threads as long as nobody is changing the graph, like the other read methods of Graph.
+ * @author Edoardo Sanguineti
+ */
+public final class Components {
+    private final Graph graph;
+    private int[] parent = new int[0];
+    private int[] size = new int[0]; //Only meaningful for roots
+    private int n;
+    private int count;
+    private volatile boolean stale = true;
+
+    Components(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Returns the id of the component of a Station, or -1 if it is not in the graph
+     * @param v Vertex
+     * @return int component id
+     */
+    public int componentOf(Vertex v) {
+        if(!graph.contains(v))
+            return -1;
+        refresh();
+        return find(v.index);
+    }
+
+    /**
+     * Returns the number of Stations in the component of v, itself included, or 0 if it is not in the graph
+     * @param v Vertex
+     * @return int size
+     */
+    public int sizeOf(Vertex v) {
+        int root = componentOf(v);
+        return root < 0 ? 0 : size[root];
+    }
+
+    /**
+     * Checks if one Station can be reached from the other
+     * @param u Vertex
+     * @param v Vertex
+     * @return true if both are in the graph and in the same component
+     */
+    public boolean sameComponent(Vertex u, Vertex v) {
+        if(!graph.contains(u) || !graph.contains(v))
+            return false;
+        refresh();
+        return find(u.index) == find(v.index);
+    }
+
+    /**
+     * Returns the number of connected components
+     * @return int components
+     */
+    public int count() {
+        refresh();
+        return count;
+    }
+
+    /**
+     * Returns true if there is exactly one component, false if otherwise (or if the graph is empty)
+     * @return Boolean connected
+     */
+    public boolean allConnected() {
+        return count() == 1;
+    }
+
+    /**
+     * Returns the size of every component, largest first
+     * @return int[] sizes
+     */
+    public int[] sizes() {
+        refresh();
+        int[] sizes = new int[count];
+        int k = 0;
+        for(int i = 0; i < n; i++) {
+            if(parent[i] == i)
+                sizes[k++] = size[i];
+        }
+        Arrays.sort(sizes);
+        for(int i = 0, j = sizes.length - 1; i < j; i++, j--) {
+            int t = sizes[i];
+            sizes[i] = sizes[j];
+            sizes[j] = t;
+        }
+        return sizes;
+    }
+
+    /**
+     * A Station was appended to the graph, it starts as a component on its own
+     */
+    void vertexAdded() {
+        if(stale)
+            return;
+        if(n == parent.length) {
+            parent = Arrays.copyOf(parent, Math.max(16, n * 2));
+            size = Arrays.copyOf(size, parent.length);
+        }
+        parent[n] = n;
+        size[n] = 1;
+        n++;
+        count++;
+    }
+
+    void edgeAdded(Edge e) {
+        if(!stale)
+            link(e);
+    }
+
+    /**
+     * Something was removed, components may have split
+     */
+    void invalidate() {
+        stale = true;
+    }
+
+    private void refresh() {
+        if(stale) {
+            synchronized(this) {
+                if(stale)
+                    rebuild();
+            }
+        }
+    }
+
+    private void rebuild() {
+        ArrayList<Edge> edges = graph.edges();
+        n = graph.numVertices();
+        count = n;
+        if(parent.length < n) {
+            parent = new int[n];
+            size = new int[n];
+        }
+        for(int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        for(int i = 0; i < edges.size(); i++)
+            link(edges.get(i));
+        stale = false; //Volatile write, publishes the arrays to other readers
+    }
+
+    private void link(Edge e) {
+        if(graph.contains(e.getEndPointA()) && graph.contains(e.getEndPointB()))
+            union(e.getEndPointA().index, e.getEndPointB().index);
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if(a == b)
+            return;
+        if(size[a] < size[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+        count--;
+    }
+
+    /**
+     * Path halving: every other Station on the way up is pointed at its grandparent.
+     * Concurrent finds only ever replace a parent with one of its ancestors, so they cannot break each other
+     */
+    private int find(int x) {
+        while(parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe version of Graph for several ingestion and query threads working on the same rail network.
+ * Updates lock the Stations they touch, using a fixed array of locks (stripes) shared out by Station, so updates on
+ * unrelated Stations go ahead in parallel. Every Station keeps its Lines in an array that is copied on every change and
+ * published through a volatile field, so readers never lock: they see the array as it was at some point, never half-updated.
+ * Queries spanning several Stations (traversals, vertices(), edges()) are weakly consistent, like the iterators of
+ * java.util.concurrent: they see every change made before they started and may or may not see the ones made meanwhile.
+ * Vertices and Edges belong to the graph that created them and cannot be shared with a Graph.
+ * Each Vertex points straight at the graph's record of it, so the reads only go through the shared hash tables to list everything.
+ * @author Edoardo Sanguineti
+ */
+public final class ConcurrentGraph implements GraphADT {
+    /**
+     * Number of locks used when none is given, enough for 64 threads to rarely meet on the same one
+     */
+    public static final int DEFAULT_STRIPES = 256;
+    private static final Edge[] NO_EDGES = new Edge[0];
+
+    private final Set<Vertex> vertices = ConcurrentHashMap.newKeySet();
+    private final Set<Edge> edges = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock[] stripes;
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    public ConcurrentGraph() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes number of locks, rounded up to a power of two
+     */
+    public ConcurrentGraph(int stripes) {
+        if(stripes < 1)
+            throw new IllegalArgumentException("At least one lock stripe is needed: " + stripes);
+
+        int n = Integer.highestOneBit(stripes);
+        this.stripes = new ReentrantLock[n < stripes ? n << 1 : n];
+        for(int i = 0; i < this.stripes.length; i++)
+            this.stripes[i] = new ReentrantLock();
+    }
+
+    @Override
+    public Vertex insertVertex(String n) {
+        Vertex v = new Vertex(n);
+        v.node = new Node(this, nextId.getAndIncrement());
+        vertices.add(v);
+        return v;
+    }
+
+    /**
+     * Removes the Station and every Line stopping at it. The Station is closed first, under its own lock, so no new Line
+     * can be attached to it while its Lines are being removed
+     */
+    @Override
+    public String removeVertex(Vertex v) {
+        Node node = node(v);
+        if(node == null)
+            return null;
+
+        ReentrantLock lock = stripe(node);
+        lock.lock();
+        try {
+            if(node.closed)
+                return null; //Someone else is removing it
+            node.closed = true;
+        } finally {
+            lock.unlock();
+        }
+
+        for(Edge e : node.incident)
+            removeEdge(e);
+        node.removed = true;
+        vertices.remove(v);
+        return v.getElement();
+    }
+
+    /**
+     * Both Stations must be in the graph, otherwise an IllegalArgumentException is thrown
+     */
+    @Override
+    public Edge insertEdge(Vertex v, Vertex w, String n) {
+        Node a = node(v), b = node(w);
+        if(a == null || b == null)
+            throw new IllegalArgumentException("Both Stations must be in the graph: " + v + ", " + w);
+
+        Edge e = new Edge(n);
+        e.setEndpoints(v, w);
+
+        lockBoth(a, b);
+        try {
+            if(a.closed || b.closed)
+                throw new IllegalArgumentException("Station removed while adding a Line: " + (a.closed ? v : w));
+
+            edges.add(e);
+            a.incident = append(a.incident, e);
+            if(b != a)
+                b.incident = append(b.incident, e);
+        } finally {
+            unlockBoth(a, b);
+        }
+        return e;
+    }
+
+    @Override
+    public String removeEdge(Edge e) {
+        if(e == null || !edges.contains(e))
+            return null;
+
+        Node a = node(e.getEndPointA()), b = node(e.getEndPointB());
+        if(a == null || b == null) //Both end points stay in the graph until their Lines are gone, so another thread got here first
+            return null;
+
+        lockBoth(a, b);
+        try {
+            if(!edges.remove(e))
+                return null;
+            a.incident = without(a.incident, e);
+            if(b != a)
+                b.incident = without(b.incident, e);
+        } finally {
+            unlockBoth(a, b);
+        }
+        return e.getElement();
+    }
+
+    @Override
+    public Vertex opposite(Edge e, Vertex v) {
+        if(e == null || !edges.contains(e))
+            return null;
+
+        if(e.getEndPointA() == v)
+            return e.getEndPointB();
+        if(e.getEndPointB() == v)
+            return e.getEndPointA();
+        return null;
+    }
+
+    /**
+     * Returns a copy of the Stations, changes to it don't affect the graph
+     */
+    @Override
+    public ArrayList<Vertex> vertices() {
+        return new ArrayList<>(vertices);
+    }
+
+    /**
+     * Returns a copy of the Lines, changes to it don't affect the graph
+     */
+    @Override
+    public ArrayList<Edge> edges() {
+        return new ArrayList<>(edges);
+    }
+
+    /**
+     * Scans the shorter of the two Line arrays, without locking
+     */
+    @Override
+    public boolean areAdjacent(Vertex v, Vertex w) {
+        return getEdge(v, w) != null;
+    }
+
+    /**
+     * Returns a copy of the Lines of the Station, or an empty list if it is not in the graph
+     */
+    @Override
+    public ArrayList<Edge> incidentEdges(Vertex v) {
+        Node node = node(v);
+        return new ArrayList<>(Arrays.asList(node == null ? NO_EDGES : node.incident));
+    }
+
+    @Override
+    public String rename(Vertex v, String n) {
+        Node node = node(v);
+        if(node == null) { //Not ours, nobody else can see it
+            String oldName = v.getElement();
+            v.setElement(n);
+            return oldName;
+        }
+
+        ReentrantLock lock = stripe(node);
+        lock.lock();
+        try {
+            String oldName = v.getElement();
+            v.setElement(n);
+            return oldName;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String rename(Edge e, String n) {
+        Node node = node(e.getEndPointA());
+        if(node == null) {
+            String oldName = e.getElement();
+            e.setElement(n);
+            return oldName;
+        }
+
+        ReentrantLock lock = stripe(node);
+        lock.lock();
+        try {
+            String oldName = e.getElement();
+            e.setElement(n);
+            return oldName;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of Lines of a Station, read without locking or copying them, or -1 if it is not in the graph
+     * @param v Vertex
+     * @return int degree
+     */
+    public int degree(Vertex v) {
+        Node node = node(v);
+        return node == null ? -1 : node.incident.length;
+    }
+
+    /**
+     * Returns a Line between two Stations, or null if they are not adjacent (or one of them is not in the graph)
+     * @param v Vertex
+     * @param w Vertex
+     * @return Edge or null
+     */
+    public Edge getEdge(Vertex v, Vertex w) {
+        Node a = node(v), b = node(w);
+        if(a == null || b == null)
+            return null;
+
+        Edge[] incident = a.incident, other = b.incident;
+        Vertex from = v;
+        if(other.length < incident.length) {
+            incident = other;
+            from = w;
+        }
+        Vertex to = from == v ? w : v;
+
+        for(Edge e : incident) {
+            if((e.getEndPointA() == from && e.getEndPointB() == to) || (e.getEndPointB() == from && e.getEndPointA() == to))
+                return e;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the Station is in the graph
+     * @param v Vertex
+     * @return True if v is in the graph
+     */
+    public boolean contains(Vertex v) {
+        return node(v) != null;
+    }
+
+    /**
+     * Checks if the Line is in the graph
+     * @param e Edge
+     * @return True if e is in the graph
+     */
+    public boolean contains(Edge e) {
+        return e != null && edges.contains(e);
+    }
+
+    /**
+     * Returns the number of Stations. Only an estimate while other threads are updating the graph
+     * @return int Vertices
+     */
+    public int numVertices() {
+        return vertices.size();
+    }
+
+    /**
+     * Returns the number of Lines. Only an estimate while other threads are updating the graph
+     * @return int Edges
+     */
+    public int numEdges() {
+        return edges.size();
+    }
+
+    /**
+     * Returns all the Stations that can be reached from v, excluding v itself, in visit order.
+     * Nothing is locked: each Station's Lines are read as they are when the traversal gets there
+     * @param v Starting station
+     * @return ArrayList the reachable Stations
+     */
+    public ArrayList<Vertex> allReachable(Vertex v) {
+        ArrayList<Vertex> found = new ArrayList<>();
+        if(contains(v))
+            traverse(v, new HashSet<>(), found);
+        return found;
+    }
+
+    /**
+     * Returns true if every Station can be reached from any of them, false if otherwise or if the graph is empty
+     * @return Boolean connected
+     */
+    public boolean allConnected() {
+        for(Vertex v : vertices) {
+            HashSet<Vertex> seen = new HashSet<>();
+            traverse(v, seen, null);
+            return seen.size() >= vertices.size();
+        }
+        return false;
+    }
+
+    private void traverse(Vertex source, HashSet<Vertex> seen, ArrayList<Vertex> found) {
+        ArrayDeque<Vertex> queue = new ArrayDeque<>();
+        seen.add(source);
+        queue.add(source);
+
+        while(!queue.isEmpty()) {
+            Vertex w = queue.poll();
+            Node node = node(w);
+            if(node == null) //Removed since it was queued
+                continue;
+
+            for(Edge e : node.incident) {
+                Vertex o = e.getEndPointA() == w ? e.getEndPointB() : e.getEndPointA();
+                if(seen.add(o)) {
+                    queue.add(o);
+                    if(found != null)
+                        found.add(o);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the record of a Station of this graph, or null if the Station is not (or no longer) in it
+     */
+    private Node node(Vertex v) {
+        Node node = v == null ? null : v.node;
+        return node != null && node.graph == this && !node.removed ? node : null;
+    }
+
+    private ReentrantLock stripe(Node node) {
+        return stripes[node.id & (stripes.length - 1)];
+    }
+
+    /**
+     * Locks the stripes of two Stations, lowest stripe first so that two threads can never wait on each other
+     */
+    private void lockBoth(Node a, Node b) {
+        int i = a.id & (stripes.length - 1), j = b.id & (stripes.length - 1);
+        stripes[Math.min(i, j)].lock();
+        if(i != j)
+            stripes[Math.max(i, j)].lock();
+    }
+
+    private void unlockBoth(Node a, Node b) {
+        int i = a.id & (stripes.length - 1), j = b.id & (stripes.length - 1);
+        if(i != j)
+            stripes[Math.max(i, j)].unlock();
+        stripes[Math.min(i, j)].unlock();
+    }
+
+    private static Edge[] append(Edge[] incident, Edge e) {
+        Edge[] copy = Arrays.copyOf(incident, incident.length + 1);
+        copy[incident.length] = e;
+        return copy;
+    }
+
+    private static Edge[] without(Edge[] incident, Edge e) {
+        for(int i = 0; i < incident.length; i++) {
+            if(incident[i] == e) {
+                Edge[] copy = new Edge[incident.length - 1];
+                System.arraycopy(incident, 0, copy, 0, i);
+                System.arraycopy(incident, i + 1, copy, i, copy.length - i);
+                return copy;
+            }
+        }
+        return incident;
+    }
+
+    /**
+     * What the graph knows about a Station. incident is only replaced while holding the Station's stripe
+     */
+    static final class Node {
+        private final ConcurrentGraph graph;
+        private final int id;
+        private volatile Edge[] incident = NO_EDGES;
+        private boolean closed; //Set once, under the stripe, when the Station is being removed
+        private volatile boolean removed; //Set once all its Lines are gone
+
+        Node(ConcurrentGraph graph, int id) {
+            this.graph = graph;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,567 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Contraction hierarchy built from a Graph with Graph.contract(), for route queries that only look at a few hundred Stations.
+ * Preprocessing removes ("contracts") the Stations one at a time, least important first, adding a shortcut between two of its neighbours
+ * whenever the route through it was the only lightest one. A query then runs Dijkstra from both ends going only towards more important
+ * Stations, and the shortcuts on the route found are unpacked back into the real Lines.
+ * Like CsrGraph this is a snapshot: Stations and Lines are identified by their slot at build time and later changes to the Graph are not seen.
+ * @author Edoardo Sanguineti
+ */
+public final class ContractionHierarchy {
+    //Witness searches give up after this many Stations and assume the shortcut is needed. Estimating the importance of a Station
+    //only needs a rough count, so that uses a much smaller limit
+    private static final int WITNESS_SETTLE_LIMIT = 64;
+    private static final int SIMULATION_SETTLE_LIMIT = 16;
+
+    private final Vertex[] vertexAt;
+    private final Edge[] edgeAt;
+
+    //Arcs are the usable Lines followed by the shortcuts. A shortcut goes through arcMid and is made of arcFirst (the half touching arcU) and arcSecond
+    private final int[] arcU, arcV, arcEdge, arcMid, arcFirst, arcSecond;
+    private final double[] arcWeight;
+    private final int numArcs, numShortcuts;
+
+    //Upward graph: for every Station the arcs leading to a more important one
+    private final int[] upOffsets, upArcs;
+
+    private final ThreadLocal<Query> scratch = ThreadLocal.withInitial(Query::new);
+
+    private ContractionHierarchy(Builder b, Vertex[] vertexAt, Edge[] edgeAt) {
+        this.vertexAt = vertexAt;
+        this.edgeAt = edgeAt;
+        numArcs = b.numArcs;
+        numShortcuts = b.numArcs - b.numOriginal;
+        arcU = Arrays.copyOf(b.arcU, numArcs);
+        arcV = Arrays.copyOf(b.arcV, numArcs);
+        arcEdge = Arrays.copyOf(b.arcEdge, numArcs);
+        arcMid = Arrays.copyOf(b.arcMid, numArcs);
+        arcFirst = Arrays.copyOf(b.arcFirst, numArcs);
+        arcSecond = Arrays.copyOf(b.arcSecond, numArcs);
+        arcWeight = Arrays.copyOf(b.arcWeight, numArcs);
+
+        int n = vertexAt.length;
+        upOffsets = new int[n + 1];
+        for(int a = 0; a < numArcs; a++)
+            upOffsets[lower(b.rank, a) + 1]++;
+        for(int i = 0; i < n; i++)
+            upOffsets[i + 1] += upOffsets[i];
+
+        upArcs = new int[numArcs];
+        int[] fill = Arrays.copyOf(upOffsets, n);
+        for(int a = 0; a < numArcs; a++)
+            upArcs[fill[lower(b.rank, a)]++] = a;
+    }
+
+    private int lower(int[] rank, int a) {
+        return rank[arcU[a]] < rank[arcV[a]] ? arcU[a] : arcV[a];
+    }
+
+    /**
+     * Contracts every Station of the graph
+     * @param g Graph
+     * @param weighted true to use the Line weights, false to count Lines like mostDirectRoute
+     * @return ContractionHierarchy
+     */
+    static ContractionHierarchy build(Graph g, boolean weighted) {
+        Vertex[] vertexAt = g.vertices().toArray(new Vertex[0]);
+        Edge[] edgeAt = g.edges().toArray(new Edge[0]);
+        Builder b = new Builder(vertexAt.length);
+
+        //Same Lines the traversals use: taken from the incidence lists, each one once, loops are never part of a lightest route
+        boolean[] added = new boolean[edgeAt.length];
+        for(Vertex v : vertexAt) {
+            for(Edge e : v.getIncidenceColl()) {
+                Vertex o = g.across(e, v);
+                if(o != null && o != v && !added[e.index]) {
+                    added[e.index] = true;
+                    b.addArc(v.index, o.index, weighted ? g.getWeight(e) : 1, e.index, -1, -1, -1);
+                }
+            }
+        }
+        b.numOriginal = b.numArcs;
+        b.contractAll();
+
+        return new ContractionHierarchy(b, vertexAt, edgeAt);
+    }
+
+    /**
+     * Returns the number of shortcuts added by the preprocessing
+     * @return int shortcuts
+     */
+    public int numShortcuts() {
+        return numShortcuts;
+    }
+
+    /**
+     * Rough size of the arrays of the hierarchy, to compare with the Graph it was built from
+     * @return long bytes
+     */
+    public long memoryBytes() {
+        return 4L * (6 * arcU.length + upOffsets.length + upArcs.length) + 8L * arcWeight.length
+                + 4L * (vertexAt.length + edgeAt.length);
+    }
+
+    /**
+     * Weight of the lightest route between two Stations
+     * @param u Start Station
+     * @param v End Station
+     * @return double weight, infinity if there is no route, NaN if a Station was not in the graph when it was contracted
+     */
+    public double distance(Vertex u, Vertex v) {
+        int s = idOf(u), t = idOf(v);
+        if(s < 0 || t < 0)
+            return Double.NaN;
+
+        Query q = acquire();
+        try {
+            q.begin(vertexAt.length);
+            search(q, s, t);
+            return q.best;
+        } finally {
+            release(q);
+        }
+    }
+
+    /**
+     * Lightest route between two Stations, with the shortcuts unpacked into the real Lines
+     * @param u Start Station
+     * @param v End Station
+     * @return The Lines of the route in order, empty if u == v, or null
+     */
+    public ArrayList<Edge> route(Vertex u, Vertex v) {
+        int s = idOf(u), t = idOf(v);
+        if(s < 0 || t < 0)
+            return null;
+
+        Query q = acquire();
+        try {
+            q.begin(vertexAt.length);
+            search(q, s, t);
+            if(q.meet < 0)
+                return null;
+
+            ArrayList<Edge> path = new ArrayList<>();
+            //Forward half: collect the arcs from the meeting Station back to u, then unpack them in the right order
+            ArrayList<int[]> forward = new ArrayList<>();
+            int x = q.meet;
+            while(q.forward.parent[x] >= 0) {
+                int a = q.forward.parent[x];
+                int y = arcU[a] == x ? arcV[a] : arcU[a];
+                forward.add(new int[] {a, y});
+                x = y;
+            }
+            Collections.reverse(forward);
+            for(int[] step : forward)
+                unpack(step[0], step[1], path);
+
+            x = q.meet;
+            while(q.backward.parent[x] >= 0) {
+                int a = q.backward.parent[x];
+                unpack(a, x, path);
+                x = arcU[a] == x ? arcV[a] : arcU[a];
+            }
+            return path;
+        } finally {
+            release(q);
+        }
+    }
+
+    /**
+     * Returns the number of Stations settled by the last query of this thread
+     * @return int settled Stations
+     */
+    public int lastSettled() {
+        return scratch.get().settled;
+    }
+
+    private int idOf(Vertex v) {
+        if(v == null || v.index < 0 || v.index >= vertexAt.length || vertexAt[v.index] != v)
+            return -1;
+        return v.index;
+    }
+
+    /**
+     * Upward Dijkstra from both ends. A side stops once its smallest key can't beat the best meeting found so far
+     */
+    private void search(Query q, int s, int t) {
+        Side f = q.forward, b = q.backward;
+        int epoch = q.epoch;
+        q.best = s == t ? 0 : Double.POSITIVE_INFINITY;
+        q.meet = s == t ? s : -1;
+        q.settled = 0;
+        f.start(s, epoch);
+        b.start(t, epoch);
+
+        boolean forwardTurn = true;
+        while(true) {
+            boolean fDone = f.heap.isEmpty() || f.heap.peekKey() >= q.best;
+            boolean bDone = b.heap.isEmpty() || b.heap.peekKey() >= q.best;
+            if(fDone && bDone)
+                break;
+            if(fDone)
+                forwardTurn = false;
+            else if(bDone)
+                forwardTurn = true;
+
+            if(forwardTurn)
+                settle(q, f, b, epoch);
+            else
+                settle(q, b, f, epoch);
+            forwardTurn = !forwardTurn;
+        }
+        f.heap.clear();
+        b.heap.clear();
+    }
+
+    private void settle(Query q, Side side, Side other, int epoch) {
+        int x = side.heap.poll();
+        q.settled++;
+
+        for(int i = upOffsets[x]; i < upOffsets[x + 1]; i++) {
+            int a = upArcs[i];
+            int y = arcU[a] == x ? arcV[a] : arcU[a];
+            double d = side.dist[x] + arcWeight[a];
+
+            if(side.stamp[y] != epoch || d < side.dist[y]) {
+                side.stamp[y] = epoch;
+                side.dist[y] = d;
+                side.parent[y] = a;
+                side.heap.insertOrDecrease(y, d);
+
+                if(other.stamp[y] == epoch && d + other.dist[y] < q.best) {
+                    q.best = d + other.dist[y];
+                    q.meet = y;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the real Lines of an arc walked starting from the given end
+     */
+    private void unpack(int a, int from, ArrayList<Edge> path) {
+        if(arcEdge[a] >= 0) {
+            path.add(edgeAt[arcEdge[a]]);
+        } else if(from == arcU[a]) {
+            unpack(arcFirst[a], from, path);
+            unpack(arcSecond[a], arcMid[a], path);
+        } else {
+            unpack(arcSecond[a], from, path);
+            unpack(arcFirst[a], arcMid[a], path);
+        }
+    }
+
+    private Query acquire() {
+        Query q = scratch.get();
+        if(q.inUse)
+            return new Query();
+        q.inUse = true;
+        return q;
+    }
+
+    private void release(Query q) {
+        q.inUse = false;
+    }
+
+    /**
+     * One direction of a query
+     */
+    private static final class Side {
+        private final int[] stamp, parent;
+        private final double[] dist;
+        private final IndexedMinHeap heap;
+
+        Side(int n) {
+            stamp = new int[n];
+            parent = new int[n];
+            dist = new double[n];
+            heap = new IndexedMinHeap(n);
+        }
+
+        void start(int source, int epoch) {
+            stamp[source] = epoch;
+            dist[source] = 0;
+            parent[source] = -1;
+            heap.insertOrDecrease(source, 0);
+        }
+    }
+
+    /**
+     * Per-thread query state
+     */
+    private static final class Query {
+        private Side forward = new Side(0), backward = new Side(0);
+        private int epoch, meet, settled;
+        private double best;
+        private boolean inUse;
+
+        void begin(int n) {
+            if(forward.stamp.length < n) {
+                forward = new Side(n);
+                backward = new Side(n);
+                epoch = 0;
+            }
+            if(++epoch == 0) {
+                Arrays.fill(forward.stamp, 0);
+                Arrays.fill(backward.stamp, 0);
+                epoch = 1;
+            }
+        }
+    }
+
+    /**
+     * Preprocessing state, thrown away once the hierarchy is built
+     */
+    private static final class Builder {
+        private final int n;
+        private int[] arcU = new int[16], arcV = new int[16], arcEdge = new int[16], arcMid = new int[16], arcFirst = new int[16], arcSecond = new int[16];
+        private double[] arcWeight = new double[16];
+        private int numArcs, numOriginal;
+
+        private final int[][] adj; //Arc ids between Stations not contracted yet
+        private final int[] adjSize;
+        private final int[] rank;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+
+        //Neighbours of the Station being contracted, the lightest arc to each
+        private int[] nbr = new int[16], nbrArc = new int[16];
+        private double[] nbrWeight = new double[16];
+        private int numNbr;
+        private final int[] nbrSlot; //Position in nbr of a Station, valid when nbrStamp matches
+        private final int[] nbrStamp;
+        private int nbrEpoch;
+
+        //Witness search
+        private final IndexedMinHeap heap;
+        private final double[] dist;
+        private final int[] stamp;
+        private int epoch;
+
+        Builder(int n) {
+            this.n = n;
+            adj = new int[n][];
+            adjSize = new int[n];
+            rank = new int[n];
+            contracted = new boolean[n];
+            contractedNeighbours = new int[n];
+            nbrSlot = new int[n];
+            nbrStamp = new int[n];
+            heap = new IndexedMinHeap(n);
+            dist = new double[n];
+            stamp = new int[n];
+        }
+
+        void addArc(int u, int v, double w, int edge, int mid, int first, int second) {
+            if(numArcs == arcU.length) {
+                int size = numArcs * 2;
+                arcU = Arrays.copyOf(arcU, size);
+                arcV = Arrays.copyOf(arcV, size);
+                arcEdge = Arrays.copyOf(arcEdge, size);
+                arcMid = Arrays.copyOf(arcMid, size);
+                arcFirst = Arrays.copyOf(arcFirst, size);
+                arcSecond = Arrays.copyOf(arcSecond, size);
+                arcWeight = Arrays.copyOf(arcWeight, size);
+            }
+            int a = numArcs++;
+            arcU[a] = u;
+            arcV[a] = v;
+            arcWeight[a] = w;
+            arcEdge[a] = edge;
+            arcMid[a] = mid;
+            arcFirst[a] = first;
+            arcSecond[a] = second;
+            addToAdj(u, a);
+            addToAdj(v, a);
+        }
+
+        private void addToAdj(int v, int a) {
+            if(adj[v] == null)
+                adj[v] = new int[4];
+            else if(adjSize[v] == adj[v].length)
+                adj[v] = Arrays.copyOf(adj[v], adjSize[v] * 2);
+            adj[v][adjSize[v]++] = a;
+        }
+
+        /**
+         * Contracts the Stations in order of importance, re-evaluating lazily: a Station whose importance went up since it was queued goes back in the queue.
+         * Updating every neighbour after each contraction gives a slightly better order but costs several times more witness searches
+         */
+        void contractAll() {
+            IndexedMinHeap order = new IndexedMinHeap(n);
+            for(int x = 0; x < n; x++)
+                order.insertOrDecrease(x, importance(x));
+
+            int next = 0;
+            while(!order.isEmpty()) {
+                int x = order.poll();
+                double p = importance(x);
+                if(!order.isEmpty() && p > order.peekKey()) {
+                    order.insertOrDecrease(x, p);
+                    continue;
+                }
+
+                contract(x, false);
+                contracted[x] = true;
+                rank[x] = next++;
+
+                for(int i = 0; i < numNbr; i++) {
+                    dropArcsTo(nbr[i], x);
+                    contractedNeighbours[nbr[i]]++; //Picked up when the neighbour is next polled
+                }
+            }
+        }
+
+        /**
+         * Removes from the adjacency of y the arcs towards x, e.g. because x has just been contracted, so that the remaining graph stays small.
+         * The arcs themselves stay, shortcuts may be made of them
+         */
+        private void dropArcsTo(int y, int x) {
+            int[] list = adj[y];
+            int kept = 0;
+            for(int i = 0; i < adjSize[y]; i++) {
+                int a = list[i];
+                if(arcU[a] != x && arcV[a] != x)
+                    list[kept++] = a;
+            }
+            adjSize[y] = kept;
+        }
+
+        private void dropArcsBetween(int u, int w) {
+            dropArcsTo(u, w);
+            dropArcsTo(w, u);
+        }
+
+        /**
+         * Edge difference (shortcuts needed minus arcs removed) plus the contracted neighbours, to spread the contraction evenly
+         */
+        private double importance(int x) {
+            int shortcuts = contract(x, true);
+            return shortcuts - numNbr + contractedNeighbours[x];
+        }
+
+        /**
+         * Finds the shortcuts needed to remove x, adding them unless this is a simulation
+         * @return the number of shortcuts; the neighbours are left in nbr
+         */
+        private int contract(int x, boolean simulate) {
+            collectNeighbours(x);
+            double maxWeight = 0;
+            for(int i = 0; i < numNbr; i++)
+                maxWeight = Math.max(maxWeight, nbrWeight[i]);
+
+            int shortcuts = 0;
+            for(int i = 0; i < numNbr; i++) {
+                witnessSearch(nbr[i], x, nbrWeight[i] + maxWeight, simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                for(int j = i + 1; j < numNbr; j++) {
+                    double through = nbrWeight[i] + nbrWeight[j];
+                    int w = nbr[j];
+                    if(stamp[w] == epoch && dist[w] <= through)
+                        continue; //There is a route at least as light that avoids x
+
+                    shortcuts++;
+                    if(!simulate) {
+                        dropArcsBetween(nbr[i], w); //Any arc left between them is heavier, only the new one is worth keeping
+                        addArc(nbr[i], w, through, -1, x, nbrArc[i], nbrArc[j]);
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Fills nbr with the neighbours of x still in the graph, keeping only the lightest arc to each
+         */
+        private void collectNeighbours(int x) {
+            numNbr = 0;
+            if(++nbrEpoch == 0) {
+                Arrays.fill(nbrStamp, 0);
+                nbrEpoch = 1;
+            }
+
+            for(int i = 0; i < adjSize[x]; i++) {
+                int a = adj[x][i];
+                int y = arcU[a] == x ? arcV[a] : arcU[a];
+                if(contracted[y])
+                    continue;
+
+                if(nbrStamp[y] == nbrEpoch) {
+                    int slot = nbrSlot[y];
+                    if(arcWeight[a] < nbrWeight[slot]) {
+                        nbrWeight[slot] = arcWeight[a];
+                        nbrArc[slot] = a;
+                    }
+                    continue;
+                }
+
+                if(numNbr == nbr.length) {
+                    nbr = Arrays.copyOf(nbr, numNbr * 2);
+                    nbrArc = Arrays.copyOf(nbrArc, numNbr * 2);
+                    nbrWeight = Arrays.copyOf(nbrWeight, numNbr * 2);
+                }
+                nbrStamp[y] = nbrEpoch;
+                nbrSlot[y] = numNbr;
+                nbr[numNbr] = y;
+                nbrArc[numNbr] = a;
+                nbrWeight[numNbr] = arcWeight[a];
+                numNbr++;
+            }
+        }
+
+        /**
+         * Dijkstra from source over the Stations not contracted yet, avoiding x, up to the given weight or settle limit.
+         * Stations beyond the weight limit are never queued, they could not be a witness anyway
+         */
+        private void witnessSearch(int source, int x, double limit, int settleLimit) {
+            if(++epoch == 0) {
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+            stamp[source] = epoch;
+            dist[source] = 0;
+            heap.insertOrDecrease(source, 0);
+
+            int settled = 0;
+            while(!heap.isEmpty() && heap.peekKey() <= limit && settled++ < settleLimit) {
+                int w = heap.poll();
+                for(int i = 0; i < adjSize[w]; i++) {
+                    int a = adj[w][i];
+                    int y = arcU[a] == w ? arcV[a] : arcU[a];
+                    if(y == x || contracted[y])
+                        continue;
+
+                    double d = dist[w] + arcWeight[a];
+                    if(d > limit)
+                        continue;
+                    if(stamp[y] != epoch || d < dist[y]) {
+                        stamp[y] = epoch;
+                        dist[y] = d;
+                        heap.insertOrDecrease(y, d);
+                    }
+                }
+            }
+            heap.clear();
+        }
+    }
+}
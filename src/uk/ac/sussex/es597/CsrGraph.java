@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Immutable compressed sparse row (CSR) copy of a Graph, built with Graph.freeze().
+ * The neighbours of Station i are targets[offsets[i]] to targets[offsets[i+1]-1], and edgeIds holds the Line used for each of them.
+ * Stations and Lines are identified by their slot in the Graph at the time of the freeze, so traversals only touch int arrays.
+ * Later changes to the Graph are not reflected here, freeze it again to pick them up.
+ * @author Edoardo Sanguineti
+ */
+public final class CsrGraph {
+    final int[] offsets; //Read directly by ParallelBfs and GraphFile
+    final int[] targets;
+    final int[] edgeIds;
+    private final Vertex[] vertexAt;
+    private final Edge[] edgeAt;
+    private final int[] idByKey; //Vertex.key to id, so ids stay valid after the Graph moves its Stations around. Keys are reused, idOf checks the Station
+
+    CsrGraph(Graph g) {
+        ArrayList<Vertex> vertices = g.vertices();
+        ArrayList<Edge> edges = g.edges();
+        int n = vertices.size();
+
+        vertexAt = vertices.toArray(new Vertex[n]);
+        edgeAt = edges.toArray(new Edge[edges.size()]);
+        offsets = new int[n + 1];
+
+        int maxKey = -1;
+        for(Vertex v : vertexAt)
+            maxKey = Math.max(maxKey, v.key);
+        idByKey = new int[maxKey + 1];
+        Arrays.fill(idByKey, -1);
+        for(int i = 0; i < n; i++)
+            idByKey[vertexAt[i].key] = i;
+
+        //First pass counts the usable incidences of every Station, second pass fills them in
+        for(int i = 0; i < n; i++)
+            offsets[i + 1] = offsets[i] + countIncidences(g, vertexAt[i]);
+
+        targets = new int[offsets[n]];
+        edgeIds = new int[offsets[n]];
+
+        for(int i = 0; i < n; i++) {
+            int pos = offsets[i];
+            for(Edge e : vertexAt[i].getIncidenceColl()) {
+                Vertex w = g.across(e, vertexAt[i]);
+                if(w != null) {
+                    targets[pos] = w.index;
+                    edgeIds[pos] = e.index;
+                    pos++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Only Lines that are still in the graph and lead to a Station of the graph are kept
+     */
+    private static int countIncidences(Graph g, Vertex v) {
+        int count = 0;
+        for(Edge e : v.getIncidenceColl()) {
+            if(g.across(e, v) != null)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of Stations in the snapshot
+     * @return int Vertices
+     */
+    public int numVertices() {
+        return vertexAt.length;
+    }
+
+    /**
+     * Returns the number of Lines in the snapshot
+     * @return int Edges
+     */
+    public int numEdges() {
+        return edgeAt.length;
+    }
+
+    /**
+     * Returns the id of a Station in this snapshot, or -1 if it was not in the graph when it was frozen
+     * @param v Vertex
+     * @return int id or -1
+     */
+    public int idOf(Vertex v) {
+        if(v == null || v.key < 0 || v.key >= idByKey.length)
+            return -1;
+        int id = idByKey[v.key];
+        return id >= 0 && vertexAt[id] == v ? id : -1;
+    }
+
+    /**
+     * Returns the Station with the given id
+     * @param id int
+     * @return Vertex
+     */
+    public Vertex vertex(int id) {
+        return vertexAt[id];
+    }
+
+    /**
+     * Returns the Line with the given id
+     * @param id int
+     * @return Edge
+     */
+    public Edge edge(int id) {
+        return edgeAt[id];
+    }
+
+    /**
+     * Returns the number of Lines leaving the given Station
+     * @param v int id
+     * @return int degree
+     */
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Returns the i-th neighbour of a Station
+     * @param v int id
+     * @param i position, between 0 and degree(v) - 1
+     * @return int id of the neighbour
+     */
+    public int neighbour(int v, int i) {
+        return targets[offsets[v] + i];
+    }
+
+    /**
+     * Returns the Line used to reach the i-th neighbour of a Station
+     * @param v int id
+     * @param i position, between 0 and degree(v) - 1
+     * @return int id of the Line
+     */
+    public int neighbourEdge(int v, int i) {
+        return edgeIds[offsets[v] + i];
+    }
+
+    /**
+     * Breadth-first traversal from a Station. The array doubles up as the queue, so nothing else is allocated apart from the visited flags
+     * @param source int id
+     * @return the ids of the reachable Stations in visit order, source included
+     */
+    public int[] bfTraverse(int source) {
+        int[] queue = new int[vertexAt.length];
+        boolean[] visited = new boolean[vertexAt.length];
+        int count = bfs(source, queue, visited);
+
+        int[] order = new int[count];
+        System.arraycopy(queue, 0, order, 0, count);
+        return order;
+    }
+
+    /**
+     * Hop distance from a Station to every other Station
+     * @param source int id
+     * @return array indexed by id, -1 where the Station cannot be reached
+     */
+    public int[] distances(int source) {
+        int[] dist = new int[vertexAt.length];
+        Arrays.fill(dist, -1);
+        int[] queue = new int[vertexAt.length];
+        int head = 0, tail = 0;
+
+        dist[source] = 0;
+        queue[tail++] = source;
+
+        while(head < tail) {
+            int w = queue[head++];
+            for(int i = offsets[w]; i < offsets[w + 1]; i++) {
+                int t = targets[i];
+                if(dist[t] < 0) {
+                    dist[t] = dist[w] + 1;
+                    queue[tail++] = t;
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Counts the Stations that can be reached from the given one, itself included
+     * @param source int id
+     * @return int count
+     */
+    public int countReachable(int source) {
+        return bfs(source, new int[vertexAt.length], new boolean[vertexAt.length]);
+    }
+
+    /**
+     * Returns true if all the Stations are connected, false if otherwise (or if there are no Stations, like Graph.allConnected)
+     * @return Boolean connected
+     */
+    public boolean allConnected() {
+        if(vertexAt.length == 0)
+            return false;
+        return countReachable(0) == vertexAt.length;
+    }
+
+    private int bfs(int source, int[] queue, boolean[] visited) {
+        int head = 0, tail = 0;
+
+        visited[source] = true;
+        queue[tail++] = source;
+
+        while(head < tail) {
+            int w = queue[head++];
+            for(int i = offsets[w]; i < offsets[w + 1]; i++) {
+                int t = targets[i];
+                if(!visited[t]) {
+                    visited[t] = true;
+                    queue[tail++] = t;
+                }
+            }
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Growable block of memory outside the Java heap, made of 1 MB direct ByteBuffers so that growing never copies and
+ * more than 2 GB can be addressed. Offsets are in bytes; ints must be 4-byte aligned so they never straddle two buffers.
+ * The buffers are freed when the arena is garbage collected, the heap itself only holds the array of buffers.
+ * @author Edoardo Sanguineti
+ */
+final class DirectArena {
+    static final int CHUNK_BITS = 20;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK - 1;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int used;
+    private long capacity;
+
+    /**
+     * Makes sure offsets up to bytes - 1 can be used. New memory reads as zeroes
+     */
+    void ensure(long bytes) {
+        while(capacity < bytes) {
+            if(used == chunks.length) {
+                ByteBuffer[] grown = new ByteBuffer[Math.max(4, used * 2)];
+                System.arraycopy(chunks, 0, grown, 0, used);
+                chunks = grown;
+            }
+            chunks[used++] = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.nativeOrder());
+            capacity += CHUNK;
+        }
+    }
+
+    int getInt(long at) {
+        return chunks[(int) (at >>> CHUNK_BITS)].getInt((int) at & MASK);
+    }
+
+    void putInt(long at, int value) {
+        chunks[(int) (at >>> CHUNK_BITS)].putInt((int) at & MASK, value);
+    }
+
+    long getLong(long at) { //8-byte aligned
+        return chunks[(int) (at >>> CHUNK_BITS)].getLong((int) at & MASK);
+    }
+
+    void putLong(long at, long value) {
+        chunks[(int) (at >>> CHUNK_BITS)].putLong((int) at & MASK, value);
+    }
+
+    void get(long at, byte[] dst, int len) {
+        for(int i = 0; i < len; i++, at++)
+            dst[i] = chunks[(int) (at >>> CHUNK_BITS)].get((int) at & MASK);
+    }
+
+    void put(long at, byte[] src, int len) {
+        for(int i = 0; i < len; i++, at++)
+            chunks[(int) (at >>> CHUNK_BITS)].put((int) at & MASK, src[i]);
+    }
+
+    /**
+     * Copies len ints (4-byte aligned offsets) within the arena, the two ranges must not overlap
+     */
+    void copyInts(long from, long to, int len) {
+        for(int i = 0; i < len; i++)
+            putInt(to + 4L * i, getInt(from + 4L * i));
+    }
+
+    /**
+     * Returns the direct memory taken, in bytes
+     */
+    long capacity() {
+        return capacity;
+    }
+}
@@ -24,6 +24,10 @@ package uk.ac.sussex.es597;
 public class Edge {
 	private String name;
 	private Vertex endPointA,endPointB;
+	int index = -1; //Slot in the owning Graph's edge list, -1 when the Edge is not in a Graph
+	int key = -1; //Given by the Graph when the Edge is added and never changed, unlike index. Reused for a new Edge after a removal
+	Edge nextParallel; //Next Line between the same two Stations in the Graph's EdgeIndex
+	int slotA = -1, slotB = -1; //Position in the incidence list of each end point, -1 when not registered there
     
 	public Edge(String name) {
 		this.name = name;
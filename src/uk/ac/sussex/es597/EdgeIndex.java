@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+/**
+ * Open-addressing hash map from an unordered pair of Stations to the Lines joining them, used by areAdjacent and getEdge.
+ * The pair is packed into a long from the Stations' keys (smaller key in the high half), so lookups don't create any objects.
+ * Each slot holds the first Line between the pair and the others follow through Edge.nextParallel.
+ * Linear probing, with removals shifting the following entries back instead of leaving tombstones
+ * @author Edoardo Sanguineti
+ */
+final class EdgeIndex {
+    private long[] keys;
+    private Edge[] heads; //null marks an empty slot
+    private int size;
+
+    /**
+     * @param expected Number of Lines it should hold without growing
+     */
+    EdgeIndex(int expected) {
+        keys = new long[capacityFor(expected)];
+        heads = new Edge[keys.length];
+    }
+
+    /**
+     * Grows the table once so that it can hold the expected number of pairs without resizing again
+     */
+    void reserve(int expected) {
+        int capacity = capacityFor(expected);
+        if(capacity > keys.length)
+            rehash(capacity);
+    }
+
+    private static int capacityFor(int expected) {
+        int capacity = 16;
+        while(capacity >>> 1 < expected)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * Packs two Station keys, the order of the Stations does not matter
+     */
+    static long pair(int a, int b) {
+        return a <= b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * Returns one of the Lines between the pair, or null
+     */
+    Edge get(long key) {
+        int mask = keys.length - 1;
+        for(int i = hash(key) & mask; heads[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key)
+                return heads[i];
+        }
+        return null;
+    }
+
+    /**
+     * Adds count Lines at once. They are put in order of their home slot (bucket sort on its top bits),
+     * so the probing walks through the table once instead of jumping to a random slot for every Line
+     */
+    void addAll(Edge[] lines, long[] pairs, int count) {
+        reserve(size + count);
+        int mask = keys.length - 1;
+        int shift = Math.max(0, Integer.numberOfTrailingZeros(keys.length) - 16);
+        int buckets = (mask >>> shift) + 1;
+
+        int[] start = new int[buckets + 1];
+        for(int i = 0; i < count; i++)
+            start[((hash(pairs[i]) & mask) >>> shift) + 1]++;
+        for(int b = 0; b < buckets; b++)
+            start[b + 1] += start[b];
+        int[] order = new int[count];
+        for(int i = 0; i < count; i++)
+            order[start[(hash(pairs[i]) & mask) >>> shift]++] = i;
+
+        for(int i = 0; i < count; i++)
+            add(pairs[order[i]], lines[order[i]]);
+    }
+
+    void add(long key, Edge e) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for(; heads[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key) { //Another Line between the same Stations
+                e.nextParallel = heads[i];
+                heads[i] = e;
+                return;
+            }
+        }
+
+        e.nextParallel = null;
+        keys[i] = key;
+        heads[i] = e;
+        if(++size > keys.length >>> 1)
+            resize();
+    }
+
+    void remove(long key, Edge e) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while(heads[i] != null && keys[i] != key)
+            i = (i + 1) & mask;
+        if(heads[i] == null)
+            return;
+
+        if(heads[i] == e) {
+            heads[i] = e.nextParallel;
+        } else {
+            Edge prev = heads[i];
+            while(prev.nextParallel != null && prev.nextParallel != e)
+                prev = prev.nextParallel;
+            if(prev.nextParallel == e)
+                prev.nextParallel = e.nextParallel;
+        }
+        e.nextParallel = null;
+
+        if(heads[i] == null) {
+            size--;
+            shiftBack(i);
+        }
+    }
+
+    /**
+     * Fills the slot just emptied with any later entry of the same probe run that is allowed to sit there
+     */
+    private void shiftBack(int hole) {
+        int mask = keys.length - 1;
+        for(int i = (hole + 1) & mask; heads[i] != null; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            //The entry can move into the hole unless its home slot lies (cyclically) after the hole
+            if(((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                heads[hole] = heads[i];
+                heads[i] = null;
+                hole = i;
+            }
+        }
+    }
+
+    private void resize() {
+        rehash(keys.length * 2);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Edge[] oldHeads = heads;
+        keys = new long[capacity];
+        heads = new Edge[capacity];
+
+        int mask = keys.length - 1;
+        for(int j = 0; j < oldKeys.length; j++) {
+            if(oldHeads[j] == null)
+                continue;
+            int i = hash(oldKeys[j]) & mask;
+            while(heads[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            heads[i] = oldHeads[j];
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
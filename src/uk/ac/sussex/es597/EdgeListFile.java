@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Plain text edge lists (CSV, TSV...), one Line per text line:
+ * <pre>
+ * Station A,Station B[,Line name[,weight]]
+ * Station
+ * </pre>
+ * A text line with a single field is a Station with no Lines. Empty lines and lines starting with # are skipped,
+ * an empty Line name is read as null and a missing weight as Graph.DEFAULT_WEIGHT.
+ * Stations are told apart by name only, so two Stations with the same name are merged on the way back in.
+ * There is no quoting, names cannot contain the separator or a line break.
+ * Both directions stream through a fixed size buffer, so the text file can be much larger than the heap.
+ * Reading loads the Lines into the Graph in batches, so only one batch of parsed Lines is held at a time; Stations and Lines come
+ * out of vertices() and edges() in the order of the file.
+ * @author Edoardo Sanguineti
+ */
+public final class EdgeListFile {
+    static final int BUFFER_BYTES = 1 << 20;
+    static final int BATCH = 1 << 16; //Lines parsed before inserting them and reporting progress
+    private static final double[] POWERS_OF_TEN = new double[23]; //All exact as doubles
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for(int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private EdgeListFile() {
+    }
+
+    /**
+     * Builds a Graph out of an edge list
+     * @param path File, UTF-8
+     * @param separator Field separator, for example ',' or '\t'
+     * @param progress Told the number of text lines read so far after every batch, can be null
+     * @return the new Graph
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static Graph read(Path path, char separator, LongConsumer progress) throws IOException {
+        checkSeparator(separator);
+        Loader loader = new Loader((byte) separator, progress);
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] buf = new byte[BUFFER_BYTES];
+            ByteBuffer wrapped = ByteBuffer.wrap(buf);
+
+            while(true) {
+                int read = channel.read(wrapped);
+                int end = wrapped.position();
+                int pos = 0;
+
+                for(int nl; (nl = indexOf(buf, (byte) '\n', pos, end)) >= 0; pos = nl + 1)
+                    loader.line(buf, pos, nl);
+
+                if(read < 0) {
+                    if(pos < end)
+                        loader.line(buf, pos, end); //No line break at the end of the file
+                    break;
+                }
+
+                //Keep the partial line, growing the buffer only if a single line does not fit
+                int left = end - pos;
+                if(left == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    wrapped = ByteBuffer.wrap(buf);
+                } else
+                    System.arraycopy(buf, pos, buf, 0, left);
+                wrapped.position(left);
+            }
+        }
+        return loader.finish();
+    }
+
+    /**
+     * Writes every Line of the graph, then every Station that has none
+     * @param g Graph
+     * @param path File, replaced if it exists
+     * @param separator Field separator, for example ',' or '\t'
+     * @throws IOException if the file cannot be written or a name cannot be represented
+     */
+    public static void write(Graph g, Path path, char separator) throws IOException {
+        checkSeparator(separator);
+        ArrayList<Vertex> vertices = g.vertices();
+        ArrayList<Edge> edges = g.edges();
+        boolean[] written = new boolean[vertices.size()];
+
+        try(Printer out = new Printer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), (byte) separator)) {
+            for(Edge e : edges) {
+                Vertex a = e.getEndPointA(), b = e.getEndPointB();
+                if(!g.contains(a) || !g.contains(b))
+                    continue;
+
+                out.name(a.getElement(), false);
+                out.separator();
+                out.name(b.getElement(), false);
+                out.separator();
+                out.name(e.getElement(), true);
+                out.separator();
+                out.weight(g.getWeight(e));
+                out.newLine();
+                written[a.index] = true;
+                written[b.index] = true;
+            }
+            for(Vertex v : vertices) {
+                if(!written[v.index]) {
+                    out.name(v.getElement(), false);
+                    out.newLine();
+                }
+            }
+        }
+    }
+
+    private static void checkSeparator(char separator) {
+        if(separator == '\n' || separator == '\r' || separator == '#' || separator >= 0x80)
+            throw new IllegalArgumentException("Unusable separator: " + (int) separator);
+    }
+
+    private static int indexOf(byte[] buf, byte b, int from, int to) {
+        for(int i = from; i < to; i++) {
+            if(buf[i] == b)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses text lines into batches of Lines and loads each batch into the Graph once it is full (Graph.load).
+     * Stations are inserted as soon as they are first seen
+     */
+    private static final class Loader {
+        private final byte separator;
+        private final LongConsumer progress;
+        private final Graph graph = new Graph(new ArrayList<>(), new ArrayList<>());
+        private final NameTable stations = new NameTable(); //Id = slot in the Graph
+        private final NameTable lineNames = new NameTable(); //Only there so that repeated names share one String
+        private final int[] from = new int[BATCH], to = new int[BATCH];
+        private final String[] names = new String[BATCH];
+        private final double[] weights = new double[BATCH];
+        //Stations of the current batch: touched[i] has id batchIds[i], and Station id is touched[local[id]] if that matches
+        private final Vertex[] touched = new Vertex[2 * BATCH];
+        private final int[] batchIds = new int[2 * BATCH];
+        private int[] local = new int[1 << 12];
+        private final int[] fieldStart = new int[4], fieldEnd = new int[4];
+        private int pending, numTouched;
+        private long lineNumber;
+
+        Loader(byte separator, LongConsumer progress) {
+            this.separator = separator;
+            this.progress = progress;
+        }
+
+        void line(byte[] buf, int start, int end) throws IOException {
+            lineNumber++;
+            if(end > start && buf[end - 1] == '\r')
+                end--;
+            if(start == end || buf[start] == '#')
+                return;
+
+            int fields = 0;
+            for(int pos = start; ; ) {
+                int sep = indexOf(buf, separator, pos, end);
+                if(fields == 4)
+                    throw new IOException("Line " + lineNumber + ": more than 4 fields");
+                fieldStart[fields] = pos;
+                fieldEnd[fields++] = sep < 0 ? end : sep;
+                if(sep < 0)
+                    break;
+                pos = sep + 1;
+            }
+
+            int a = station(buf, 0);
+            if(fields == 1)
+                return;
+
+            from[pending] = local(a);
+            to[pending] = local(station(buf, 1));
+            names[pending] = fields > 2 && fieldEnd[2] > fieldStart[2] ? lineNames.name(intern(lineNames, buf, 2)) : null;
+            weights[pending] = fields > 3 ? weight(buf, 3) : Graph.DEFAULT_WEIGHT;
+            if(++pending == BATCH)
+                flush();
+        }
+
+        Graph finish() {
+            flush();
+            return graph;
+        }
+
+        private void flush() {
+            graph.load(touched, numTouched, from, to, graph.internAll(names, pending), weights, pending);
+            Arrays.fill(names, 0, pending, null);
+            Arrays.fill(touched, 0, numTouched, null);
+            pending = 0;
+            numTouched = 0;
+            if(progress != null)
+                progress.accept(lineNumber);
+        }
+
+        /**
+         * Number of a Station within the current batch, given the first time the batch meets it
+         */
+        private int local(int id) {
+            int i = local[id];
+            if(i < numTouched && batchIds[i] == id)
+                return i;
+
+            local[id] = numTouched;
+            batchIds[numTouched] = id;
+            touched[numTouched] = graph.vertices().get(id);
+            return numTouched++;
+        }
+
+        private int station(byte[] buf, int field) throws IOException {
+            if(fieldEnd[field] == fieldStart[field])
+                throw new IOException("Line " + lineNumber + ": empty Station name");
+
+            int id = intern(stations, buf, field);
+            if(id == graph.numVertices()) {
+                graph.insertVertex(stations.name(id));
+                if(id == local.length)
+                    local = Arrays.copyOf(local, id * 2);
+            }
+            return id;
+        }
+
+        private int intern(NameTable table, byte[] buf, int field) {
+            return table.intern(buf, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+        }
+
+        private String text(byte[] buf, int field) {
+            return new String(buf, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Plain decimals such as 12 or 3.25 are converted directly, anything else goes through Double.parseDouble.
+         * The direct path only divides two exact doubles, so it rounds exactly like parseDouble
+         */
+        private double weight(byte[] buf, int field) throws IOException {
+            int start = fieldStart[field], end = fieldEnd[field];
+            long digits = 0;
+            int decimals = -1;
+
+            for(int i = start; i < end; i++) {
+                byte c = buf[i];
+                if(c >= '0' && c <= '9' && digits < (1L << 53) / 10) {
+                    digits = digits * 10 + (c - '0');
+                    if(decimals >= 0)
+                        decimals++;
+                } else if(c == '.' && decimals < 0)
+                    decimals = 0;
+                else
+                    return parseWeight(buf, field);
+            }
+            if(end - start == (decimals >= 0 ? 1 : 0) || decimals > 22) //No digits at all, or too many decimals to be exact
+                return parseWeight(buf, field);
+            return decimals <= 0 ? digits : digits / POWERS_OF_TEN[decimals];
+        }
+
+        private double parseWeight(byte[] buf, int field) throws IOException {
+            double w;
+            try {
+                w = Double.parseDouble(text(buf, field));
+            } catch(NumberFormatException ex) {
+                throw new IOException("Line " + lineNumber + ": bad weight " + text(buf, field));
+            }
+            if(!(w >= 0) || Double.isInfinite(w))
+                throw new IOException("Line " + lineNumber + ": weights must be finite and non-negative, not " + text(buf, field));
+            return w;
+        }
+    }
+
+    /**
+     * Encodes straight into a heap buffer and hands it to the channel whenever it is full
+     */
+    private static final class Printer implements AutoCloseable {
+        private final FileChannel channel;
+        private final byte separator;
+        private final byte[] buf = new byte[BUFFER_BYTES];
+        private int size;
+
+        Printer(FileChannel channel, byte separator) {
+            this.channel = channel;
+            this.separator = separator;
+        }
+
+        /**
+         * ASCII names are copied char by char, anything else is encoded as a whole
+         */
+        void name(String name, boolean nullable) throws IOException {
+            if(name == null) {
+                if(nullable)
+                    return;
+                throw new IOException("A Station without a name cannot be written to an edge list");
+            }
+
+            if(name.length() > buf.length) {
+                bytes(name.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            room(name.length());
+            for(int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if(c >= 0x80) {
+                    size -= i;
+                    bytes(name.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                if(c == separator || c == '\n' || c == '\r')
+                    throw new IOException("Name cannot be written to an edge list: " + name);
+                buf[size++] = (byte) c;
+            }
+        }
+
+        /**
+         * Whole numbers are written without a decimal point, the common case for hop counts and minutes
+         */
+        void weight(double w) throws IOException {
+            if(w == (long) w && w < 1e15) {
+                long x = (long) w;
+                room(16);
+                int end = size + 1;
+                for(long y = x / 10; y > 0; y /= 10)
+                    end++;
+                for(int i = end - 1; i >= size; i--, x /= 10)
+                    buf[i] = (byte) ('0' + x % 10);
+                size = end;
+            } else
+                bytes(Double.toString(w).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        void separator() throws IOException {
+            room(1);
+            buf[size++] = separator;
+        }
+
+        void newLine() throws IOException {
+            room(1);
+            buf[size++] = '\n';
+        }
+
+        private void bytes(byte[] b) throws IOException {
+            for(byte x : b) {
+                if(x == separator || x == '\n' || x == '\r')
+                    throw new IOException("Name cannot be written to an edge list: " + new String(b, StandardCharsets.UTF_8));
+            }
+            for(int pos = 0; pos < b.length; ) {
+                int n = Math.min(b.length - pos, room(1));
+                System.arraycopy(b, pos, buf, size, n);
+                size += n;
+                pos += n;
+            }
+        }
+
+        /**
+         * Makes room for up to n more bytes (at most the whole buffer)
+         * @return the room left
+         */
+        private int room(int n) throws IOException {
+            if(buf.length - size < Math.min(n, buf.length))
+                flush();
+            return buf.length - size;
+        }
+
+        private void flush() throws IOException {
+            ByteBuffer b = ByteBuffer.wrap(buf, 0, size);
+            while(b.hasRemaining())
+                channel.write(b);
+            size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -16,61 +16,413 @@
  */
 package uk.ac.sussex.es597;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import uk.ac.sussex.es597.GraphMetrics.Operation;
 
 /**
  * Undirected graph, adjacency list structure 
+ * Every Vertex and Edge remembers its slot in the vertices/edges lists, so membership checks are a single lookup 
+ * and removals move the last element into the freed slot instead of shifting the whole list.
+ * Because of that the order of vertices() and edges() changes after a removal.
+ * The graph keeps the incidence lists of its Stations up to date, and every Line knows its position in both of them.
+ * Names go through the SymbolTable of the graph, so Stations and Lines with the same name share one String.
  * @author Edoardo Sanguineti
  *
  */
 public class Graph implements GraphADT {
+	/**
+	 * Weight given to Lines inserted without one, so that weighted routes count hops unless told otherwise
+	 */
+	public static final double DEFAULT_WEIGHT = 1.0;
+	
 	private ArrayList<Vertex> vertices;
 	private ArrayList<Edge> edges;
+	private double[] weights; //Weight of every Line, indexed by its slot in edges
+	private final EdgeIndex adjacency; //Lines by pair of Stations
+	private final SymbolTable symbols = new SymbolTable();
+	private final KeyPool vertexKeys = new KeyPool("Station"), edgeKeys = new KeyPool("Line"); //Keys of removed ones are reused
+	private VersionedAdjacency versions; //Only kept once a snapshot has been asked for
+	private NameIndex<Vertex> vertexNames; //Only kept once a lookup by name has been asked for
+	private NameIndex<Edge> edgeNames;
+	private IntAdjacency ints; //Only kept once one of the int methods has been used
+	private volatile NeighbourhoodCache neighbourhoods; //Only kept once a neighbourhood has been asked for
+	private final BfsEngine bfs;
+	private volatile GraphMetrics metrics; //Null unless someone is watching the traversals
+	private final Traverser traverser;
+	private final Router router;
+	private final Components components;
+	int modCount; //Bumped by every structural change, views over slots use it to detect that they went stale
 	
 	public Graph(ArrayList<Vertex> vertices, ArrayList<Edge> edges) {
 		this.vertices = vertices;
 		this.edges= edges;
+		this.adjacency = new EdgeIndex(edges.size());
+		this.bfs = new BfsEngine(this);
+		this.traverser = new Traverser(this, bfs);
+		this.router = new Router(this);
+		this.components = new Components(this); //Built on the first query
+		
+		for(int i = 0; i < vertices.size(); i++) {
+			vertices.get(i).index = i;
+			vertices.get(i).key = vertexKeys.take();
+			vertices.get(i).setElement(symbols.intern(vertices.get(i).getElement()));
+			vertices.get(i).indexIncidence(); //Lists may have been filled in by hand
+		}
+		for(int i = 0; i < edges.size(); i++) {
+			edges.get(i).index = i;
+			edges.get(i).key = edgeKeys.take();
+			edges.get(i).setElement(symbols.intern(edges.get(i).getElement()));
+			indexEdge(edges.get(i));
+			attach(edges.get(i));
+		}
+		
+		weights = new double[Math.max(16, edges.size())];
+		Arrays.fill(weights, DEFAULT_WEIGHT);
+	}
+	
+	/**
+	 * Makes room for this many Stations and Lines in total, so that adding them does not grow any array on the way.
+	 * Arrays grow at least twofold, so reserving a little more for every batch of a load stays linear
+	 */
+	void reserve(int numVertices, int numEdges) {
+		vertices.ensureCapacity(numVertices);
+		edges.ensureCapacity(numEdges);
+		if(weights.length < numEdges)
+			weights = Arrays.copyOf(weights, Math.max(numEdges, weights.length * 2));
+		if(ints != null)
+			ints.reserve(numVertices);
+		adjacency.reserve(numEdges);
+	}
+	
+	/**
+	 * Interns the names of Stations or Lines about to be loaded, looking each run of equal names up only once
+	 */
+	String[] internAll(String[] names, int count) {
+		String[] interned = new String[count];
+		for(int i = 0; i < count; ) {
+			String name = names[i];
+			int j = i + 1;
+			while(j < count && (names[j] == name || (name != null && name.equals(names[j]))))
+				j++;
+			Arrays.fill(interned, i, j, symbols.intern(name, j - i));
+			i = j;
+		}
+		return interned;
+	}
+	
+	/**
+	 * Adds Stations in bulk, for GraphBuilder. Names must come from internAll; degree[v] is the number of incidences Station v is
+	 * going to get (a self-loop counts once), so that its incidence list is created at the right size.
+	 * Like load, only for a graph that has no name, int, snapshot or neighbourhood structures yet
+	 * @return the new Stations, in order
+	 */
+	Vertex[] loadVertices(String[] names, int[] degree, int n) {
+		vertices.ensureCapacity(vertices.size() + n);
+		Vertex[] added = new Vertex[n];
+		for(int v = 0; v < n; v++) {
+			Vertex x = new Vertex(names[v], degree[v]);
+			x.index = vertices.size();
+			x.key = vertexKeys.take();
+			vertices.add(x);
+			added[v] = x;
+		}
+		components.invalidate();
+		modCount++;
+		return added;
+	}
+	
+	/**
+	 * Appends a batch of Lines between Stations already in the graph, for GraphBuilder and EdgeListFile. Line k joins
+	 * stations[from[k]] and stations[to[k]], names must come from internAll, and the Lines come out of edges() and the incidence
+	 * lists in the order given, as if they had been inserted one by one.
+	 * The lists are filled directly instead of going through insertEdge, visiting every Station of the batch once: the Lines
+	 * are created first, with their position among the Lines of the batch at each end point (counting sort by Station), then
+	 * every Station makes room once and takes all its Lines, shifting their positions past the Lines it already had.
+	 * The adjacency index is filled in one go, and the connected components are worked out again on the next query.
+	 * Only for a graph that has no name, int, snapshot or neighbourhood structures yet, which load does not keep up to date
+	 */
+	void load(Vertex[] stations, int t, int[] from, int[] to, String[] edgeNames, double[] lineWeights, int m) {
+		int first = edges.size();
+		reserve(vertices.size(), first + m);
+		
+		int[] start = new int[t + 1];
+		for(int k = 0; k < m; k++) {
+			start[from[k] + 1]++;
+			if(to[k] != from[k]) //A self-loop is only listed once
+				start[to[k] + 1]++;
+		}
+		for(int v = 0; v < t; v++)
+			start[v + 1] += start[v];
+		
+		Edge[] lines = new Edge[m];
+		int[] listed = new int[start[t]]; //Lines of each Station, in order
+		int[] next = Arrays.copyOf(start, t);
+		for(int k = 0; k < m; k++) {
+			int a = from[k], b = to[k];
+			Edge e = new Edge(edgeNames[k]);
+			e.setEndpoints(stations[a], stations[b]);
+			e.index = first + k;
+			e.key = edgeKeys.take();
+			e.slotA = next[a] - start[a];
+			listed[next[a]++] = k;
+			if(b != a) {
+				e.slotB = next[b] - start[b];
+				listed[next[b]++] = k;
+			} else
+				e.slotB = -1;
+			edges.add(e);
+			lines[k] = e;
+		}
+		
+		int[] keys = new int[t];
+		for(int v = 0; v < t; v++) {
+			Vertex x = stations[v];
+			keys[v] = x.key;
+			int had = x.reserveIncidence(start[v + 1] - start[v]);
+			for(int i = start[v]; i < start[v + 1]; i++) {
+				Edge e = lines[listed[i]];
+				if(had > 0) { //Only Stations that already had Lines need the Lines of the batch moved along
+					if(e.getEndPointA() == x)
+						e.slotA += had;
+					else
+						e.slotB += had;
+				}
+				x.appendIncidence(e);
+			}
+		}
+		
+		long[] pairs = new long[m];
+		for(int k = 0; k < m; k++)
+			pairs[k] = EdgeIndex.pair(keys[from[k]], keys[to[k]]);
+		System.arraycopy(lineWeights, 0, weights, first, m);
+		adjacency.addAll(lines, pairs, m);
+		components.invalidate();
+		modCount++;
 	}
 
 	@Override
 	public Vertex insertVertex(String n) {
-		Vertex v = new Vertex(n);
+		return append(new Vertex(symbols.intern(n)));
+	}
+	
+	private Vertex append(Vertex v) {
+		v.index = vertices.size();
+		v.key = vertexKeys.take();
 		vertices.add(v);
+		components.vertexAdded();
+		if(ints != null)
+			ints.addVertex();
+		if(vertexNames != null)
+			vertexNames.add(v.getElement(), v);
+		if(versions != null)
+			versions.addVertex(v);
+		modCount++;
 		return v;
 	}
 
 	@Override
 	public String removeVertex(Vertex v) {
-		if(!vertices.contains(v))
+		if(!contains(v))
 		    return null;
+		if(neighbourhoods != null)
+			neighbourhoods.vertexRemoved(v);
 		
-		vertices.remove(v);
+		//Lines stopping at v go with it, each removal takes the last one off v's list
+		ArrayList<Edge> incident = v.getIncidenceColl();
+		while(!incident.isEmpty()) {
+			int end = incident.size() - 1;
+			removeEdge(incident.get(end));
+			if(incident.size() > end) //Not a Line of this graph
+				incident.remove(end);
+		}
+		
+		Vertex last = vertices.remove(vertices.size() - 1);
+		if(last != v) { //Fill the hole with the last Vertex
+			vertices.set(v.index, last);
+			last.index = v.index;
+		}
+		v.index = -1;
+		if(ints != null)
+			ints.removeVertex(this, last == v ? null : last);
+		components.invalidate();
+		if(vertexNames != null)
+			vertexNames.remove(v.getElement(), v);
+		symbols.release(v.getElement());
+		if(versions != null)
+			versions.removeVertex(v);
+		vertexKeys.release(v.key); //v keeps its key for the snapshots that still have it
+		modCount++;
 		return v.getElement();
 	}
 
 	@Override
 	public Edge insertEdge(Vertex v, Vertex w, String n) {
-		Edge e = new Edge(n);
+		return insertEdge(v, w, n, DEFAULT_WEIGHT);
+	}
+	
+	/**
+	 * Same as insertEdge, for a Line with a travel time or distance used by shortestRoute
+	 * @param v Vertex
+	 * @param w Vertex
+	 * @param n Name
+	 * @param weight Non-negative weight
+	 * @return the new Edge
+	 */
+	public Edge insertEdge(Vertex v, Vertex w, String n, double weight) {
+		checkWeight(weight);
+		Edge e = new Edge(symbols.intern(n));
 		e.setEndpoints(v, w);
 		
+		e.index = edges.size();
+		e.key = edgeKeys.take();
 		edges.add(e);
+		if(e.index == weights.length)
+			weights = Arrays.copyOf(weights, weights.length * 2);
+		weights[e.index] = weight;
+		indexEdge(e);
+		attach(e);
+		if(ints != null) {
+			ints.sync(this, v);
+			ints.sync(this, w);
+		}
+		components.edgeAdded(e);
+		if(neighbourhoods != null)
+			neighbourhoods.edgeChanged(v, w);
+		if(edgeNames != null)
+			edgeNames.add(e.getElement(), e);
+		if(versions != null)
+			versions.addEdge(e);
+		modCount++;
 		return e;
 	}
 
 	@Override
 	public String removeEdge(Edge e) {
-		if(!edges.contains(e))
+		if(!contains(e))
 		    return null;
 		
-		edges.remove(e);
+		unindexEdge(e);
+		detach(e);
+		components.invalidate();
+		if(neighbourhoods != null)
+			neighbourhoods.edgeChanged(e.getEndPointA(), e.getEndPointB());
+		if(edgeNames != null)
+			edgeNames.remove(e.getElement(), e);
+		symbols.release(e.getElement());
+		Edge last = edges.remove(edges.size() - 1);
+		if(last != e) { //Same trick as removeVertex, the weight moves along with the Line
+			edges.set(e.index, last);
+			weights[e.index] = weights[last.index];
+			last.index = e.index;
+		}
+		e.index = -1;
+		edgeKeys.release(e.key);
+		modCount++;
 		return e.getElement();
 	}
+	
+	/**
+	 * Adds a Line to the adjacency index, unless one of its end points is not in the graph:
+	 * the key of a Station that has been removed may already belong to another one
+	 */
+	private void indexEdge(Edge e) {
+		Vertex a = e.getEndPointA(), b = e.getEndPointB();
+		if(contains(a) && contains(b))
+			adjacency.add(EdgeIndex.pair(a.key, b.key), e);
+	}
+	
+	private void unindexEdge(Edge e) {
+		Vertex a = e.getEndPointA(), b = e.getEndPointB();
+		if(a != null && b != null && a.key >= 0 && b.key >= 0)
+			adjacency.remove(EdgeIndex.pair(a.key, b.key), e);
+	}
+	
+	/**
+	 * Registers a Line with the incidence lists of its end points
+	 */
+	private static void attach(Edge e) {
+		if(e.getEndPointA() != null)
+			e.getEndPointA().addIncidenceEdge(e);
+		if(e.getEndPointB() != null)
+			e.getEndPointB().addIncidenceEdge(e);
+	}
+	
+	private void detach(Edge e) {
+		int slotA = e.getEndPointA() == null ? -1 : e.getEndPointA().removeIncidenceEdge(e);
+		int slotB = e.getEndPointB() == null ? -1 : e.getEndPointB().removeIncidenceEdge(e);
+		if(versions != null)
+			versions.removeEdge(e, slotA, slotB);
+		if(ints != null) {
+			ints.removeIncidence(contains(e.getEndPointA()) ? e.getEndPointA().index : -1, slotA);
+			ints.removeIncidence(contains(e.getEndPointB()) ? e.getEndPointB().index : -1, slotB);
+		}
+	}
+	
+	/**
+	 * Returns the weight of a Line, or NaN if it is not in the graph
+	 * @param e Edge
+	 * @return double weight
+	 */
+	public double getWeight(Edge e) {
+		return contains(e) ? weights[e.index] : Double.NaN;
+	}
+	
+	/**
+	 * Changes the weight of a Line; returns the old weight, or NaN if the Line is not in the graph
+	 * @param e Edge
+	 * @param weight Non-negative weight
+	 * @return double old weight
+	 */
+	public double setWeight(Edge e, double weight) {
+		checkWeight(weight);
+		if(!contains(e))
+			return Double.NaN;
+		
+		double old = weights[e.index];
+		weights[e.index] = weight;
+		return old;
+	}
+	
+	/**
+	 * Weight column for the routing code, indexed by Line slot
+	 */
+	double[] weights() {
+		return weights;
+	}
+	
+	static void checkWeight(double weight) {
+		if(!(weight >= 0) || Double.isInfinite(weight)) //Also catches NaN
+			throw new IllegalArgumentException("Line weights must be finite and non-negative: " + weight);
+	}
+	
+	/**
+	 * Checks if the Station belongs to this graph in constant time
+	 * @param v Vertex
+	 * @return True if v is in the graph
+	 */
+	public boolean contains(Vertex v) {
+		return v != null && v.index >= 0 && v.index < vertices.size() && vertices.get(v.index) == v;
+	}
+	
+	/**
+	 * Checks if the Line belongs to this graph in constant time
+	 * @param e Edge
+	 * @return True if e is in the graph
+	 */
+	public boolean contains(Edge e) {
+		return e != null && e.index >= 0 && e.index < edges.size() && edges.get(e.index) == e;
+	}
         
         /**
          * This method returns the Train Station that can be directly reached given a neighbouring Ltation and the Line.
@@ -81,7 +433,7 @@ public class Graph implements GraphADT {
          */
 	@Override
 	public Vertex opposite(Edge e, Vertex v) {
-		if(!v.getIncidenceColl().contains(e))
+		if(!v.hasIncidenceEdge(e)) //Constant time, the Line knows where it sits in the list
 			return null;
 		
 		if(e.getEndPointA().equals(v))
@@ -94,6 +446,28 @@ public class Graph implements GraphADT {
 		return null;
 	}
 
+	/**
+	 * Same as opposite but without checking the incidence list of w, for the traversals that are already walking it.
+	 * Lines or Stations that are no longer in the graph are ignored
+	 * @param e Edge incident to w
+	 * @param w Vertex
+	 * @return The Station on the other side of the Line or null
+	 */
+	Vertex across(Edge e, Vertex w) {
+		if(!contains(e))
+			return null;
+		
+		Vertex o;
+		if(e.getEndPointA() == w)
+			o = e.getEndPointB();
+		else if(e.getEndPointB() == w)
+			o = e.getEndPointA();
+		else
+			return null;
+		
+		return contains(o) ? o : null;
+	}
+
 	@Override
 	public ArrayList<Vertex> vertices() {
 		return vertices;
@@ -105,14 +479,14 @@ public class Graph implements GraphADT {
 	}
 
         /**
-         * This method uses the Collections class to make use of the static method disjoint to quickly check if there are any common Edges between two Vertices
+         * Looks the pair of Stations up in the adjacency index, so the cost doesn't depend on how many Lines stop at either of them
          * @param v Vertex
          * @param w Vertex
-         * @return True if Adjacent, false if otherwise
+         * @return True if Adjacent, false if otherwise (or if one of them is not in the graph)
          */
 	@Override
 	public boolean areAdjacent(Vertex v, Vertex w) {
-		return !Collections.disjoint(v.getIncidenceColl(), w.getIncidenceColl()); //The Java developers do the job for us
+		return getEdge(v, w) != null;
 	}
 
 	@Override
@@ -123,14 +497,32 @@ public class Graph implements GraphADT {
 	@Override
 	public String rename(Vertex v, String n) {
                 String oldName = v.getElement();
-		v.setElement(n);
+		if(!contains(v)) {
+			v.setElement(n);
+			return oldName;
+		}
+		v.setElement(symbols.intern(n));
+		symbols.release(oldName);
+		if(vertexNames != null) {
+			vertexNames.remove(oldName, v);
+			vertexNames.add(v.getElement(), v);
+		}
 		return oldName;
 	}
 
 	@Override
 	public String rename(Edge e, String n) {
             String oldName = e.getElement();
-		e.setElement(n);
+		if(!contains(e)) {
+			e.setElement(n);
+			return oldName;
+		}
+		e.setElement(symbols.intern(n));
+		symbols.release(oldName);
+		if(edgeNames != null) {
+			edgeNames.remove(oldName, e);
+			edgeNames.add(e.getElement(), e);
+		}
 		return oldName;
 	}
 	
@@ -151,177 +543,497 @@ public class Graph implements GraphADT {
 	}
 	
 	/**
-	 * Returns the Edge between two vertices or null if they are not adjacent
+	 * Returns the Edge between two vertices or null if they are not adjacent.
+	 * When several Lines join the two Stations any of them may be returned
 	 * @param v Vertex
 	 * @param w Vertex
 	 * @return The Edge in between
 	 */
 	public Edge getEdge(Vertex v, Vertex w) {
-		if(areAdjacent(v,w)) {
-			List<Edge> list = v.getIncidenceColl();
-			for(Edge e : list) {
-				if(opposite(e,v).equals(w)) //Once we find the second Vertex we know we have our Edge
-					return e;
-			}
+		if(!contains(v) || !contains(w))
+			return null;
+		return adjacency.get(EdgeIndex.pair(v.key, w.key));
+	}
+	
+	/**
+	 * Calls the action on every Station, without copying the list or creating an Iterator. The action must not change the graph
+	 * @param action Consumer
+	 */
+	public void forEachVertex(Consumer<? super Vertex> action) {
+		int expected = modCount;
+		for(int i = 0; modCount == expected && i < vertices.size(); i++)
+			action.accept(vertices.get(i));
+		if(modCount != expected)
+			throw new ConcurrentModificationException();
+	}
+	
+	/**
+	 * Calls the action on every Line, without copying the list or creating an Iterator. The action must not change the graph
+	 * @param action Consumer
+	 */
+	public void forEachEdge(Consumer<? super Edge> action) {
+		int expected = modCount;
+		for(int i = 0; modCount == expected && i < edges.size(); i++)
+			action.accept(edges.get(i));
+		if(modCount != expected)
+			throw new ConcurrentModificationException();
+	}
+	
+	/**
+	 * Calls the action on every Line of the graph stopping at v. Does nothing if v is not in the graph.
+	 * The action must not change the graph
+	 * @param v Vertex
+	 * @param action Consumer
+	 */
+	public void forEachIncidentEdge(Vertex v, Consumer<? super Edge> action) {
+		if(!contains(v))
+			return;
+		
+		ArrayList<Edge> incidence = v.getIncidenceColl();
+		int expected = modCount;
+		for(int i = 0; modCount == expected && i < incidence.size(); i++) {
+			if(across(incidence.get(i), v) != null)
+				action.accept(incidence.get(i));
 		}
+		if(modCount != expected)
+			throw new ConcurrentModificationException();
+	}
+	
+	/**
+	 * Read-only stream over the Stations, split by ranges of slots when made parallel. Nothing is copied,
+	 * so the graph must not change until the stream is done (checked at the end, like the streams of ArrayList)
+	 * @return Stream of Vertex
+	 */
+	public Stream<Vertex> vertexStream() {
+		return StreamSupport.stream(new SlotSpliterator<>(this, vertices), false);
+	}
+	
+	/**
+	 * Same as vertexStream, for the Lines
+	 * @return Stream of Edge
+	 */
+	public Stream<Edge> edgeStream() {
+		return StreamSupport.stream(new SlotSpliterator<>(this, edges), false);
+	}
+	
+	/**
+	 * Ids of all the Stations, 0 to numVertices() - 1. An id is the slot of the Station, valid until the graph changes
+	 * @return IntStream of ids
+	 */
+	public IntStream vertexIds() {
+		return IntStream.range(0, vertices.size());
+	}
+	
+	/**
+	 * Ids of the Stations next to v, one per Line (so a Station joined by two Lines comes up twice). Empty if v is not in the graph
+	 * @param v Vertex
+	 * @return IntStream of ids
+	 */
+	public IntStream neighbourIds(Vertex v) {
+		if(!contains(v))
+			return IntStream.empty();
+		return StreamSupport.intStream(new NeighbourSpliterator(this, v), false);
+	}
+	
+	/**
+	 * Returns the id of a Station, or -1 if it is not in the graph
+	 * @param v Vertex
+	 * @return int id
+	 */
+	public int vertexId(Vertex v) {
+		return contains(v) ? v.index : -1;
+	}
+	
+	/**
+	 * Returns the id of a Line, or -1 if it is not in the graph
+	 * @param e Edge
+	 * @return int id
+	 */
+	public int edgeId(Edge e) {
+		return contains(e) ? e.index : -1;
+	}
+	
+	/**
+	 * Adds a Station and returns its id, for code working with ids rather than Vertex objects
+	 * @param n Name
+	 * @return int id
+	 */
+	public int addVertex(String n) {
+		return insertVertex(n).index;
+	}
+	
+	/**
+	 * Adds a Line between two Stations given by id and returns its id
+	 * @param v int id
+	 * @param w int id
+	 * @param n Name
+	 * @return int id of the Line
+	 */
+	public int addEdge(int v, int w, String n) {
+		return insertEdge(vertices.get(v), vertices.get(w), n).index;
+	}
+	
+	/**
+	 * Returns the number of Lines of a Station, read from an int array instead of going through the Vertex and its list
+	 * @param v int id
+	 * @return int degree
+	 */
+	public int degree(int v) {
+		return ints().degree[v];
+	}
+	
+	/**
+	 * Returns the id of the Station at the other end of the i-th Line of a Station (the Line is vertexAt(v).getIncidenceColl().get(i)).
+	 * Together with degree this walks the graph on ints only, without touching a Vertex or an Edge
+	 * @param v int id
+	 * @param i position, between 0 and degree(v) - 1
+	 * @return int id of the neighbour, -1 if the Line does not lead to a Station of the graph
+	 */
+	public int neighbour(int v, int i) {
+		IntAdjacency a = ints();
+		return a.pool[a.start[v] + i];
+	}
+	
+	/**
+	 * Same as areAdjacent for Stations given by id. Stations with few Lines are checked by scanning the shorter neighbour array
+	 * @param v int id
+	 * @param w int id
+	 * @return true if a Line joins them
+	 */
+	public boolean adjacent(int v, int w) {
+		IntAdjacency a = ints();
+		if(a.degree[w] < a.degree[v]) {
+			int t = v;
+			v = w;
+			w = t;
+		}
+		int d = a.degree[v];
+		if(d > 32) //Cheaper to ask the pair index
+			return areAdjacent(vertices.get(v), vertices.get(w));
 		
-		return null;
+		int[] pool = a.pool;
+		for(int i = a.start[v], end = i + d; i < end; i++) {
+			if(pool[i] == w)
+				return true;
+		}
+		return false;
+	}
+	
+	private IntAdjacency ints() {
+		if(ints == null)
+			ints = new IntAdjacency(this);
+		return ints;
+	}
+	
+	/**
+	 * Returns the Station with the given id
+	 * @param id between 0 and numVertices() - 1
+	 * @return Vertex
+	 */
+	public Vertex vertexAt(int id) {
+		return vertices.get(id);
+	}
+	
+	/**
+	 * Returns the Line with the given id
+	 * @param id between 0 and numEdges() - 1
+	 * @return Edge
+	 */
+	public Edge edgeAt(int id) {
+		return edges.get(id);
+	}
+	
+	/**
+	 * Returns a Station with the given name, or null if there is none.
+	 * The first lookup indexes the Stations by name, after that the index is kept up to date and this is a single hash lookup.
+	 * Names changed with Vertex.setElement instead of rename are not picked up
+	 * @param n Name
+	 * @return Vertex the first Station added with that name, or null
+	 */
+	public Vertex findVertex(String n) {
+		return vertexNames().first(n);
+	}
+	
+	/**
+	 * Returns all the Stations with the given name
+	 * @param n Name
+	 * @return ArrayList the Stations, in the order they were added
+	 */
+	public ArrayList<Vertex> findVertices(String n) {
+		return vertexNames().all(n);
+	}
+	
+	/**
+	 * Returns all the Lines with the given name, e.g. every section of the Jubilee Line
+	 * @param n Name
+	 * @return ArrayList the Lines, in the order they were added
+	 */
+	public ArrayList<Edge> findEdges(String n) {
+		return edgeNames().all(n);
+	}
+	
+	/**
+	 * Autocomplete for Station names: the first k names in alphabetical order that start with the prefix, each listed once.
+	 * The first call sorts the names, later calls are a tree lookup plus k steps
+	 * @param prefix Beginning of the name, case sensitive
+	 * @param k Maximum number of names
+	 * @return ArrayList the names
+	 */
+	public ArrayList<String> vertexNamesStartingWith(String prefix, int k) {
+		return vertexNames().startingWith(prefix, k);
 	}
 	
+	/**
+	 * Same as vertexNamesStartingWith, for Line names
+	 * @param prefix Beginning of the name, case sensitive
+	 * @param k Maximum number of names
+	 * @return ArrayList the names
+	 */
+	public ArrayList<String> edgeNamesStartingWith(String prefix, int k) {
+		return edgeNames().startingWith(prefix, k);
+	}
+	
+	/**
+	 * Returns the table holding the names of the Stations and Lines of this graph
+	 * @return SymbolTable
+	 */
+	public SymbolTable symbols() {
+		return symbols;
+	}
+	
+	private NameIndex<Vertex> vertexNames() {
+		if(vertexNames == null) {
+			vertexNames = new NameIndex<>();
+			for(Vertex v : vertices)
+				vertexNames.add(v.getElement(), v);
+		}
+		return vertexNames;
+	}
+	
+	private NameIndex<Edge> edgeNames() {
+		if(edgeNames == null) {
+			edgeNames = new NameIndex<>();
+			for(Edge e : edges)
+				edgeNames.add(e.getElement(), e);
+		}
+		return edgeNames;
+	}
+	
+	/**
+	 * Returns a read-only view of the graph as it is now, which later changes don't affect.
+	 * The first call copies the adjacency of the graph into persistent arrays that are then kept up to date,
+	 * after that taking a snapshot costs the same whatever the size of the graph, and each change only copies the few blocks it touches.
+	 * The graph itself is still not thread-safe, but once taken a snapshot can be read by any thread while this one keeps updating the graph
+	 * @return GraphSnapshot
+	 */
+	public GraphSnapshot snapshot() {
+		if(versions == null)
+			versions = new VersionedAdjacency(this);
+		return versions.snapshot();
+	}
+	
+	/**
+	 * Builds an immutable compressed sparse row copy of the graph for read-heavy traversals.
+	 * Ids in the copy are the current slots of the Stations and Lines in vertices() and edges()
+	 * @return CsrGraph snapshot
+	 */
+	public CsrGraph freeze() {
+		return new CsrGraph(this);
+	}
+	
+        /**
+         * Starts recording the traversals and route searches of this graph (latency, stations reached and lines looked at) into the
+         * given metrics, or stops with null. While off the only cost is a null check per call
+         * @param metrics GraphMetrics or null
+         */
+        public void setMetrics(GraphMetrics metrics) {
+            this.metrics = metrics;
+        }
+        
+        /**
+         * Returns the metrics the traversals are recorded into, or null
+         * @return GraphMetrics
+         */
+        public GraphMetrics metrics() {
+            return metrics;
+        }
+        
         /**
          * Perform a breadth-first traversal of the rail network, starting from a given station.
-         * Visited Stations are added to a Set so that we know we have already visited them. 
-         * We also use a queue to make sure that all its neighbour vertices are marked first then we move on.
-         * By that I mean we look for all the neighbouring Stations, if they are not in the Set they get added and queued, if we already marked them leave it.
-         * We also use a temp List containing all incident Edges of a given Vertex, then we get the opposite Vertex of the Edge to progress.
-         * I decided to use an ArrayDeque instead of another implementation of the Queue interface because it's faster, according to the documentation, for this purpose
+         * The work is done by the BfsEngine of this graph: visited Stations are marked in a per-thread bitset indexed by their slot
+         * and queued in a plain int array, so repeated traversals don't create any garbage.
          * @param v Starting station
          */
         public void bfTraverse(Vertex v) {
-            HashSet<Vertex> visited = new HashSet<>();
-            ArrayDeque<Vertex> queue = new ArrayDeque<>();
-            
-            //Temp List and variables
-            Vertex w,OppSideVertex;
-            List<Edge> incidentEdges;
-            
-            visited.add(v);
-            queue.add(v);
-            
-            while (!queue.isEmpty()) { 
-               w = queue.poll();             
-               incidentEdges = w.getIncidenceColl();
-            
-               for(Edge e : incidentEdges) { //For every incident edge we get the opposite
-                  OppSideVertex = opposite(e,w);
-                  
-                  if(OppSideVertex != null && !visited.contains(OppSideVertex)) {
-                      visited.add(OppSideVertex);
-                      queue.add(OppSideVertex);
-                  }
-               }       
-            } 
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            bfs.traverse(v);
+            if(m != null)
+                m.recordTraversal(Operation.BF_TRAVERSE, start, bfs.lastVisited(), bfs.lastScanned());
         }
         
         /**
          * Performs a breadth-first traversal of the whole rail network (i.e. this method should work for both connected and non-connected graphs)
+         * Once a component is exhausted the engine carries on from the next unvisited slot, so the Stations are only scanned once
          */
         public void bfTraverse() {
-            HashSet<Vertex> visited = new HashSet<>();
-            ArrayDeque<Vertex> queue = new ArrayDeque<>();
-            
-            //Temp List and variables
-            Vertex w,OppSideVertex;
-            List<Edge> incidentEdges;
-            boolean finished = false;
-            
-            visited.add(vertices.get(0));
-            queue.add(vertices.get(0));
-            
-            while(!finished) {
-               while (!queue.isEmpty()) { 
-                  w = queue.poll();             
-                  incidentEdges = w.getIncidenceColl();
-            
-                  for(Edge e : incidentEdges) { //For every incident edge we get the opposite
-                     OppSideVertex = opposite(e,w);
-                  
-                     if(OppSideVertex != null && !visited.contains(OppSideVertex)) {
-                         visited.add(OppSideVertex);
-                         queue.add(OppSideVertex);
-                     }
-                  }       
-               }
-               
-               if(visited.size() < vertices.size()) { //If the graph turns out to be disconnected from the Vertex 0
-                   Iterator<Vertex> it = vertices.iterator(); 
-                   boolean found = false;
-                   
-                   while(it.hasNext() && !found) {
-                       Vertex h = it.next();
-                       if(!visited.contains(h)) { //The first Vertex that is found to be undiscovered we add it to the queue
-                           visited.add(h);
-                           queue.add(h); 
-                           found = true;
-                       }
-                   }
-               }
-               
-               else
-                   finished = true;
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            bfs.traverseAll();
+            if(m != null)
+                m.recordTraversal(Operation.BF_TRAVERSE_ALL, start, bfs.lastVisited(), bfs.lastScanned());
+        }
+        
+        /**
+         * Breadth-first traversal from a station that keeps what it found: visit order, depth, parent and BFS levels as int arrays of slots.
+         * The visitor sees every station, line and finished station and can prune or stop the traversal, and stations further than
+         * maxDepth lines from v are not reached at all, so a 2-3 hop query only touches those hops
+         * @param v Starting station
+         * @param maxDepth Deepest level to reach, Integer.MAX_VALUE for no limit
+         * @param visitor Callbacks, or null
+         * @return TraversalResult, empty if v is not in the graph
+         */
+        public TraversalResult breadthFirst(Vertex v, int maxDepth, TraversalVisitor visitor) {
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            TraversalResult result = traverser.breadthFirst(v, maxDepth, visitor);
+            if(m != null)
+                m.recordTraversal(Operation.BREADTH_FIRST, start, result.size(), traverser.lastScanned());
+            return result;
+        }
+        
+        /**
+         * Iterative depth-first traversal from a station, same visitor and result as breadthFirst (without the levels).
+         * With a depth limit a station is only expanded from the first path that reaches it, so a station first found
+         * along a long path may not be expanded even if it is closer to v along another one
+         * @param v Starting station
+         * @param maxDepth Deepest level to reach, Integer.MAX_VALUE for no limit
+         * @param visitor Callbacks, or null
+         * @return TraversalResult, empty if v is not in the graph
+         */
+        public TraversalResult depthFirst(Vertex v, int maxDepth, TraversalVisitor visitor) {
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            TraversalResult result = traverser.depthFirst(v, maxDepth, visitor);
+            if(m != null)
+                m.recordTraversal(Operation.DEPTH_FIRST, start, result.size(), traverser.lastScanned());
+            return result;
+        }
+        
+        /**
+         * Returns the stations that can be reached from v with at most k lines, excluding v itself, closest first.
+         * Only those stations are traversed, and the answer is kept in the neighbourhoodCache: asking again is a lookup until a line
+         * is added or removed next to the ball or one of its stations is removed. The list is shared with the cache and read-only
+         * @param v Starting station
+         * @param k Maximum number of lines
+         * @return List The stations within k lines, empty if v is not in the graph
+         */
+        public List<Vertex> neighbourhood(Vertex v, int k) {
+            if(k < 0)
+                throw new IllegalArgumentException("Number of lines must not be negative: " + k);
+            if(!contains(v))
+                return Collections.emptyList();
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            List<Vertex> result = neighbourhoodCache().get(v, k);
+            if(m != null)
+                m.record(Operation.NEIGHBOURHOOD, start); //A miss is also recorded as a BREADTH_FIRST traversal
+            return result;
+        }
+        
+        /**
+         * Returns the cache behind neighbourhood, with its hit, miss, eviction and invalidation counts
+         * @return NeighbourhoodCache
+         */
+        public NeighbourhoodCache neighbourhoodCache() {
+            if(neighbourhoods == null) {
+                synchronized(this) { //Queries may come from several threads
+                    if(neighbourhoods == null)
+                        neighbourhoods = new NeighbourhoodCache(this);
+                }
             }
-            
+            return neighbourhoods;
         }
         
         /**
          * Returns a list (ArrayList) of all of the stations (vertices) that can be reached by rail when starting from v excluding v itself.
-         * I'm using the same algorithm for the bf Traversal but instead of using an HashSet I'm directly using the preferred ArrayList data structure
+         * Same traversal as bfTraverse, the engine appends the Stations to the list as they are discovered
          * @param v Starting Vertex
          * @return ArrayList All the reachable stations
          */
         public ArrayList<Vertex> allReachable(Vertex v) {
-            ArrayList<Vertex> visited = new ArrayList<>();
-            ArrayDeque<Vertex> queue = new ArrayDeque<>();
-            
-            //Temp List and variables
-            Vertex w,OppSideVertex;
-            List<Edge> incidentEdges;
-            
-            visited.add(v);
-            queue.add(v);
-            
-            while (!queue.isEmpty()) { 
-               w = queue.poll();             
-               incidentEdges = w.getIncidenceColl();
-            
-               for(Edge e : incidentEdges) { //For every incident edge we get the opposite
-                  OppSideVertex = opposite(e,w);
-                  
-                  if(OppSideVertex != null && !visited.contains(OppSideVertex)) {
-                      visited.add(OppSideVertex);
-                      queue.add(OppSideVertex);
-                  }
-               }       
-            } 
-            
-            visited.remove(v);
-            return visited;
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            ArrayList<Vertex> result = bfs.reachable(v);
+            if(m != null)
+                m.recordTraversal(Operation.ALL_REACHABLE, start, bfs.lastVisited(), bfs.lastScanned());
+            return result;
+        }
+        
+        /**
+         * Same stations as allReachable, but returned as a read-only Set backed by a bitset over the slots of the graph instead of a copied list.
+         * The Set can no longer be used once the graph is modified
+         * @param v Starting Vertex
+         * @return Set All the reachable stations
+         */
+        public Set<Vertex> reachableSet(Vertex v) {
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            Set<Vertex> result = bfs.reachableSet(v);
+            if(m != null)
+                m.recordTraversal(Operation.REACHABLE_SET, start, bfs.lastVisited(), bfs.lastScanned());
+            return result;
+        }
+        
+        /**
+         * Streaming version of allReachable: every station is handed to the action as soon as the traversal discovers it.
+         * If the action returns false the traversal stops there, e.g. to look for the first station matching some condition
+         * @param v Starting Vertex
+         * @param action Called for each reachable station (v excluded), returns false to stop
+         * @return int The number of stations handed to the action
+         */
+        public int forEachReachable(Vertex v, Predicate<? super Vertex> action) {
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            int result = bfs.forEachReachable(v, action);
+            if(m != null)
+                m.recordTraversal(Operation.FOR_EACH_REACHABLE, start, bfs.lastVisited(), bfs.lastScanned());
+            return result;
         }
         
         /**
          * Returns true if all the stations are connected, false if otherwise.
-         * Uses the same algorithm as before. At the end it checks if the number of Vertices visited starting from the first Vertex matches the size of the field Vertices
+         * Answered by the union-find of components(), which inserts keep up to date, so this is O(1) unless something was removed since the last call
          * @return Boolean connected
          */
         public boolean allConnected() {
-            HashSet<Vertex> visited = new HashSet<>();
-            ArrayDeque<Vertex> queue = new ArrayDeque<>();
-            
-            
-            Vertex w,OppSideVertex;
-            List<Edge> incidentEdges;
-            
-            //Check if we have at least one vertex
-            if(numVertices() == 0)
-                return false;
-            
-            visited.add(vertices.get(0));
-            queue.add(vertices.get(0));
-            
-            while (!queue.isEmpty()) { 
-               w = queue.poll();             
-               incidentEdges = w.getIncidenceColl();
-            
-               for(Edge e : incidentEdges) { 
-                  OppSideVertex = opposite(e,w);
-                  
-                  if(OppSideVertex != null && !visited.contains(OppSideVertex)) {
-                      visited.add(OppSideVertex);
-                      queue.add(OppSideVertex);
-                  }
-               }       
-            } 
-            return visited.size() == vertices.size();
+            return components.allConnected();
+        }
+        
+        /**
+         * Returns true if v can be reached from u, without a traversal
+         * @param u Vertex
+         * @param v Vertex
+         * @return Boolean same component
+         */
+        public boolean sameComponent(Vertex u, Vertex v) {
+            return components.sameComponent(u, v);
+        }
+        
+        /**
+         * Returns the connected components of this graph: component of each station, sizes and count
+         * @return Components
+         */
+        public Components components() {
+            return components;
+        }
+        
+        /**
+         * Returns the traversal engine shared by the traversal methods of this graph
+         * @return BfsEngine
+         */
+        public BfsEngine bfsEngine() {
+            return bfs;
         }
         
         /**
@@ -329,13 +1041,82 @@ public class Graph implements GraphADT {
          * if one can be found; or return null to indicate that the two stations cannot be reached from one another. 
          * NB: The returned path is represented as a list of edges. 
          * Also, by ‘shortest’ route here we mean that the route should involve the fewest possible number of direct rail links (i.e. edges).
+         * The search runs from both stations at the same time, always growing the smaller side, and stops where the two meet.
+         * On a big network this only touches the stations around the two ends instead of everything within range of u.
          * @param u Start Station  
          * @param v End Station
          * @return The shortest path or null
          */
         public ArrayList<Edge> mostDirectRoute(Vertex u, Vertex v) {
-            //TODO
-            return null; 
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            ArrayList<Edge> result = bfs.route(u, v, true);
+            if(m != null)
+                m.recordTraversal(Operation.MOST_DIRECT_ROUTE, start, bfs.lastVisited(), bfs.lastScanned());
+            return result;
+        }
+        
+        /**
+         * Given two stations u and v, return the route with the smallest total weight (e.g. travel time) between them, or null if there is none.
+         * Runs Dijkstra's algorithm; with the default weights it finds a route as direct as mostDirectRoute
+         * @param u Start Station
+         * @param v End Station
+         * @return The lightest path or null
+         */
+        public ArrayList<Edge> shortestRoute(Vertex u, Vertex v) {
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            ArrayList<Edge> result = router.dijkstra(u, v);
+            if(m != null)
+                m.recordTraversal(Operation.SHORTEST_ROUTE, start, router.lastSettled(), router.lastScanned());
+            return result;
+        }
+        
+        /**
+         * Same as shortestRoute(u, v) but runs A*, guided towards v by the heuristic.
+         * The heuristic must never overestimate the remaining weight (e.g. straight-line distance between stations), otherwise the route may not be the lightest
+         * @param u Start Station
+         * @param v End Station
+         * @param h Lower bound on the weight still needed to reach v
+         * @return The lightest path or null
+         */
+        public ArrayList<Edge> shortestRoute(Vertex u, Vertex v, RouteHeuristic h) {
+            GraphMetrics m = metrics;
+            long start = m == null ? 0 : m.start();
+            ArrayList<Edge> result = router.aStar(u, v, h);
+            if(m != null)
+                m.recordTraversal(Operation.SHORTEST_ROUTE, start, router.lastSettled(), router.lastScanned());
+            return result;
+        }
+        
+        /**
+         * Adds up the weights of the Lines of a route
+         * @param route List of Edges
+         * @return double total weight, NaN if a Line is not in the graph
+         */
+        public double routeWeight(List<Edge> route) {
+            double total = 0;
+            for(Edge e : route)
+                total += getWeight(e);
+            return total;
+        }
+        
+        /**
+         * Preprocesses the graph into a contraction hierarchy, which answers route queries much faster than shortestRoute or mostDirectRoute.
+         * The hierarchy is a snapshot like freeze(): it has to be built again after the graph changes
+         * @param weighted true to route by Line weights like shortestRoute, false to count Lines like mostDirectRoute
+         * @return ContractionHierarchy
+         */
+        public ContractionHierarchy contract(boolean weighted) {
+            return ContractionHierarchy.build(this, weighted);
+        }
+        
+        /**
+         * Returns the weighted routing engine of this graph
+         * @return Router
+         */
+        public Router router() {
+            return router;
         }
         
 	public static void main(String[] args) {
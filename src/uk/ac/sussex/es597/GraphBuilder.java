@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Collects Stations and Lines as plain arrays and loads them into a new Graph in one go.
+ * Stations are numbered from 0 in the order they are added and Lines refer to them by number.
+ * build() does not go through insertVertex/insertEdge: it sorts the Lines by their first Station (counting sort), interns each run of
+ * equal names once, and then fills the lists of the Graph, every incidence list (at exactly the right size) and the adjacency index
+ * directly, in a few passes over plain arrays (see Graph.loadVertices and Graph.load). The Lines of a Station are created next to
+ * each other in memory and come out of edges() in that order.
+ * @author Edoardo Sanguineti
+ */
+public final class GraphBuilder {
+    private String[] vertexNames;
+    private int n;
+    private int[] from, to;
+    private String[] edgeNames;
+    private double[] weights;
+    private int m;
+
+    public GraphBuilder() {
+        this(16, 16);
+    }
+
+    /**
+     * @param vertices Expected number of Stations, only used to size the arrays
+     * @param edges Expected number of Lines
+     */
+    public GraphBuilder(int vertices, int edges) {
+        vertexNames = new String[Math.max(16, vertices)];
+        from = new int[Math.max(16, edges)];
+        to = new int[from.length];
+        edgeNames = new String[from.length];
+        weights = new double[from.length];
+    }
+
+    /**
+     * Adds a Station
+     * @param name Name
+     * @return int number of the Station
+     */
+    public int addVertex(String name) {
+        if(n == vertexNames.length)
+            vertexNames = Arrays.copyOf(vertexNames, n * 2);
+        vertexNames[n] = name;
+        return n++;
+    }
+
+    /**
+     * Adds a Station for each name
+     * @param names Names
+     * @return int number of the first of them
+     */
+    public int addVertices(String[] names) {
+        if(n + names.length > vertexNames.length)
+            vertexNames = Arrays.copyOf(vertexNames, Math.max(n * 2, n + names.length));
+        System.arraycopy(names, 0, vertexNames, n, names.length);
+        n += names.length;
+        return n - names.length;
+    }
+
+    /**
+     * Adds a Station for each name of the stream, in order
+     * @param names Names
+     * @return int number of the first of them
+     */
+    public int addVertices(Stream<String> names) {
+        int first = n;
+        names.forEachOrdered(this::addVertex);
+        return first;
+    }
+
+    /**
+     * Adds a Line with the default weight
+     * @param a number of a Station already added
+     * @param b number of a Station already added
+     * @param name Name
+     */
+    public void addEdge(int a, int b, String name) {
+        addEdge(a, b, name, Graph.DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Adds a Line
+     * @param a number of a Station already added
+     * @param b number of a Station already added
+     * @param name Name
+     * @param weight Non-negative weight
+     */
+    public void addEdge(int a, int b, String name, double weight) {
+        checkVertex(a);
+        checkVertex(b);
+        Graph.checkWeight(weight);
+        if(m == from.length)
+            grow(m * 2);
+        from[m] = a;
+        to[m] = b;
+        edgeNames[m] = name;
+        weights[m++] = weight;
+    }
+
+    /**
+     * Adds from.length Lines, the i-th one between from[i] and to[i]
+     * @param from numbers of Stations already added
+     * @param to numbers of Stations already added, same length as from
+     * @param names Names, or null for Lines without a name
+     * @param weights Weights, or null for the default weight
+     */
+    public void addEdges(int[] from, int[] to, String[] names, double[] weights) {
+        int k = from.length;
+        if(to.length != k || (names != null && names.length != k) || (weights != null && weights.length != k))
+            throw new IllegalArgumentException("Arrays of different lengths");
+        for(int i = 0; i < k; i++) {
+            checkVertex(from[i]);
+            checkVertex(to[i]);
+            if(weights != null)
+                Graph.checkWeight(weights[i]);
+        }
+
+        if(m + k > this.from.length)
+            grow(Math.max(m * 2, m + k));
+        System.arraycopy(from, 0, this.from, m, k);
+        System.arraycopy(to, 0, this.to, m, k);
+        if(names != null)
+            System.arraycopy(names, 0, edgeNames, m, k);
+        if(weights != null)
+            System.arraycopy(weights, 0, this.weights, m, k);
+        else
+            Arrays.fill(this.weights, m, m + k, Graph.DEFAULT_WEIGHT);
+        m += k;
+    }
+
+    /**
+     * Returns the number of Stations added so far
+     * @return int Vertices
+     */
+    public int numVertices() {
+        return n;
+    }
+
+    /**
+     * Returns the number of Lines added so far
+     * @return int Edges
+     */
+    public int numEdges() {
+        return m;
+    }
+
+    /**
+     * Builds a new Graph with everything added so far. The builder can keep being used, later graphs are independent of this one
+     * @return Graph
+     */
+    public Graph build() {
+        //Counting sort of the Lines by first Station, and the degree of every Station
+        int[] start = new int[n + 1];
+        int[] degree = new int[n];
+        for(int i = 0; i < m; i++) {
+            start[from[i] + 1]++;
+            degree[from[i]]++;
+            if(to[i] != from[i]) //A self-loop is only listed once
+                degree[to[i]]++;
+        }
+        for(int v = 0; v < n; v++)
+            start[v + 1] += start[v];
+
+        Graph g = new Graph(new ArrayList<>(n), new ArrayList<>(m));
+        String[] interned = g.internAll(edgeNames, m); //In the order they were added, where runs of the same name are likeliest
+
+        //Scattered into sorted copies, so that the load reads everything in order
+        int[] sortedFrom = new int[m], sortedTo = new int[m];
+        String[] sortedNames = new String[m];
+        double[] sortedWeights = new double[m];
+        for(int i = 0; i < m; i++) {
+            int k = start[from[i]]++;
+            sortedFrom[k] = from[i];
+            sortedTo[k] = to[i];
+            sortedNames[k] = interned[i];
+            sortedWeights[k] = weights[i];
+        }
+
+        Vertex[] stations = g.loadVertices(g.internAll(vertexNames, n), degree, n);
+        g.load(stations, n, sortedFrom, sortedTo, sortedNames, sortedWeights, m);
+        return g;
+    }
+
+    private void checkVertex(int v) {
+        if(v < 0 || v >= n)
+            throw new IllegalArgumentException("No Station number " + v);
+    }
+
+    private void grow(int capacity) {
+        from = Arrays.copyOf(from, capacity);
+        to = Arrays.copyOf(to, capacity);
+        edgeNames = Arrays.copyOf(edgeNames, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+    }
+}
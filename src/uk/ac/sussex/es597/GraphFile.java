@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Binary file format for a Graph, read back by memory-mapping it (see MappedGraph).
+ * Everything is big-endian, Stations and Lines are numbered by their slot in the Graph when it was written:
+ * <pre>
+ * header      64 bytes: magic, version, Stations n, Lines m (ints), adjacency entries d, string bytes (longs)
+ * long[n+1]   where the name of each Station starts in the string table, ~start (so negative) for a null name
+ * long[m+1]   where the name of each Line starts in the string table, the same way
+ * long[n+1]   compressed sparse row offsets, same as CsrGraph
+ * double[m]   weight of each Line
+ * int[2m]     end points of each Line, -1 if not in the graph
+ * int[d]      neighbour of each adjacency entry
+ * int[d]      Line of each adjacency entry
+ * byte[]      names, UTF-8
+ * </pre>
+ * The long sections come first so that every number is aligned on its own size.
+ * Version 1 files, which wrote null names as empty ones, are still read.
+ * @author Edoardo Sanguineti
+ */
+public final class GraphFile {
+    static final int MAGIC = 0x47524146; //"GRAF"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 64;
+    static final int CHUNK_BITS = 30; //Files are mapped 1GB at a time, a multiple of every element size
+
+    private GraphFile() {
+    }
+
+    /**
+     * Writes the graph to a file, replacing it if it exists
+     * @param g Graph
+     * @param path File
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Graph g, Path path) throws IOException {
+        ArrayList<Vertex> vertices = g.vertices();
+        ArrayList<Edge> edges = g.edges();
+        CsrGraph csr = g.freeze(); //Adjacency already in the right layout
+        int n = vertices.size(), m = edges.size();
+
+        try(Sink out = new Sink(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            long stringBytes = 0;
+            for(Vertex v : vertices)
+                stringBytes += utf8Length(v.getElement());
+            for(Edge e : edges)
+                stringBytes += utf8Length(e.getElement());
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(m);
+            out.writeLong(csr.offsets[n]);
+            out.writeLong(stringBytes);
+            out.write(new byte[HEADER_BYTES - 32]);
+
+            long pos = 0;
+            for(Vertex v : vertices) {
+                out.writeLong(v.getElement() == null ? ~pos : pos);
+                pos += utf8Length(v.getElement());
+            }
+            out.writeLong(pos);
+            for(Edge e : edges) {
+                out.writeLong(e.getElement() == null ? ~pos : pos);
+                pos += utf8Length(e.getElement());
+            }
+            out.writeLong(pos);
+
+            for(int i = 0; i <= n; i++)
+                out.writeLong(csr.offsets[i]);
+            for(Edge e : edges)
+                out.writeDouble(g.getWeight(e));
+            for(Edge e : edges) {
+                out.writeInt(g.contains(e.getEndPointA()) ? e.getEndPointA().index : -1);
+                out.writeInt(g.contains(e.getEndPointB()) ? e.getEndPointB().index : -1);
+            }
+            for(int i = 0; i < csr.offsets[n]; i++)
+                out.writeInt(csr.targets[i]);
+            for(int i = 0; i < csr.offsets[n]; i++)
+                out.writeInt(csr.edgeIds[i]);
+
+            for(Vertex v : vertices)
+                out.write(encode(v.getElement()));
+            for(Edge e : edges)
+                out.write(encode(e.getElement()));
+        }
+    }
+
+    /**
+     * Maps a file written by write. Nothing is read apart from the header, so this takes about the same time whatever the size of the file
+     * @param path File
+     * @return MappedGraph
+     * @throws IOException if the file cannot be read or is not a graph file
+     */
+    public static MappedGraph open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size < HEADER_BYTES)
+                throw new IOException("Not a graph file, too short: " + path);
+
+            int chunks = (int) ((size + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS);
+            ByteBuffer[] mapped = new ByteBuffer[chunks];
+            for(int i = 0; i < chunks; i++) {
+                long start = (long) i << CHUNK_BITS;
+                MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << CHUNK_BITS, size - start));
+                mapped[i] = b; //The mapping stays valid once the channel is closed
+            }
+
+            ByteBuffer header = mapped[0];
+            if(header.getInt(0) != MAGIC)
+                throw new IOException("Not a graph file: " + path);
+            if(header.getInt(4) != VERSION && header.getInt(4) != 1)
+                throw new IOException("Unsupported graph file version " + header.getInt(4) + ": " + path);
+
+            MappedGraph g = new MappedGraph(mapped, header.getInt(8), header.getInt(12), header.getLong(16), header.getLong(24));
+            if(g.fileSize() != size)
+                throw new IOException("Truncated or corrupt graph file: " + path);
+            return g;
+        }
+    }
+
+    /**
+     * Size of the name in UTF-8, without encoding it. Unpaired surrogates count as the 1 byte '?' the encoder replaces them with
+     */
+    private static int utf8Length(String name) {
+        if(name == null)
+            return 0;
+
+        int bytes = 0;
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(c < 0x80)
+                bytes++;
+            else if(c < 0x800)
+                bytes += 2;
+            else if(Character.isHighSurrogate(c) && i + 1 < name.length() && Character.isLowSurrogate(name.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if(Character.isSurrogate(c))
+                bytes++;
+            else
+                bytes += 3;
+        }
+        return bytes;
+    }
+
+    private static byte[] encode(String name) {
+        return name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Big-endian output through one direct buffer, much cheaper than a DataOutputStream for millions of small numbers
+     */
+    private static final class Sink implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+        Sink(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInt(int x) throws IOException {
+            room(4).putInt(x);
+        }
+
+        void writeLong(long x) throws IOException {
+            room(8).putLong(x);
+        }
+
+        void writeDouble(double x) throws IOException {
+            room(8).putDouble(x);
+        }
+
+        void write(byte[] bytes) throws IOException {
+            for(int pos = 0; pos < bytes.length; ) {
+                int k = Math.min(bytes.length - pos, room(1).remaining());
+                buffer.put(bytes, pos, k);
+                pos += k;
+            }
+        }
+
+        private ByteBuffer room(int bytes) throws IOException {
+            if(buffer.remaining() < bytes)
+                flush();
+            return buffer;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
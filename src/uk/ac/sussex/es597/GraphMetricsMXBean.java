@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.Map;
+
+/**
+ * What GraphMetrics shows over JMX. Times are in nanoseconds
+ * @author Edoardo Sanguineti
+ */
+public interface GraphMetricsMXBean {
+
+    public int getVertexCount();
+
+    public int getEdgeCount();
+
+    /**
+     * Walks the whole graph, so it is an operation to be run on purpose rather than an attribute
+     */
+    public GraphMetrics.Degrees scanDegrees();
+
+    public Map<String, Long> getOperationCounts();
+
+    public Map<String, LatencyHistogram.Summary> getLatencies();
+
+    public LatencyHistogram.Summary getTraversalVertices();
+
+    public LatencyHistogram.Summary getTraversalEdges();
+
+    /**
+     * One call in this many gets timed
+     */
+    public int getSampling();
+
+    public void setSampling(int n);
+
+    public void reset();
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+
+/**
+ * Point-in-time, read-only view of a Graph, returned by Graph.snapshot().
+ * Taking one costs the same whatever the size of the graph: the Graph keeps its adjacency in persistent arrays and a snapshot
+ * just keeps the roots of the current version, so the graph can go on changing while a long traversal runs over the snapshot,
+ * in the same thread or in another one. The first change to a part of the graph after a snapshot copies that part only.
+ * The Stations and Lines are the same objects as in the graph, so their names are the current ones, not the ones at the time.
+ * All the methods that would change the graph throw UnsupportedOperationException.
+ * @author Edoardo Sanguineti
+ */
+public final class GraphSnapshot implements GraphADT {
+    private final PersistentArray.Block stops;
+    private final int stopShift;
+    private final int vertexKeys;
+    private final PersistentArray.Block lines;
+    private final int lineShift;
+    private final int edgeKeys;
+    private final int numVertices, numEdges;
+
+    GraphSnapshot(PersistentArray.Block stops, int stopShift, int vertexKeys, PersistentArray.Block lines, int lineShift, int edgeKeys,
+            int numVertices, int numEdges) {
+        this.stops = stops;
+        this.stopShift = stopShift;
+        this.vertexKeys = vertexKeys;
+        this.lines = lines;
+        this.lineShift = lineShift;
+        this.edgeKeys = edgeKeys;
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+    }
+
+    @Override
+    public Vertex insertVertex(String n) {
+        throw readOnly();
+    }
+
+    @Override
+    public String removeVertex(Vertex v) {
+        throw readOnly();
+    }
+
+    @Override
+    public Edge insertEdge(Vertex v, Vertex w, String n) {
+        throw readOnly();
+    }
+
+    @Override
+    public String removeEdge(Edge e) {
+        throw readOnly();
+    }
+
+    @Override
+    public String rename(Vertex v, String n) {
+        throw readOnly();
+    }
+
+    @Override
+    public String rename(Edge e, String n) {
+        throw readOnly();
+    }
+
+    @Override
+    public Vertex opposite(Edge e, Vertex v) {
+        if(!contains(e) || v == null)
+            return null;
+
+        if(e.getEndPointA() == v)
+            return e.getEndPointB();
+        if(e.getEndPointB() == v)
+            return e.getEndPointA();
+        return null;
+    }
+
+    /**
+     * Returns a new list of the Stations in the snapshot, ordered by key: by when they were added to the graph, except that
+     * a Station added after a removal takes the key of the removed one
+     */
+    @Override
+    public ArrayList<Vertex> vertices() {
+        ArrayList<Vertex> list = new ArrayList<>(numVertices);
+        for(int k = 0; k < vertexKeys; k++) {
+            VersionedAdjacency.Stop stop = stop(k);
+            if(stop != null)
+                list.add(stop.vertex);
+        }
+        return list;
+    }
+
+    /**
+     * Returns a new list of the Lines in the snapshot, ordered by key like vertices()
+     */
+    @Override
+    public ArrayList<Edge> edges() {
+        ArrayList<Edge> list = new ArrayList<>(numEdges);
+        for(int k = 0; k < edgeKeys; k++) {
+            Edge e = (Edge) PersistentArray.get(lines, lineShift, k);
+            if(e != null)
+                list.add(e);
+        }
+        return list;
+    }
+
+    @Override
+    public boolean areAdjacent(Vertex v, Vertex w) {
+        return getEdge(v, w) != null;
+    }
+
+    /**
+     * Returns a new list of the Lines of the Station at the time of the snapshot, empty if the Station was not in the graph
+     */
+    @Override
+    public ArrayList<Edge> incidentEdges(Vertex v) {
+        VersionedAdjacency.Stop stop = stop(v);
+        return stop == null ? new ArrayList<>() : stop.toList();
+    }
+
+    /**
+     * Returns a Line between two Stations, or null if they were not adjacent. Scans the shorter of the two lists
+     * @param v Vertex
+     * @param w Vertex
+     * @return Edge or null
+     */
+    public Edge getEdge(Vertex v, Vertex w) {
+        VersionedAdjacency.Stop a = stop(v), b = stop(w);
+        if(a == null || b == null)
+            return null;
+        if(b.size < a.size) {
+            VersionedAdjacency.Stop t = a;
+            a = b;
+            b = t;
+        }
+
+        for(int i = 0; i < a.size; i++) {
+            Edge e = a.edges[i];
+            if((e.getEndPointA() == a.vertex && e.getEndPointB() == b.vertex) || (e.getEndPointB() == a.vertex && e.getEndPointA() == b.vertex))
+                return e;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the Station was in the graph when the snapshot was taken
+     * @param v Vertex
+     * @return True if v is in the snapshot
+     */
+    public boolean contains(Vertex v) {
+        return stop(v) != null;
+    }
+
+    /**
+     * Checks if the Line was in the graph when the snapshot was taken
+     * @param e Edge
+     * @return True if e is in the snapshot
+     */
+    public boolean contains(Edge e) {
+        return e != null && e.key >= 0 && e.key < edgeKeys && PersistentArray.get(lines, lineShift, e.key) == e;
+    }
+
+    /**
+     * Returns the number of Stations in the snapshot
+     * @return int Vertices
+     */
+    public int numVertices() {
+        return numVertices;
+    }
+
+    /**
+     * Returns the number of Lines in the snapshot
+     * @return int Edges
+     */
+    public int numEdges() {
+        return numEdges;
+    }
+
+    /**
+     * Breadth-first traversal of the snapshot from a Station
+     * @param v Starting station
+     * @return the number of Stations visited, v included, or 0 if v is not in the snapshot
+     */
+    public int bfTraverse(Vertex v) {
+        VersionedAdjacency.Stop stop = stop(v);
+        return stop == null ? 0 : traverse(stop, new long[(vertexKeys + 63) >>> 6], null);
+    }
+
+    /**
+     * Returns all the Stations that could be reached from v when the snapshot was taken, excluding v itself, in visit order
+     * @param v Starting station
+     * @return ArrayList the reachable Stations
+     */
+    public ArrayList<Vertex> allReachable(Vertex v) {
+        ArrayList<Vertex> found = new ArrayList<>();
+        VersionedAdjacency.Stop stop = stop(v);
+        if(stop != null)
+            traverse(stop, new long[(vertexKeys + 63) >>> 6], found);
+        return found;
+    }
+
+    /**
+     * Returns true if all the Stations of the snapshot are connected, false if otherwise or if there are none
+     * @return Boolean connected
+     */
+    public boolean allConnected() {
+        for(int k = 0; k < vertexKeys; k++) {
+            VersionedAdjacency.Stop stop = stop(k);
+            if(stop != null)
+                return traverse(stop, new long[(vertexKeys + 63) >>> 6], null) == numVertices;
+        }
+        return false;
+    }
+
+    /**
+     * BFS over Station keys, with a bitset for the visited Stations
+     * @return the number of Stations visited, source included
+     */
+    private int traverse(VersionedAdjacency.Stop source, long[] visited, ArrayList<Vertex> found) {
+        VersionedAdjacency.Stop[] queue = new VersionedAdjacency.Stop[numVertices];
+        int head = 0, tail = 0;
+
+        int key = source.vertex.key;
+        visited[key >>> 6] |= 1L << key;
+        queue[tail++] = source;
+
+        while(head < tail) {
+            VersionedAdjacency.Stop w = queue[head++];
+            for(int i = 0; i < w.size; i++) {
+                Edge e = w.edges[i];
+                Vertex o = e.getEndPointA() == w.vertex ? e.getEndPointB() : e.getEndPointA();
+                VersionedAdjacency.Stop next = stop(o);
+                if(next == null || (visited[o.key >>> 6] & (1L << o.key)) != 0)
+                    continue;
+
+                visited[o.key >>> 6] |= 1L << o.key;
+                queue[tail++] = next;
+                if(found != null)
+                    found.add(o);
+            }
+        }
+        return tail;
+    }
+
+    private VersionedAdjacency.Stop stop(Vertex v) {
+        if(v == null || v.key < 0 || v.key >= vertexKeys)
+            return null;
+        VersionedAdjacency.Stop stop = stop(v.key);
+        return stop != null && stop.vertex == v ? stop : null;
+    }
+
+    private VersionedAdjacency.Stop stop(int key) {
+        return (VersionedAdjacency.Stop) PersistentArray.get(stops, stopShift, key);
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids with double keys that supports decreasing the key of an id already in the heap.
+ * pos[id] remembers where each id sits in the heap so decreaseKey doesn't need to search for it.
+ * Ids must be below the capacity given to the constructor
+ * @author Edoardo Sanguineti
+ */
+final class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] pos;
+    private final double[] key;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        pos = new int[capacity];
+        key = new double[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    int capacity() {
+        return heap.length;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int id) {
+        return pos[id] >= 0;
+    }
+
+    /**
+     * Adds an id, or lowers its key if it is already in the heap with a bigger one
+     */
+    void insertOrDecrease(int id, double k) {
+        if(pos[id] < 0) {
+            heap[size] = id;
+            pos[id] = size;
+            key[id] = k;
+            siftUp(size++);
+        } else if(k < key[id]) {
+            key[id] = k;
+            siftUp(pos[id]);
+        }
+    }
+
+    /**
+     * Returns the smallest key without removing it, the heap must not be empty
+     */
+    double peekKey() {
+        return key[heap[0]];
+    }
+
+    /**
+     * Removes and returns the id with the smallest key
+     */
+    int poll() {
+        int top = heap[0];
+        pos[top] = -1;
+        if(--size > 0) {
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Empties the heap, only touching the ids still in it
+     */
+    void clear() {
+        for(int i = 0; i < size; i++)
+            pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        int id = heap[i];
+        double k = key[id];
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(key[heap[parent]] <= k)
+                break;
+            heap[i] = heap[parent];
+            pos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        double k = key[id];
+        int half = size >>> 1;
+        while(i < half) {
+            int child = 2 * i + 1;
+            if(child + 1 < size && key[heap[child + 1]] < key[heap[child]])
+                child++;
+            if(k <= key[heap[child]])
+                break;
+            heap[i] = heap[child];
+            pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import uk.ac.sussex.es597.GraphMetrics.Operation;
+
+/**
+ * GraphADT that hands every call to another one, counting and timing it in a GraphMetrics on the way.
+ * With setMetrics(null) each call only costs a field read and a null check on top of the wrapped graph, see GraphMetrics.setSampling
+ * for what it costs when switched on.
+ * To also see the traversals of a Graph, give it the same GraphMetrics with Graph.setMetrics.
+ * @author Edoardo Sanguineti
+ */
+public final class InstrumentedGraph implements GraphADT {
+    private final GraphADT graph;
+    private volatile GraphMetrics metrics;
+
+    /**
+     * Wraps a graph with a new GraphMetrics
+     * @param graph GraphADT
+     */
+    public InstrumentedGraph(GraphADT graph) {
+        this(graph, new GraphMetrics(graph));
+    }
+
+    /**
+     * Wraps a graph, recording into the given metrics (null to start switched off)
+     * @param graph GraphADT
+     * @param metrics GraphMetrics or null
+     */
+    public InstrumentedGraph(GraphADT graph, GraphMetrics metrics) {
+        this.graph = graph;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the wrapped graph
+     * @return GraphADT
+     */
+    public GraphADT delegate() {
+        return graph;
+    }
+
+    /**
+     * Returns the metrics being recorded, or null if switched off
+     * @return GraphMetrics
+     */
+    public GraphMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Switches recording to another GraphMetrics, or off with null
+     * @param metrics GraphMetrics or null
+     */
+    public void setMetrics(GraphMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Vertex insertVertex(String n) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.insertVertex(n);
+        long start = m.start();
+        try {
+            return graph.insertVertex(n);
+        } finally {
+            m.record(Operation.INSERT_VERTEX, start);
+        }
+    }
+
+    @Override
+    public String removeVertex(Vertex v) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.removeVertex(v);
+        long start = m.start();
+        try {
+            return graph.removeVertex(v);
+        } finally {
+            m.record(Operation.REMOVE_VERTEX, start);
+        }
+    }
+
+    @Override
+    public Edge insertEdge(Vertex v, Vertex w, String n) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.insertEdge(v, w, n);
+        long start = m.start();
+        try {
+            return graph.insertEdge(v, w, n);
+        } finally {
+            m.record(Operation.INSERT_EDGE, start);
+        }
+    }
+
+    @Override
+    public String removeEdge(Edge e) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.removeEdge(e);
+        long start = m.start();
+        try {
+            return graph.removeEdge(e);
+        } finally {
+            m.record(Operation.REMOVE_EDGE, start);
+        }
+    }
+
+    @Override
+    public Vertex opposite(Edge e, Vertex v) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.opposite(e, v);
+        long start = m.start();
+        try {
+            return graph.opposite(e, v);
+        } finally {
+            m.record(Operation.OPPOSITE, start);
+        }
+    }
+
+    @Override
+    public ArrayList<Vertex> vertices() {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.vertices();
+        long start = m.start();
+        try {
+            return graph.vertices();
+        } finally {
+            m.record(Operation.VERTICES, start);
+        }
+    }
+
+    @Override
+    public ArrayList<Edge> edges() {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.edges();
+        long start = m.start();
+        try {
+            return graph.edges();
+        } finally {
+            m.record(Operation.EDGES, start);
+        }
+    }
+
+    @Override
+    public boolean areAdjacent(Vertex v, Vertex w) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.areAdjacent(v, w);
+        long start = m.start();
+        try {
+            return graph.areAdjacent(v, w);
+        } finally {
+            m.record(Operation.ARE_ADJACENT, start);
+        }
+    }
+
+    @Override
+    public ArrayList<Edge> incidentEdges(Vertex v) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.incidentEdges(v);
+        long start = m.start();
+        try {
+            return graph.incidentEdges(v);
+        } finally {
+            m.record(Operation.INCIDENT_EDGES, start);
+        }
+    }
+
+    @Override
+    public String rename(Vertex v, String n) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.rename(v, n);
+        long start = m.start();
+        try {
+            return graph.rename(v, n);
+        } finally {
+            m.record(Operation.RENAME_VERTEX, start);
+        }
+    }
+
+    @Override
+    public String rename(Edge e, String n) {
+        GraphMetrics m = metrics;
+        if(m == null)
+            return graph.rename(e, n);
+        long start = m.start();
+        try {
+            return graph.rename(e, n);
+        } finally {
+            m.record(Operation.RENAME_EDGE, start);
+        }
+    }
+}
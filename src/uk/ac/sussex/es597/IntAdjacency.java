@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Copy of the incidence lists of a Graph as struct-of-arrays over the Station slots, behind the int methods of Graph
+ * (degree, neighbour, adjacent...), with no object per Station: degree[v] is the length of the incidence list of Station v and
+ * pool[start[v] + i] the slot of the Station at the other end of its i-th Line, or -1 if that Line does not lead to a Station of the graph.
+ * Each Station's neighbours sit in a block of pool whose size is a power of two; a full block is moved to one twice the size and
+ * freed blocks are reused through a free list per size, linked through their first int (like the adjacency blocks of OffHeapGraph).
+ * Positions follow the incidence lists exactly, including their swap on removal, so the Line behind pool[start[v] + i] is
+ * vertexAt(v).getIncidenceColl().get(i). The Graph keeps it up to date once one of the int methods has been used.
+ * @author Edoardo Sanguineti
+ */
+final class IntAdjacency {
+    private static final int MIN_BLOCK = 4;
+
+    int[] degree;
+    int[] start; //First position of the block of each Station in pool
+    int[] pool;
+    private int[] capacity; //Size of the block of each Station, 0 for none yet
+    private int top; //End of the part of pool handed out so far
+    private final int[] free = new int[32]; //First free block of each size by log2 of the size, -1 for none
+    private int n;
+
+    /**
+     * Copies the current state of the graph, once. Every Station gets the smallest block its Lines fit in
+     */
+    IntAdjacency(Graph g) {
+        ArrayList<Vertex> vertices = g.vertices();
+        n = vertices.size();
+        degree = new int[Math.max(16, n)];
+        start = new int[degree.length];
+        capacity = new int[degree.length];
+        Arrays.fill(free, -1);
+
+        long total = 0;
+        for(Vertex v : vertices)
+            total += blockFor(v.getIncidenceColl().size());
+        pool = new int[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, total))];
+        for(int v = 0; v < n; v++)
+            sync(g, vertices.get(v));
+    }
+
+    void reserve(int numVertices) {
+        if(degree.length < numVertices)
+            resize(numVertices);
+    }
+
+    /**
+     * A new Station, without Lines yet
+     */
+    void addVertex() {
+        if(n == degree.length)
+            resize(n * 2);
+        degree[n] = 0;
+        capacity[n] = 0;
+        n++;
+    }
+
+    /**
+     * Appends whatever was added to the end of the incidence list of a Station since the last call
+     */
+    void sync(Graph g, Vertex v) {
+        if(v == null || !g.contains(v))
+            return;
+        ArrayList<Edge> incidence = v.getIncidenceColl();
+        int id = v.index;
+
+        if(capacity[id] < incidence.size())
+            grow(id, incidence.size());
+        int at = start[id];
+        for(int i = degree[id]; i < incidence.size(); i++) {
+            Vertex o = g.across(incidence.get(i), v);
+            pool[at + i] = o == null ? -1 : o.index;
+        }
+        degree[id] = incidence.size();
+    }
+
+    /**
+     * Same swap as Vertex.removeIncidenceEdge: the last position moves into the freed one
+     */
+    void removeIncidence(int v, int slot) {
+        if(v < 0 || slot < 0)
+            return;
+        int last = --degree[v];
+        pool[start[v] + slot] = pool[start[v] + last];
+    }
+
+    /**
+     * A Station without Lines left has been removed, and the one in the last slot moved into its slot (its index is already the new one),
+     * or moved is null if the removed Station was the last one.
+     * Each Line of the moved Station is listed at a known position by the Station at the other end, so renaming it costs its degree
+     */
+    void removeVertex(Graph g, Vertex moved) {
+        n--;
+        int hole = moved == null ? n : moved.index;
+        if(capacity[hole] > 0)
+            release(start[hole], capacity[hole]);
+        if(moved == null) {
+            capacity[n] = 0;
+            return;
+        }
+        degree[hole] = degree[n];
+        start[hole] = start[n];
+        capacity[hole] = capacity[n];
+        capacity[n] = 0;
+
+        for(Edge e : moved.getIncidenceColl()) {
+            Vertex o = g.across(e, moved);
+            if(o != null)
+                pool[start[o.index] + (e.getEndPointA() == o ? e.slotA : e.slotB)] = hole;
+        }
+    }
+
+    /**
+     * Moves the neighbours of a Station to a block big enough for the given number
+     */
+    private void grow(int v, int needed) {
+        int size = blockFor(Math.max(needed, capacity[v] * 2));
+        int block = allocate(size);
+        if(capacity[v] > 0) {
+            System.arraycopy(pool, start[v], pool, block, degree[v]);
+            release(start[v], capacity[v]);
+        }
+        start[v] = block;
+        capacity[v] = size;
+    }
+
+    private int allocate(int size) {
+        int c = Integer.numberOfTrailingZeros(size);
+        int block = free[c];
+        if(block >= 0) {
+            free[c] = pool[block];
+            return block;
+        }
+        if(top > Integer.MAX_VALUE - 8 - size)
+            throw new IllegalStateException("Int adjacency full");
+        block = top;
+        top += size;
+        if(top > pool.length)
+            pool = Arrays.copyOf(pool, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(top, 2L * pool.length)));
+        return block;
+    }
+
+    private void release(int block, int size) {
+        int c = Integer.numberOfTrailingZeros(size);
+        pool[block] = free[c];
+        free[c] = block;
+    }
+
+    /**
+     * Smallest power of two, and at least MIN_BLOCK, that holds d neighbours; 0 for none
+     */
+    private static int blockFor(int d) {
+        return d == 0 ? 0 : d <= MIN_BLOCK ? MIN_BLOCK : Integer.highestOneBit(d - 1) << 1;
+    }
+
+    private void resize(int size) {
+        degree = Arrays.copyOf(degree, size);
+        start = Arrays.copyOf(start, size);
+        capacity = Arrays.copyOf(capacity, size);
+    }
+}
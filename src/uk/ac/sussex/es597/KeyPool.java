@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.Arrays;
+
+/**
+ * Hands out the keys of the Stations or the Lines of a Graph: small non-negative ints, unique among the ones in the graph.
+ * The key of a removed Station or Line is handed out again (last freed, first reused), so everything sized by key (the snapshot
+ * arrays, CsrGraph.idByKey) stays proportional to the most the graph has ever held rather than to the number of insertions.
+ * Anything that can still hold a removed Station or Line must therefore check that the object at a key is the one it expects
+ * @author Edoardo Sanguineti
+ */
+final class KeyPool {
+    private final String what;
+    private int next; //Lowest key never handed out
+    private int[] free = new int[16];
+    private int numFree;
+
+    /**
+     * @param what What the keys are for, only used in the error message
+     */
+    KeyPool(String what) {
+        this.what = what;
+    }
+
+    /**
+     * Returns a free key
+     * @throws IllegalStateException if every int has been handed out and none was given back
+     */
+    int take() {
+        if(numFree > 0)
+            return free[--numFree];
+        if(next == Integer.MAX_VALUE)
+            throw new IllegalStateException("No " + what + " keys left");
+        return next++;
+    }
+
+    /**
+     * Gives back the key of a Station or Line that has just left the graph
+     */
+    void release(int key) {
+        if(numFree == free.length)
+            free = Arrays.copyOf(free, numFree * 2);
+        free[numFree++] = key;
+    }
+}
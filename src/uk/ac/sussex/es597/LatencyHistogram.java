@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative long values (nanoseconds, Stations touched...) in the style of HdrHistogram: values below 128 get a bucket each,
+ * above that every power of two is split into 64 buckets, so any value is known to within 1/64 of itself (under 2%) however large it is,
+ * with a fixed 3712 buckets. Recording is lock-free and a few nanoseconds, and can happen from any number of threads.
+ * @author Edoardo Sanguineti
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int HALF = 1 << (SUB_BITS - 1);
+    private static final int BUCKETS = (63 - SUB_BITS) * HALF + 2 * HALF; //Long.MAX_VALUE lands in the last one
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Adds a value, negative values count as 0
+     * @param value long
+     */
+    public void record(long value) {
+        if(value < 0)
+            value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns the number of values recorded
+     * @return long count
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the largest value recorded, 0 if there are none
+     * @return long max
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the average of the values recorded, 0 if there are none
+     * @return double mean
+     */
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall, to within 2%. 0 if nothing was recorded
+     * @param percentile between 0 and 100
+     * @return long value
+     */
+    public long valueAtPercentile(double percentile) {
+        long n = count.sum();
+        if(n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * n));
+        long seen = 0;
+        for(int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if(seen >= rank)
+                return Math.min(highestIn(b), max.get());
+        }
+        return max.get(); //Values recorded while we were counting
+    }
+
+    /**
+     * Forgets everything recorded so far. Values recorded at the same time may or may not survive
+     */
+    public void reset() {
+        for(int b = 0; b < BUCKETS; b++)
+            counts.set(b, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Returns count, mean, max and the usual percentiles in one go
+     * @return Summary
+     */
+    public Summary summary() {
+        return new Summary(count(), mean(), valueAtPercentile(50), valueAtPercentile(90), valueAtPercentile(99), valueAtPercentile(99.9), max());
+    }
+
+    static int bucketOf(long value) {
+        if(value < 2 * HALF)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1); //value >>> shift is between HALF and 2 * HALF - 1
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    static long highestIn(int bucket) {
+        if(bucket < 2 * HALF)
+            return bucket;
+        int shift = bucket / HALF - 1;
+        long lowest = (long) (bucket % HALF + HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Read-only copy of the main figures of a histogram, also how histograms are shown over JMX
+     */
+    public static final class Summary {
+        private final long count, p50, p90, p99, p999, max;
+        private final double mean;
+
+        Summary(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d", count, mean, p50, p90, p99, p999, max);
+        }
+    }
+}
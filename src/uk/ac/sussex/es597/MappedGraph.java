@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Read-only graph served straight from a memory-mapped GraphFile, opened with GraphFile.open.
+ * Stations and Lines are ids (their slot when the file was written) and every query reads the mapped pages,
+ * the operating system loads them on first use and can drop them again under memory pressure.
+ * Names are only decoded when asked for. toGraph() turns it back into a Graph of Vertex and Edge objects.
+ * The methods mirror CsrGraph.
+ * @author Edoardo Sanguineti
+ */
+public final class MappedGraph {
+    private static final int CHUNK_MASK = (1 << GraphFile.CHUNK_BITS) - 1;
+
+    private final ByteBuffer[] chunks;
+    private final int n, m;
+    private final long stringBytes;
+    //Where each section starts in the file
+    private final long vertexNames, edgeNames, offsets, weights, ends, targets, edgeIds, strings;
+
+    MappedGraph(ByteBuffer[] chunks, int n, int m, long d, long stringBytes) {
+        this.chunks = chunks;
+        this.n = n;
+        this.m = m;
+        this.stringBytes = stringBytes;
+
+        vertexNames = GraphFile.HEADER_BYTES;
+        edgeNames = vertexNames + 8L * (n + 1);
+        offsets = edgeNames + 8L * (m + 1);
+        weights = offsets + 8L * (n + 1);
+        ends = weights + 8L * m;
+        targets = ends + 8L * m;
+        edgeIds = targets + 4L * d;
+        strings = edgeIds + 4L * d;
+    }
+
+    long fileSize() {
+        return strings + stringBytes;
+    }
+
+    /**
+     * Returns the number of Stations
+     * @return int Vertices
+     */
+    public int numVertices() {
+        return n;
+    }
+
+    /**
+     * Returns the number of Lines
+     * @return int Edges
+     */
+    public int numEdges() {
+        return m;
+    }
+
+    /**
+     * Returns the name of a Station
+     * @param id int
+     * @return String
+     */
+    public String vertexName(int id) {
+        return name(vertexNames, id);
+    }
+
+    /**
+     * Returns the name of a Line
+     * @param id int
+     * @return String
+     */
+    public String edgeName(int id) {
+        return name(edgeNames, id);
+    }
+
+    /**
+     * Returns the weight of a Line
+     * @param id int
+     * @return double
+     */
+    public double weight(int id) {
+        return Double.longBitsToDouble(getLong(weights + 8L * id));
+    }
+
+    /**
+     * Returns the first end point of a Line, or -1 if it had none in the graph
+     * @param id int
+     * @return int Station id
+     */
+    public int endPointA(int id) {
+        return getInt(ends + 8L * id);
+    }
+
+    /**
+     * Returns the second end point of a Line, or -1 if it had none in the graph
+     * @param id int
+     * @return int Station id
+     */
+    public int endPointB(int id) {
+        return getInt(ends + 8L * id + 4);
+    }
+
+    /**
+     * Returns the number of Lines leaving the given Station
+     * @param v int id
+     * @return int degree
+     */
+    public int degree(int v) {
+        return (int) (start(v + 1) - start(v));
+    }
+
+    /**
+     * Returns the i-th neighbour of a Station
+     * @param v int id
+     * @param i position, between 0 and degree(v) - 1
+     * @return int id of the neighbour
+     */
+    public int neighbour(int v, int i) {
+        return getInt(targets + 4L * (start(v) + i));
+    }
+
+    /**
+     * Returns the Line used to reach the i-th neighbour of a Station
+     * @param v int id
+     * @param i position, between 0 and degree(v) - 1
+     * @return int id of the Line
+     */
+    public int neighbourEdge(int v, int i) {
+        return getInt(edgeIds + 4L * (start(v) + i));
+    }
+
+    /**
+     * Breadth-first traversal from a Station
+     * @param source int id
+     * @return the ids of the reachable Stations in visit order, source included
+     */
+    public int[] bfTraverse(int source) {
+        int[] queue = new int[n];
+        int count = bfs(source, queue, new boolean[n]);
+        return Arrays.copyOf(queue, count);
+    }
+
+    /**
+     * Hop distance from a Station to every other Station
+     * @param source int id
+     * @return array indexed by id, -1 where the Station cannot be reached
+     */
+    public int[] distances(int source) {
+        int[] dist = new int[n];
+        Arrays.fill(dist, -1);
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+
+        dist[source] = 0;
+        queue[tail++] = source;
+
+        while(head < tail) {
+            int w = queue[head++];
+            for(long i = start(w), end = start(w + 1); i < end; i++) {
+                int t = getInt(targets + 4L * i);
+                if(dist[t] < 0) {
+                    dist[t] = dist[w] + 1;
+                    queue[tail++] = t;
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Counts the Stations that can be reached from the given one, itself included
+     * @param source int id
+     * @return int count
+     */
+    public int countReachable(int source) {
+        return bfs(source, new int[n], new boolean[n]);
+    }
+
+    /**
+     * Returns true if all the Stations are connected, false if otherwise or if there are none
+     * @return Boolean connected
+     */
+    public boolean allConnected() {
+        return n > 0 && countReachable(0) == n;
+    }
+
+    /**
+     * Builds a Graph with the same Stations, Lines, names and weights, in the same slots as when the file was written
+     * @return Graph
+     */
+    public Graph toGraph() {
+        Graph g = new Graph(new ArrayList<>(n), new ArrayList<>(m));
+        ArrayList<Vertex> vertices = g.vertices();
+        for(int i = 0; i < n; i++)
+            g.insertVertex(vertexName(i));
+        for(int e = 0; e < m; e++) {
+            int a = endPointA(e), b = endPointB(e);
+            g.insertEdge(a < 0 ? null : vertices.get(a), b < 0 ? null : vertices.get(b), edgeName(e), weight(e));
+        }
+        return g;
+    }
+
+    private int bfs(int source, int[] queue, boolean[] visited) {
+        int head = 0, tail = 0;
+
+        visited[source] = true;
+        queue[tail++] = source;
+
+        while(head < tail) {
+            int w = queue[head++];
+            for(long i = start(w), end = start(w + 1); i < end; i++) {
+                int t = getInt(targets + 4L * i);
+                if(!visited[t]) {
+                    visited[t] = true;
+                    queue[tail++] = t;
+                }
+            }
+        }
+        return tail;
+    }
+
+    private long start(int v) {
+        return getLong(offsets + 8L * v);
+    }
+
+    /**
+     * Numbers never straddle two chunks: chunks are 1GB and every section is aligned on the size of its elements
+     */
+    private int getInt(long pos) {
+        return chunks[(int) (pos >>> GraphFile.CHUNK_BITS)].getInt((int) (pos & CHUNK_MASK));
+    }
+
+    private long getLong(long pos) {
+        return chunks[(int) (pos >>> GraphFile.CHUNK_BITS)].getLong((int) (pos & CHUNK_MASK));
+    }
+
+    /**
+     * Reads entry id of a name table, a negative start stands for a null name
+     */
+    private String name(long table, int id) {
+        long from = getLong(table + 8L * id), to = getLong(table + 8L * (id + 1));
+        if(from < 0)
+            return null;
+        return string(from, to < 0 ? ~to : to);
+    }
+
+    private String string(long from, long to) {
+        byte[] bytes = new byte[(int) (to - from)];
+        for(int i = 0; i < bytes.length; i++) { //Names may cross into the next chunk
+            long pos = strings + from + i;
+            bytes[i] = chunks[(int) (pos >>> GraphFile.CHUNK_BITS)].get((int) (pos & CHUNK_MASK));
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.TreeMap;
+
+/**
+ * Stations or Lines by name, kept up to date by the Graph once it has been asked for a lookup.
+ * Exact lookups go through a HashMap. Prefix searches go through a TreeMap sharing the same entries, which is only built on the
+ * first prefix search so that graphs that never autocomplete don't pay for it.
+ * A name used once maps straight to its item, a name shared by several items (the Lines of "Jubilee Line") to a set of them,
+ * so removing one of many is still O(1). Null names are not indexed.
+ * @author Edoardo Sanguineti
+ */
+@SuppressWarnings("unchecked") //Entries are either a T or a Shared of T
+final class NameIndex<T> {
+    private final HashMap<String, Object> exact = new HashMap<>();
+    private TreeMap<String, Object> sorted;
+
+    void add(String name, T item) {
+        if(name == null)
+            return;
+
+        Object entry = exact.get(name);
+        if(entry == null)
+            put(name, item);
+        else if(entry instanceof Shared)
+            ((Shared) entry).items.add(item);
+        else {
+            Shared shared = new Shared();
+            shared.items.add(entry);
+            shared.items.add(item);
+            put(name, shared);
+        }
+    }
+
+    void remove(String name, T item) {
+        if(name == null)
+            return;
+
+        Object entry = exact.get(name);
+        if(entry == item || (entry instanceof Shared && ((Shared) entry).items.remove(item) && ((Shared) entry).items.isEmpty())) {
+            exact.remove(name);
+            if(sorted != null)
+                sorted.remove(name);
+        }
+    }
+
+    /**
+     * Returns one of the items with the name, the first one added, or null
+     */
+    T first(String name) {
+        Object entry = name == null ? null : exact.get(name);
+        if(entry instanceof Shared)
+            return (T) ((Shared) entry).items.iterator().next();
+        return (T) entry;
+    }
+
+    /**
+     * Returns a new list of all the items with the name, in the order they were added
+     */
+    ArrayList<T> all(String name) {
+        ArrayList<T> found = new ArrayList<>();
+        Object entry = name == null ? null : exact.get(name);
+        if(entry instanceof Shared)
+            found.addAll((LinkedHashSet<T>) (LinkedHashSet<?>) ((Shared) entry).items);
+        else if(entry != null)
+            found.add((T) entry);
+        return found;
+    }
+
+    /**
+     * Returns up to k different names starting with the prefix, in alphabetical order
+     */
+    ArrayList<String> startingWith(String prefix, int k) {
+        if(sorted == null)
+            sorted = new TreeMap<>(exact);
+
+        ArrayList<String> found = new ArrayList<>();
+        for(String name : sorted.tailMap(prefix, true).keySet()) {
+            if(found.size() == k || !name.startsWith(prefix))
+                break;
+            found.add(name);
+        }
+        return found;
+    }
+
+    private void put(String name, Object entry) {
+        exact.put(name, entry);
+        if(sorted != null)
+            sorted.put(name, entry);
+    }
+
+    /**
+     * Items sharing a name. Wrapped in its own class so that it cannot be mistaken for an item
+     */
+    private static final class Shared {
+        final LinkedHashSet<Object> items = new LinkedHashSet<>(4);
+    }
+}
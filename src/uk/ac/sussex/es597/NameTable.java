@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Name to id table used while importing, so that a name seen on many lines is stored once and looked up straight from the input bytes.
+ * Ids are handed out in order from 0. The names are kept back to back in one UTF-8 byte array, and each entry of the hash table
+ * holds the hash, id, start and length of its name in two longs next to each other, so a lookup usually touches the table once
+ * and the bytes once, without creating a String for names that were already seen.
+ * @author Edoardo Sanguineti
+ */
+final class NameTable {
+    private byte[] bytes = new byte[1024]; //All the names, UTF-8
+    private String[] names = new String[16]; //Decoded once, by id
+    private long[] slots = new long[64]; //Pairs of (hash, id + 1) and (start, length) for 32 entries, 0 when free
+    private int size, used; //Names, and bytes taken by them
+
+    /**
+     * Returns the id of the name in buf[off] to buf[off + len - 1], giving it the next one if it has not been seen yet
+     * @param buf UTF-8 bytes
+     * @param off int
+     * @param len int
+     * @return int id
+     */
+    int intern(byte[] buf, int off, int len) {
+        int hash = hash(buf, off, len);
+        int mask = slots.length - 2;
+        int i = (mix(hash) << 1) & mask;
+
+        for(long slot; (slot = slots[i]) != 0; i = (i + 2) & mask) {
+            if((int) (slot >>> 32) == hash && sameBytes(slots[i + 1], buf, off, len))
+                return (int) slot - 1;
+        }
+
+        int id = size++;
+        if(size == names.length)
+            names = Arrays.copyOf(names, size * 2);
+        int start = used;
+        if(start + len > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + len));
+        System.arraycopy(buf, off, bytes, start, len);
+        used += len;
+        names[id] = new String(buf, off, len, StandardCharsets.UTF_8);
+
+        slots[i] = (long) hash << 32 | (id + 1);
+        slots[i + 1] = (long) start << 32 | len;
+        if(size * 4 > slots.length)
+            rehash();
+        return id;
+    }
+
+    /**
+     * Same as intern(byte[], int, int) for a name that is already a String
+     * @param name String, not null
+     * @return int id
+     */
+    int intern(String name) {
+        byte[] b = name.getBytes(StandardCharsets.UTF_8);
+        return intern(b, 0, b.length);
+    }
+
+    /**
+     * Returns the id of the name, or -1 if it has not been interned
+     * @param name String
+     * @return int id or -1
+     */
+    int find(String name) {
+        byte[] b = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(b, 0, b.length);
+        int mask = slots.length - 2;
+
+        for(long slot, i = (mix(hash) << 1) & mask; (slot = slots[(int) i]) != 0; i = (i + 2) & mask) {
+            if((int) (slot >>> 32) == hash && sameBytes(slots[(int) i + 1], b, 0, b.length))
+                return (int) slot - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the name with the given id, always the same String
+     * @param id int
+     * @return String
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param where start and length of a stored name, as kept in the table
+     */
+    private boolean sameBytes(long where, byte[] buf, int off, int len) {
+        int start = (int) (where >>> 32);
+        if((int) where != len)
+            return false;
+        for(int k = 0; k < len; k++) {
+            if(bytes[start + k] != buf[off + k])
+                return false;
+        }
+        return true;
+    }
+
+    private void rehash() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        int mask = slots.length - 2;
+        for(int j = 0; j < old.length; j += 2) {
+            if(old[j] != 0) {
+                int i = (mix((int) (old[j] >>> 32)) << 1) & mask;
+                while(slots[i] != 0)
+                    i = (i + 2) & mask;
+                slots[i] = old[j];
+                slots[i + 1] = old[j + 1];
+            }
+        }
+    }
+
+    private static int hash(byte[] buf, int off, int len) {
+        int h = 0;
+        for(int k = off; k < off + len; k++)
+            h = 31 * h + buf[k];
+        return h;
+    }
+
+    /**
+     * Hashes of similar names differ mostly in the low bits, spread them before masking
+     */
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Slots of the neighbours of a Station, read straight off its incidence list, behind Graph.neighbourIds.
+ * Lines or Stations that are no longer in the graph are skipped like the traversals do. Incidence lists are short, so it never splits
+ * @author Edoardo Sanguineti
+ */
+final class NeighbourSpliterator implements Spliterator.OfInt {
+    private final Graph graph;
+    private final Vertex v;
+    private final ArrayList<Edge> incidence;
+    private final int expectedModCount;
+    private int next;
+
+    NeighbourSpliterator(Graph graph, Vertex v) {
+        this.graph = graph;
+        this.v = v;
+        this.incidence = v.getIncidenceColl();
+        this.expectedModCount = graph.modCount;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        while(next < incidence.size()) {
+            Vertex o = graph.across(incidence.get(next++), v);
+            if(o != null) {
+                action.accept(o.index);
+                checkForComodification();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        for(; next < incidence.size(); next++) {
+            Vertex o = graph.across(incidence.get(next), v);
+            if(o != null)
+                action.accept(o.index);
+        }
+        checkForComodification();
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return incidence.size() - next;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    private void checkForComodification() {
+        if(graph.modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+}
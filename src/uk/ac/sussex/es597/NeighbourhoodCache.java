@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Least recently used cache of Graph.neighbourhood results, bounded by the total number of Stations held rather than the number of entries.
+ * Each Station of a cached ball points back to the entries holding it, split between the Stations closer than k Lines to the centre
+ * ("inner") and the ones exactly k Lines away. Inserting or removing a Line can only change a ball if one of its end points is an inner Station
+ * of it (a Line between two Stations on the edge of the ball, or leading out of it from there, changes nothing within k Lines), and
+ * removing a Station only matters to the balls it is in, so only those entries are dropped.
+ * Every entry remembers where each of its Stations lists it, so dropping an entry takes constant time per Station however many
+ * other balls the Station is in.
+ * The methods are synchronized, so neighbourhood queries can be made from several threads as long as nobody is changing the graph.
+ * @author Edoardo Sanguineti
+ */
+public final class NeighbourhoodCache {
+    /** Default bound on the Stations held by all the entries together */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final Graph graph;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); //Access order, eldest first
+    private final HashMap<Vertex, Holders> inner = new HashMap<>();
+    private final HashMap<Vertex, Holders> boundary = new HashMap<>();
+    private int capacity = DEFAULT_CAPACITY;
+    private long held;
+    private long hits, misses, evictions, invalidations;
+
+    NeighbourhoodCache(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Returns the Stations within k Lines of v, from the cache if possible
+     */
+    synchronized List<Vertex> get(Vertex v, int k) {
+        Key key = new Key(v, k);
+        Entry entry = entries.get(key);
+        if(entry != null) {
+            hits++;
+            return entry.view;
+        }
+        misses++;
+
+        TraversalResult r = graph.breadthFirst(v, k, null);
+        int[] order = r.order(), depths = r.depths();
+        Vertex[] ball = new Vertex[order.length];
+        for(int i = 0; i < order.length; i++)
+            ball[i] = graph.vertexAt(order[i]);
+
+        entry = new Entry(key, ball, depths);
+        if(ball.length > capacity) //Would push everything else out and then itself
+            return entry.view;
+
+        entries.put(key, entry);
+        for(int i = 0; i < ball.length; i++)
+            link(depths[i] < k ? inner : boundary, entry, i);
+        held += ball.length;
+        trim();
+        return entry.view;
+    }
+
+    /**
+     * Drops the entries a Line between v and w could have changed
+     */
+    synchronized void edgeChanged(Vertex v, Vertex w) {
+        if(entries.isEmpty())
+            return;
+        dropAll(inner.get(v));
+        dropAll(inner.get(w));
+    }
+
+    /**
+     * Drops the entries holding a Station that is being removed
+     */
+    synchronized void vertexRemoved(Vertex v) {
+        if(entries.isEmpty())
+            return;
+        dropAll(inner.get(v));
+        dropAll(boundary.get(v));
+    }
+
+    /**
+     * Returns the number of queries answered from the cache
+     * @return long hits
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of queries that had to traverse the graph
+     * @return long misses
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of queries answered from the cache, 0 if there were none
+     * @return double hit rate
+     */
+    public synchronized double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the number of entries pushed out to make room for newer ones
+     * @return long evictions
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of entries dropped because the graph changed around them
+     * @return long invalidations
+     */
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the number of cached balls
+     * @return int entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of Stations held by all the entries together
+     * @return long Stations
+     */
+    public synchronized long heldStations() {
+        return held;
+    }
+
+    /**
+     * Returns the bound on heldStations
+     * @return int capacity
+     */
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the bound on heldStations, evicting the least recently used entries if needed. 0 turns the cache off
+     * @param capacity int Stations
+     */
+    public synchronized void setCapacity(int capacity) {
+        if(capacity < 0)
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        this.capacity = capacity;
+        trim();
+    }
+
+    /**
+     * Empties the cache, the counters are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        inner.clear();
+        boundary.clear();
+        held = 0;
+    }
+
+    /**
+     * Zeroes hits, misses, evictions and invalidations
+     */
+    public synchronized void resetCounters() {
+        hits = misses = evictions = invalidations = 0;
+    }
+
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while(held > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            unlink(eldest);
+            evictions++;
+        }
+    }
+
+    private void dropAll(Holders affected) {
+        if(affected == null)
+            return;
+        for(Entry entry : Arrays.copyOf(affected.entries, affected.size)) { //unlink changes the list
+            entries.remove(entry.key);
+            unlink(entry);
+            invalidations++;
+        }
+    }
+
+    /**
+     * Lists the entry under its i-th Station
+     */
+    private static void link(HashMap<Vertex, Holders> index, Entry entry, int i) {
+        Holders list = index.get(entry.ball[i]);
+        if(list == null) {
+            list = new Holders();
+            index.put(entry.ball[i], list);
+        }
+        list.add(entry, i);
+    }
+
+    private void unlink(Entry entry) {
+        for(int i = 0; i < entry.ball.length; i++) {
+            HashMap<Vertex, Holders> index = entry.depths[i] < entry.key.k ? inner : boundary;
+            Holders list = index.get(entry.ball[i]);
+            list.remove(entry.slots[i]);
+            if(list.size == 0)
+                index.remove(entry.ball[i]);
+        }
+        held -= entry.ball.length;
+    }
+
+    private static final class Key {
+        private final Vertex centre;
+        private final int k;
+
+        Key(Vertex centre, int k) {
+            this.centre = centre;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return centre == other.centre && k == other.k;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(centre) * 31 + k;
+        }
+    }
+
+    /**
+     * Entries holding one Station: entries[j] has the Station at position at[j] of its ball, and remembers j in its slots
+     * so that it can be taken off in constant time (the last one moves into the hole, like Vertex.removeIncidenceEdge)
+     */
+    private static final class Holders {
+        private Entry[] entries = new Entry[2];
+        private int[] at = new int[2];
+        private int size;
+
+        void add(Entry entry, int i) {
+            if(size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                at = Arrays.copyOf(at, size * 2);
+            }
+            entries[size] = entry;
+            at[size] = i;
+            entry.slots[i] = size++;
+        }
+
+        void remove(int j) {
+            size--;
+            if(j != size) {
+                entries[j] = entries[size];
+                at[j] = at[size];
+                entries[j].slots[at[j]] = j;
+            }
+            entries[size] = null;
+        }
+    }
+
+    /**
+     * One cached ball, the centre first, with the depth of every Station in it and its position in that Station's Holders.
+     * The view handed out leaves the centre out
+     */
+    private static final class Entry {
+        private final Key key;
+        private final Vertex[] ball;
+        private final int[] depths;
+        private final int[] slots;
+        private final List<Vertex> view;
+
+        Entry(Key key, Vertex[] ball, int[] depths) {
+            this.key = key;
+            this.ball = ball;
+            this.depths = depths;
+            this.slots = new int[ball.length];
+            this.view = ball.length == 0 ? Collections.emptyList()
+                    : Collections.unmodifiableList(Arrays.asList(ball).subList(1, ball.length));
+        }
+    }
+}
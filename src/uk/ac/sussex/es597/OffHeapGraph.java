@@ -0,0 +1,975 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+
+/**
+ * Graph that keeps all of its data outside the Java heap, in DirectArenas: a fixed-size record per Station and per Line,
+ * the adjacency lists and the UTF-8 names. The heap only holds a few arrays of buffers, so however big the network
+ * the garbage collector has next to nothing to trace and pauses do not grow with it.
+ *
+ * Stations and Lines are ids (record numbers) that never change while they are in the graph; removed records go on a free list
+ * and are reused. The Vertex and Edge objects handed out are small handles made on demand: two handles for the same Station are
+ * equal() but not ==, and a handle kept after its Station was removed stops being contained in the graph even if the record is reused.
+ * Names are decoded every time getElement() is called (a null name is kept as a length of -1). A handle's incidence list is built
+ * on demand, and handles cannot be wired up by hand with addIncidenceEdge or setEndpoints. Lines have weights, as in Graph.
+ *
+ * Each Station lists its Lines as (Line, neighbour) pairs in a block of the adjacency arena, doubled when full, with blocks of the same size
+ * recycled through free lists, and every Line remembers where it sits in both lists so removals take constant time.
+ * Names are kept the same way, in power-of-two slots of the name arena, so removing and renaming does not make it grow.
+ * Like Graph it is not thread-safe. The memory is returned when the graph is garbage collected.
+ * @author Edoardo Sanguineti
+ */
+public final class OffHeapGraph implements GraphADT {
+    //Station record, in ints
+    private static final int V_STRIDE = 8;
+    private static final int V_GEN = 0, V_DEGREE = 1, V_CAP = 2, V_ADJ = 3, V_NAME = 4, V_NAME_LEN = 6; //V_NAME is a long
+    //Line record, in ints
+    private static final int E_STRIDE = 10;
+    private static final int E_GEN = 0, E_A = 1, E_B = 2, E_POS_A = 3, E_NAME = 4, E_POS_B = 6, E_NAME_LEN = 7, E_WEIGHT = 8; //E_NAME is a long, E_WEIGHT a double
+    private static final int NULL_NAME = -1; //Name length of a null name
+    //Traversal marks of a Station, in ints: stamp, distance and Line to the parent, once per side of a two-sided search
+    private static final int M_STRIDE = 8, M_STAMP = 0, M_DIST = 1, M_PARENT = 2, M_BACK = 4;
+
+    private final DirectArena stations = new DirectArena();
+    private final DirectArena lines = new DirectArena();
+    private final DirectArena adjacency = new DirectArena(); //(Line, neighbour) int pairs
+    private final DirectArena names = new DirectArena();
+    private final DirectArena marks = new DirectArena(), queue = new DirectArena(), queueBack = new DirectArena(); //Traversal scratch
+
+    private int vertexTop, edgeTop; //One past the highest record ever used
+    private int numVertices, numEdges;
+    private int freeVertex = -1, freeEdge = -1; //Free lists of records, linked through V_ADJ and E_B
+    private final int[] freeBlocks = new int[32]; //Free adjacency blocks by log2 of their size, linked through their first int
+    private long adjacencyTop; //In pairs
+    private final long[] freeNames = new long[64]; //Free name slots by log2 of their size, linked through their first long
+    private long nameTop, liveNameBytes;
+    private int epoch;
+
+    public OffHeapGraph() {
+        Arrays.fill(freeBlocks, -1);
+        Arrays.fill(freeNames, -1);
+    }
+
+    /**
+     * Copies any graph, Stations in the order of vertices() and Lines in the order of edges().
+     * Lines with an end point that is not one of the Stations are left out. The weights of a Graph or OffHeapGraph are copied,
+     * Lines of other GraphADTs get Graph.DEFAULT_WEIGHT
+     * @param g GraphADT
+     * @return OffHeapGraph
+     */
+    public static OffHeapGraph copyOf(GraphADT g) {
+        OffHeapGraph copy = new OffHeapGraph();
+        IdentityHashMap<Vertex, Vertex> map = new IdentityHashMap<>();
+        for(Vertex v : g.vertices())
+            map.put(v, copy.insertVertex(v.getElement()));
+        for(Edge e : g.edges()) {
+            Vertex a = map.get(e.getEndPointA()), b = map.get(e.getEndPointB());
+            if(a != null && b != null)
+                copy.insertEdge(a, b, e.getElement(), weightIn(g, e));
+        }
+        return copy;
+    }
+
+    /**
+     * Copies this graph back onto the heap, weights included
+     * @return Graph
+     */
+    public Graph toGraph() {
+        Graph g = new Graph(new ArrayList<>(numVertices), new ArrayList<>(numEdges));
+        Vertex[] byId = new Vertex[vertexTop];
+        for(int v = 0; v < vertexTop; v++) {
+            if(isVertex(v))
+                byId[v] = g.insertVertex(vertexName(v));
+        }
+        for(int e = 0; e < edgeTop; e++) {
+            if(isEdge(e))
+                g.insertEdge(byId[lineInt(e, E_A)], byId[lineInt(e, E_B)], edgeName(e), weight(e));
+        }
+        return g;
+    }
+
+    @Override
+    public Vertex insertVertex(String n) {
+        int v;
+        if(freeVertex >= 0) {
+            v = freeVertex;
+            freeVertex = stationInt(v, V_ADJ);
+        } else {
+            v = vertexTop++;
+            stations.ensure((long) vertexTop * V_STRIDE * 4);
+        }
+        setStationInt(v, V_DEGREE, 0);
+        setStationInt(v, V_CAP, 0);
+        setStationInt(v, V_ADJ, -1);
+        byte[] utf8 = encode(n);
+        stations.putLong(station(v, V_NAME), storeName(utf8));
+        setStationInt(v, V_NAME_LEN, length(utf8));
+        numVertices++;
+        return new VertexHandle(this, v, stationInt(v, V_GEN));
+    }
+
+    @Override
+    public String removeVertex(Vertex v) {
+        int id = idOf(v);
+        if(id < 0)
+            return null;
+        String name = vertexName(id);
+
+        while(stationInt(id, V_DEGREE) > 0) //Each removal takes the last Line off the list
+            removeLine(adjacency.getInt(pair(stationInt(id, V_ADJ), stationInt(id, V_DEGREE) - 1)));
+
+        int cap = stationInt(id, V_CAP);
+        if(cap > 0)
+            freeBlock(stationInt(id, V_ADJ), cap);
+        freeName(stations.getLong(station(id, V_NAME)), stationInt(id, V_NAME_LEN));
+        setStationInt(id, V_GEN, stationInt(id, V_GEN) + 1);
+        setStationInt(id, V_DEGREE, -1);
+        setStationInt(id, V_ADJ, freeVertex);
+        freeVertex = id;
+        numVertices--;
+        return name;
+    }
+
+    /**
+     * Both Stations must be in the graph, otherwise an IllegalArgumentException is thrown (like ConcurrentGraph)
+     */
+    @Override
+    public Edge insertEdge(Vertex v, Vertex w, String n) {
+        return insertEdge(v, w, n, Graph.DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Same as insertEdge, for a Line with a weight
+     * @param v Vertex
+     * @param w Vertex
+     * @param n Name
+     * @param weight Non-negative weight
+     * @return the new Edge
+     */
+    public Edge insertEdge(Vertex v, Vertex w, String n, double weight) {
+        Graph.checkWeight(weight);
+        int a = idOf(v), b = idOf(w);
+        if(a < 0 || b < 0)
+            throw new IllegalArgumentException("Both Stations must be in the graph: " + v + ", " + w);
+
+        int e;
+        if(freeEdge >= 0) {
+            e = freeEdge;
+            freeEdge = lineInt(e, E_B);
+        } else {
+            e = edgeTop++;
+            lines.ensure((long) edgeTop * E_STRIDE * 4);
+        }
+        setLineInt(e, E_A, a);
+        setLineInt(e, E_B, b);
+        setLineInt(e, E_POS_A, append(a, e, b));
+        setLineInt(e, E_POS_B, a == b ? -1 : append(b, e, a)); //A self-loop is only listed once, like in Graph
+        byte[] utf8 = encode(n);
+        lines.putLong(line(e, E_NAME), storeName(utf8));
+        setLineInt(e, E_NAME_LEN, length(utf8));
+        lines.putLong(line(e, E_WEIGHT), Double.doubleToRawLongBits(weight));
+        numEdges++;
+        return edgeHandle(e);
+    }
+
+    @Override
+    public String removeEdge(Edge e) {
+        int id = idOf(e);
+        if(id < 0)
+            return null;
+        String name = edgeName(id);
+        removeLine(id);
+        return name;
+    }
+
+    private void removeLine(int e) {
+        int a = lineInt(e, E_A), b = lineInt(e, E_B);
+        unlist(a, lineInt(e, E_POS_A));
+        if(a != b)
+            unlist(b, lineInt(e, E_POS_B));
+
+        freeName(lines.getLong(line(e, E_NAME)), lineInt(e, E_NAME_LEN));
+        setLineInt(e, E_GEN, lineInt(e, E_GEN) + 1);
+        setLineInt(e, E_A, -1);
+        setLineInt(e, E_B, freeEdge);
+        freeEdge = e;
+        numEdges--;
+    }
+
+    @Override
+    public Vertex opposite(Edge e, Vertex v) {
+        int line = idOf(e), station = idOf(v);
+        if(line < 0 || station < 0)
+            return null;
+        int a = lineInt(line, E_A), b = lineInt(line, E_B);
+        if(a == station)
+            return vertexAt(b);
+        if(b == station)
+            return vertexAt(a);
+        return null;
+    }
+
+    @Override
+    public ArrayList<Vertex> vertices() {
+        ArrayList<Vertex> list = new ArrayList<>(numVertices);
+        for(int v = 0; v < vertexTop; v++) {
+            if(isVertex(v))
+                list.add(new VertexHandle(this, v, stationInt(v, V_GEN)));
+        }
+        return list;
+    }
+
+    @Override
+    public ArrayList<Edge> edges() {
+        ArrayList<Edge> list = new ArrayList<>(numEdges);
+        for(int e = 0; e < edgeTop; e++) {
+            if(isEdge(e))
+                list.add(edgeHandle(e));
+        }
+        return list;
+    }
+
+    /**
+     * Scans the shorter of the two adjacency lists
+     */
+    @Override
+    public boolean areAdjacent(Vertex v, Vertex w) {
+        int a = idOf(v), b = idOf(w);
+        if(a < 0 || b < 0)
+            return false;
+        if(stationInt(b, V_DEGREE) < stationInt(a, V_DEGREE)) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int d = stationInt(a, V_DEGREE);
+        long block = stationInt(a, V_ADJ);
+        for(int i = 0; i < d; i++) {
+            if(adjacency.getInt(pair(block, i) + 4) == b)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public ArrayList<Edge> incidentEdges(Vertex v) {
+        int id = idOf(v);
+        if(id < 0)
+            return new ArrayList<>();
+        int d = stationInt(id, V_DEGREE);
+        long block = stationInt(id, V_ADJ);
+        ArrayList<Edge> list = new ArrayList<>(d);
+        for(int i = 0; i < d; i++) {
+            int e = adjacency.getInt(pair(block, i));
+            list.add(edgeHandle(e));
+        }
+        return list;
+    }
+
+    @Override
+    public String rename(Vertex v, String n) {
+        int id = idOf(v);
+        if(id < 0)
+            return null;
+        String old = vertexName(id);
+        byte[] utf8 = encode(n);
+        stations.putLong(station(id, V_NAME), replaceName(stations.getLong(station(id, V_NAME)), stationInt(id, V_NAME_LEN), utf8));
+        setStationInt(id, V_NAME_LEN, length(utf8));
+        return old;
+    }
+
+    @Override
+    public String rename(Edge e, String n) {
+        int id = idOf(e);
+        if(id < 0)
+            return null;
+        String old = edgeName(id);
+        byte[] utf8 = encode(n);
+        lines.putLong(line(id, E_NAME), replaceName(lines.getLong(line(id, E_NAME)), lineInt(id, E_NAME_LEN), utf8));
+        setLineInt(id, E_NAME_LEN, length(utf8));
+        return old;
+    }
+
+    /**
+     * Returns the weight of a Line, or NaN if it is not in the graph
+     * @param e Edge
+     * @return double weight
+     */
+    public double getWeight(Edge e) {
+        int id = idOf(e);
+        return id < 0 ? Double.NaN : weight(id);
+    }
+
+    /**
+     * Changes the weight of a Line; returns the old weight, or NaN if the Line is not in the graph
+     * @param e Edge
+     * @param weight Non-negative weight
+     * @return double old weight
+     */
+    public double setWeight(Edge e, double weight) {
+        Graph.checkWeight(weight);
+        int id = idOf(e);
+        if(id < 0)
+            return Double.NaN;
+        double old = weight(id);
+        lines.putLong(line(id, E_WEIGHT), Double.doubleToRawLongBits(weight));
+        return old;
+    }
+
+    /**
+     * Returns the number of Stations
+     * @return int Vertices
+     */
+    public int numVertices() {
+        return numVertices;
+    }
+
+    /**
+     * Returns the number of Lines
+     * @return int Edges
+     */
+    public int numEdges() {
+        return numEdges;
+    }
+
+    /**
+     * Checks if a Station is in the graph
+     * @param v Vertex
+     * @return true if it is a handle of this graph and its Station has not been removed since
+     */
+    public boolean contains(Vertex v) {
+        return idOf(v) >= 0;
+    }
+
+    /**
+     * Checks if a Line is in the graph
+     * @param e Edge
+     * @return true if it is a handle of this graph and its Line has not been removed since
+     */
+    public boolean contains(Edge e) {
+        return idOf(e) >= 0;
+    }
+
+    /**
+     * Returns the id of a Station, or -1 if it is not in the graph
+     * @param v Vertex
+     * @return int id
+     */
+    public int vertexId(Vertex v) {
+        return idOf(v);
+    }
+
+    /**
+     * Returns the id of a Line, or -1 if it is not in the graph
+     * @param e Edge
+     * @return int id
+     */
+    public int edgeId(Edge e) {
+        return idOf(e);
+    }
+
+    /**
+     * Returns a handle on the Station with the given id, or null if there is none
+     * @param id int
+     * @return Vertex
+     */
+    public Vertex vertexAt(int id) {
+        return id >= 0 && id < vertexTop && isVertex(id) ? new VertexHandle(this, id, stationInt(id, V_GEN)) : null;
+    }
+
+    /**
+     * Returns a handle on the Line with the given id, or null if there is none
+     * @param id int
+     * @return Edge
+     */
+    public Edge edgeAt(int id) {
+        return id >= 0 && id < edgeTop && isEdge(id) ? new EdgeHandle(this, id, lineInt(id, E_GEN)) : null;
+    }
+
+    /**
+     * Returns one more than the highest id in use, ids of removed Stations below it are skipped by vertices()
+     * @return int
+     */
+    public int vertexIdLimit() {
+        return vertexTop;
+    }
+
+    /**
+     * Returns the number of Lines of a Station
+     * @param v int id of a Station of the graph
+     * @return int degree
+     */
+    public int degree(int v) {
+        return stationInt(v, V_DEGREE);
+    }
+
+    /**
+     * Returns the i-th neighbour of a Station
+     * @param v int id
+     * @param i position, between 0 and degree(v) - 1
+     * @return int id of the neighbour
+     */
+    public int neighbour(int v, int i) {
+        return adjacency.getInt(pair(stationInt(v, V_ADJ), i) + 4);
+    }
+
+    /**
+     * Returns the Line used to reach the i-th neighbour of a Station
+     * @param v int id
+     * @param i position, between 0 and degree(v) - 1
+     * @return int id of the Line
+     */
+    public int neighbourEdge(int v, int i) {
+        return adjacency.getInt(pair(stationInt(v, V_ADJ), i));
+    }
+
+    /**
+     * Breadth-first traversal from a Station. The visited marks and the queue are off the heap too and reused from one traversal to the next
+     * @param source int id
+     * @return the ids of the reachable Stations in visit order, source included
+     */
+    public int[] bfTraverse(int source) {
+        if(source < 0 || source >= vertexTop || !isVertex(source))
+            return new int[0];
+        int count = bfs(source);
+        int[] order = new int[count];
+        for(int i = 0; i < count; i++)
+            order[i] = queue.getInt(4L * i);
+        return order;
+    }
+
+    /**
+     * Breadth-first traversal from a Station, like Graph.bfTraverse(v)
+     * @param v Starting station
+     */
+    public void bfTraverse(Vertex v) {
+        int id = idOf(v);
+        if(id >= 0)
+            bfs(id);
+    }
+
+    /**
+     * Breadth-first traversal of the whole graph, one connected component after the other, scanning every Station only once
+     */
+    public void bfTraverse() {
+        newSearch();
+        int tail = 0;
+        for(int v = 0; v < vertexTop; v++) {
+            if(isVertex(v) && marks.getInt(markAt(v, M_STAMP)) != epoch)
+                tail = expand(v, tail);
+        }
+    }
+
+    /**
+     * Returns all the Stations that can be reached from v, excluding v itself, in visit order
+     * @param v Starting station
+     * @return ArrayList the reachable Stations
+     */
+    public ArrayList<Vertex> allReachable(Vertex v) {
+        int id = idOf(v);
+        ArrayList<Vertex> found = new ArrayList<>();
+        if(id < 0)
+            return found;
+        int count = bfs(id);
+        for(int i = 1; i < count; i++) {
+            int w = queue.getInt(4L * i);
+            found.add(new VertexHandle(this, w, stationInt(w, V_GEN)));
+        }
+        return found;
+    }
+
+    /**
+     * Returns true if all the Stations are connected, false if otherwise or if there are none
+     * @return Boolean connected
+     */
+    public boolean allConnected() {
+        for(int v = 0; v < vertexTop; v++) {
+            if(isVertex(v))
+                return bfs(v) == numVertices;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a route from u to v with the fewest Lines, or null if there is none (or either is not in the graph).
+     * Like Graph, the search grows from both ends, a whole level of the smaller side at a time, and stops once the two sides meet
+     * @param u Start Station
+     * @param v End Station
+     * @return The Lines of the route in order from u to v, empty if u == v, or null
+     */
+    public ArrayList<Edge> mostDirectRoute(Vertex u, Vertex v) {
+        int from = idOf(u), to = idOf(v);
+        if(from < 0 || to < 0)
+            return null;
+        if(from == to)
+            return new ArrayList<>();
+        newSearch();
+        mark(from, 0, 0, -1);
+        mark(to, M_BACK, 0, -1);
+        queue.putInt(0, from);
+        queueBack.putInt(0, to);
+
+        int head = 0, tail = 1, headBack = 0, tailBack = 1;
+        int best = Integer.MAX_VALUE, meet = -1, meetBack = -1, meetLine = -1;
+        while(head < tail && headBack < tailBack && meet < 0) {
+            boolean forward = tail - head <= tailBack - headBack;
+            DirectArena q = forward ? queue : queueBack;
+            int side = forward ? 0 : M_BACK, other = M_BACK - side;
+            int at = forward ? head : headBack, end = forward ? tail : tailBack, next = end;
+
+            for(; at < end; at++) {
+                int w = q.getInt(4L * at);
+                int dist = marks.getInt(markAt(w, side + M_DIST));
+                int d = stationInt(w, V_DEGREE);
+                long block = stationInt(w, V_ADJ);
+                for(int i = 0; i < d; i++) {
+                    int e = adjacency.getInt(pair(block, i)), o = adjacency.getInt(pair(block, i) + 4);
+                    if(marks.getInt(markAt(o, other + M_STAMP)) == epoch) {
+                        int total = dist + 1 + marks.getInt(markAt(o, other + M_DIST));
+                        if(total < best) {
+                            best = total;
+                            meet = forward ? w : o;
+                            meetBack = forward ? o : w;
+                            meetLine = e;
+                        }
+                    }
+                    if(marks.getInt(markAt(o, side + M_STAMP)) != epoch) {
+                        mark(o, side, dist + 1, e);
+                        q.putInt(4L * next++, o);
+                    }
+                }
+            }
+            if(forward) {
+                head = end;
+                tail = next;
+            } else {
+                headBack = end;
+                tailBack = next;
+            }
+        }
+        if(meet < 0)
+            return null;
+
+        ArrayList<Edge> route = new ArrayList<>(best);
+        for(int x = meet; x != from; ) {
+            int e = marks.getInt(markAt(x, M_PARENT));
+            route.add(edgeHandle(e));
+            x = otherEnd(e, x);
+        }
+        Collections.reverse(route);
+        route.add(edgeHandle(meetLine));
+        for(int x = meetBack; x != to; ) {
+            int e = marks.getInt(markAt(x, M_BACK + M_PARENT));
+            route.add(edgeHandle(e));
+            x = otherEnd(e, x);
+        }
+        return route;
+    }
+
+    /**
+     * Returns the direct memory held by the graph, in bytes
+     * @return long bytes
+     */
+    public long offHeapBytes() {
+        return stations.capacity() + lines.capacity() + adjacency.capacity() + names.capacity()
+                + marks.capacity() + queue.capacity() + queueBack.capacity();
+    }
+
+    /**
+     * Returns the bytes of the name arena not holding a live name: free slots, waiting to be reused, and the unused end of each slot
+     * @return long bytes
+     */
+    public long wastedNameBytes() {
+        return nameTop - liveNameBytes;
+    }
+
+    /**
+     * The BFS itself, with the forward marks
+     * @return the number of Stations queued, source included
+     */
+    private int bfs(int source) {
+        newSearch();
+        return expand(source, 0);
+    }
+
+    /**
+     * Queues source at position tail and everything reachable from it that is not marked yet in this search
+     * @return the new end of the queue
+     */
+    private int expand(int source, int tail) {
+        int head = tail;
+        mark(source, 0, 0, -1);
+        queue.putInt(4L * tail++, source);
+
+        while(head < tail) {
+            int w = queue.getInt(4L * head++);
+            int d = stationInt(w, V_DEGREE);
+            long block = stationInt(w, V_ADJ);
+            for(int i = 0; i < d; i++) {
+                long at = pair(block, i);
+                int o = adjacency.getInt(at + 4);
+                if(marks.getInt(markAt(o, M_STAMP)) != epoch) {
+                    marks.putInt(markAt(o, M_STAMP), epoch);
+                    queue.putInt(4L * tail++, o);
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Makes room for marking every Station and starts a new epoch, so the marks of earlier searches no longer count
+     */
+    private void newSearch() {
+        long bytes = (long) vertexTop * M_STRIDE * 4;
+        marks.ensure(bytes);
+        queue.ensure(4L * vertexTop);
+        queueBack.ensure(4L * vertexTop);
+        if(++epoch == 0) { //Wrapped around, clear the stamps
+            for(long i = 0; i < bytes; i += 4)
+                marks.putInt(i, 0);
+            epoch = 1;
+        }
+    }
+
+    private void mark(int v, int side, int dist, int parent) {
+        marks.putInt(markAt(v, side + M_STAMP), epoch);
+        marks.putInt(markAt(v, side + M_DIST), dist);
+        marks.putInt(markAt(v, side + M_PARENT), parent);
+    }
+
+    private static long markAt(int v, int field) {
+        return ((long) v * M_STRIDE + field) * 4;
+    }
+
+    private int otherEnd(int e, int v) {
+        int a = lineInt(e, E_A);
+        return a == v ? lineInt(e, E_B) : a;
+    }
+
+    private EdgeHandle edgeHandle(int e) {
+        return new EdgeHandle(this, e, lineInt(e, E_GEN));
+    }
+
+    /**
+     * Adds a (Line, neighbour) pair at the end of the list of Station v, moving the list to a block twice the size if it is full
+     * @return the position of the pair
+     */
+    private int append(int v, int e, int neighbour) {
+        int d = stationInt(v, V_DEGREE), cap = stationInt(v, V_CAP);
+        if(d == cap) {
+            int grown = Math.max(2, cap * 2);
+            int block = allocBlock(grown);
+            if(cap > 0) {
+                adjacency.copyInts(pair(stationInt(v, V_ADJ), 0), pair(block, 0), 2 * d);
+                freeBlock(stationInt(v, V_ADJ), cap);
+            }
+            setStationInt(v, V_ADJ, block);
+            setStationInt(v, V_CAP, grown);
+        }
+        long at = pair(stationInt(v, V_ADJ), d);
+        adjacency.putInt(at, e);
+        adjacency.putInt(at + 4, neighbour);
+        setStationInt(v, V_DEGREE, d + 1);
+        return d;
+    }
+
+    /**
+     * Removes the pair at a position of the list of Station v, the last pair takes its place and its Line is told where it went
+     */
+    private void unlist(int v, int pos) {
+        int last = stationInt(v, V_DEGREE) - 1;
+        long block = stationInt(v, V_ADJ);
+        if(pos != last) {
+            int moved = adjacency.getInt(pair(block, last));
+            adjacency.copyInts(pair(block, last), pair(block, pos), 2);
+            if(lineInt(moved, E_A) == v && lineInt(moved, E_POS_A) == last)
+                setLineInt(moved, E_POS_A, pos);
+            else
+                setLineInt(moved, E_POS_B, pos);
+        }
+        setStationInt(v, V_DEGREE, last);
+    }
+
+    private int allocBlock(int size) {
+        int c = Integer.numberOfTrailingZeros(size);
+        int block = freeBlocks[c];
+        if(block >= 0) {
+            freeBlocks[c] = adjacency.getInt(pair(block, 0));
+            return block;
+        }
+        if(adjacencyTop + size > Integer.MAX_VALUE)
+            throw new IllegalStateException("Adjacency arena full");
+        block = (int) adjacencyTop;
+        adjacencyTop += size;
+        adjacency.ensure(adjacencyTop * 8);
+        return block;
+    }
+
+    private void freeBlock(int block, int size) {
+        int c = Integer.numberOfTrailingZeros(size);
+        adjacency.putInt(pair(block, 0), freeBlocks[c]);
+        freeBlocks[c] = block;
+    }
+
+    private static byte[] encode(String name) {
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] utf8) {
+        return utf8 == null ? NULL_NAME : utf8.length;
+    }
+
+    /**
+     * Returns the size of the slot a name of len bytes is kept in: a power of two of at least 8 bytes, or 0 for null and empty names
+     */
+    private static long slotSize(int len) {
+        return len <= 0 ? 0 : Math.max(8, Long.highestOneBit(len - 1L) << 1);
+    }
+
+    private long storeName(byte[] utf8) {
+        long size = slotSize(length(utf8));
+        if(size == 0)
+            return 0; //Nothing to store, the length says it is null or empty
+        int c = Long.numberOfTrailingZeros(size);
+        long at = freeNames[c];
+        if(at >= 0) {
+            freeNames[c] = names.getLong(at);
+        } else {
+            at = nameTop; //Every slot is a multiple of 8 bytes, so the links stay 8-byte aligned
+            nameTop += size;
+            names.ensure(nameTop);
+        }
+        names.put(at, utf8, utf8.length);
+        liveNameBytes += utf8.length;
+        return at;
+    }
+
+    /**
+     * Puts the slot of a name of len bytes on the free list of its size
+     */
+    private void freeName(long at, int len) {
+        long size = slotSize(len);
+        if(size == 0)
+            return;
+        int c = Long.numberOfTrailingZeros(size);
+        names.putLong(at, freeNames[c]);
+        freeNames[c] = at;
+        liveNameBytes -= len;
+    }
+
+    /**
+     * Writes a new name over the old one if it takes a slot of the same size, otherwise frees the old slot and stores it again
+     */
+    private long replaceName(long at, int oldLength, byte[] utf8) {
+        int len = length(utf8);
+        if(slotSize(len) != 0 && slotSize(len) == slotSize(oldLength)) {
+            names.put(at, utf8, len);
+            liveNameBytes += len - oldLength;
+            return at;
+        }
+        freeName(at, oldLength);
+        return storeName(utf8);
+    }
+
+    String vertexName(int v) {
+        return decode(stations.getLong(station(v, V_NAME)), stationInt(v, V_NAME_LEN));
+    }
+
+    String edgeName(int e) {
+        return decode(lines.getLong(line(e, E_NAME)), lineInt(e, E_NAME_LEN));
+    }
+
+    private double weight(int e) {
+        return Double.longBitsToDouble(lines.getLong(line(e, E_WEIGHT)));
+    }
+
+    private static double weightIn(GraphADT g, Edge e) {
+        if(g instanceof Graph)
+            return ((Graph) g).getWeight(e);
+        if(g instanceof OffHeapGraph)
+            return ((OffHeapGraph) g).getWeight(e);
+        return Graph.DEFAULT_WEIGHT;
+    }
+
+    private String decode(long at, int len) {
+        if(len == NULL_NAME)
+            return null;
+        byte[] utf8 = new byte[len];
+        names.get(at, utf8, len);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the id behind a handle of this graph, or -1 if it is not one or its Station is gone
+     */
+    private int idOf(Vertex v) {
+        if(!(v instanceof VertexHandle))
+            return -1;
+        VertexHandle h = (VertexHandle) v;
+        return h.graph == this && isVertex(h.id) && stationInt(h.id, V_GEN) == h.gen ? h.id : -1;
+    }
+
+    private int idOf(Edge e) {
+        if(!(e instanceof EdgeHandle))
+            return -1;
+        EdgeHandle h = (EdgeHandle) e;
+        return h.graph == this && isEdge(h.id) && lineInt(h.id, E_GEN) == h.gen ? h.id : -1;
+    }
+
+    private boolean isVertex(int v) {
+        return stationInt(v, V_DEGREE) >= 0;
+    }
+
+    private boolean isEdge(int e) {
+        return lineInt(e, E_A) >= 0;
+    }
+
+    private static long station(int v, int field) {
+        return ((long) v * V_STRIDE + field) * 4;
+    }
+
+    private static long line(int e, int field) {
+        return ((long) e * E_STRIDE + field) * 4;
+    }
+
+    private static long pair(long block, int i) {
+        return (block + i) * 8;
+    }
+
+    private int stationInt(int v, int field) {
+        return stations.getInt(station(v, field));
+    }
+
+    private void setStationInt(int v, int field, int value) {
+        stations.putInt(station(v, field), value);
+    }
+
+    private int lineInt(int e, int field) {
+        return lines.getInt(line(e, field));
+    }
+
+    private void setLineInt(int e, int field, int value) {
+        lines.putInt(line(e, field), value);
+    }
+
+    /**
+     * A Station of an OffHeapGraph: the graph, the record and the generation of the record when the handle was made
+     */
+    private static final class VertexHandle extends Vertex {
+        private final OffHeapGraph graph;
+        private final int id, gen;
+
+        VertexHandle(OffHeapGraph graph, int id, int gen) {
+            this.graph = graph;
+            this.id = id;
+            this.gen = gen;
+        }
+
+        @Override
+        public String getElement() {
+            return graph.idOf(this) < 0 ? null : graph.vertexName(id);
+        }
+
+        @Override
+        public void setElement(String s) {
+            graph.rename(this, s);
+        }
+
+        @Override
+        public void addIncidenceEdge(Edge e) {
+            throw new UnsupportedOperationException("Lines of an OffHeapGraph are added with insertEdge");
+        }
+
+        @Override
+        public ArrayList<Edge> getIncidenceColl() {
+            return graph.incidentEdges(this);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof VertexHandle))
+                return false;
+            VertexHandle h = (VertexHandle) o;
+            return h.graph == graph && h.id == id && h.gen == gen;
+        }
+
+        @Override
+        public int hashCode() {
+            return id * 31 + gen;
+        }
+    }
+
+    /**
+     * A Line of an OffHeapGraph, same idea as VertexHandle
+     */
+    private static final class EdgeHandle extends Edge {
+        private final OffHeapGraph graph;
+        private final int id, gen;
+
+        EdgeHandle(OffHeapGraph graph, int id, int gen) {
+            super(null);
+            this.graph = graph;
+            this.id = id;
+            this.gen = gen;
+        }
+
+        @Override
+        public String getElement() {
+            return graph.idOf(this) < 0 ? null : graph.edgeName(id);
+        }
+
+        @Override
+        public void setElement(String s) {
+            graph.rename(this, s);
+        }
+
+        @Override
+        public void setEndpoints(Vertex a, Vertex b) {
+            throw new UnsupportedOperationException("Lines of an OffHeapGraph get their end points from insertEdge");
+        }
+
+        @Override
+        public Vertex getEndPointA() {
+            return graph.idOf(this) < 0 ? null : graph.vertexAt(graph.lineInt(id, E_A));
+        }
+
+        @Override
+        public Vertex getEndPointB() {
+            return graph.idOf(this) < 0 ? null : graph.vertexAt(graph.lineInt(id, E_B));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof EdgeHandle))
+                return false;
+            EdgeHandle h = (EdgeHandle) o;
+            return h.graph == graph && h.id == id && h.gen == gen;
+        }
+
+        @Override
+        public int hashCode() {
+            return id * 31 + gen;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Level-synchronous breadth-first search over a CsrGraph that spreads every level over a ForkJoinPool.
+ * While the frontier is small each level goes top-down: workers take slices of the frontier, claim unvisited neighbours
+ * by setting their bit in the visited bitmap with a compare-and-set on its long word, and collect them in their own buffer,
+ * the buffers then make up the next frontier. Once the frontier gets large compared with the Lines still to check the search
+ * goes bottom-up (direction-optimizing BFS, Beamer et al.): every unvisited Station looks for a neighbour in the frontier and
+ * stops at the first one, each worker owning whole words of the bitmap so no CAS is needed. It goes back to top-down when the frontier shrinks.
+ * Results are the same as the sequential methods of CsrGraph.
+ * @author Edoardo Sanguineti
+ */
+public final class ParallelBfs {
+    private static final int GRAIN = 2048; //Frontier entries or Stations per task, smaller levels run in the calling thread
+    private static final int ALPHA = 14; //Bottom-up once the frontier has more than 1/ALPHA of the Lines left to check
+    private static final int BETA = 24; //Top-down again once the frontier has less than 1/BETA of the Stations
+
+    private final CsrGraph graph;
+    private final ForkJoinPool pool;
+
+    /**
+     * Runs on the common pool
+     * @param graph CsrGraph
+     */
+    public ParallelBfs(CsrGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public ParallelBfs(CsrGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    /**
+     * Hop distance from a Station to every other Station, like CsrGraph.distances
+     * @param source int id
+     * @return array indexed by id, -1 where the Station cannot be reached
+     */
+    public int[] distances(int source) {
+        int[] dist = new int[graph.numVertices()];
+        Arrays.fill(dist, -1);
+        new Search(dist).run(source);
+        return dist;
+    }
+
+    /**
+     * Counts the Stations that can be reached from the given one, itself included, like CsrGraph.countReachable
+     * @param source int id
+     * @return int count
+     */
+    public int countReachable(int source) {
+        return new Search(null).run(source);
+    }
+
+    /**
+     * Returns true if all the Stations are connected, false if otherwise or if there are no Stations
+     * @return Boolean connected
+     */
+    public boolean allConnected() {
+        int n = graph.numVertices();
+        return n > 0 && countReachable(0) == n;
+    }
+
+    /**
+     * State of one search
+     */
+    private final class Search {
+        private final int n = graph.numVertices();
+        private final int[] offsets = graph.offsets, targets = graph.targets;
+        private final AtomicLongArray visited = new AtomicLongArray((n + 63) >>> 6);
+        private final int[] dist; //Null when only counting
+        private int level;
+
+        //Current frontier, as a list when going top-down and as a bitmap when going bottom-up
+        private int[] frontier = new int[16];
+        private int frontierSize;
+        private long[] frontierBits, frontierNext;
+        private long frontierEdges; //Sum of the degrees of the frontier
+
+        //What the tasks of the current level found
+        private int[][] parts;
+        private int[] partSizes;
+        private long[] partEdges;
+
+        Search(int[] dist) {
+            this.dist = dist;
+        }
+
+        int run(int source) {
+            visited.set(source >>> 6, 1L << source);
+            if(dist != null)
+                dist[source] = 0;
+            frontier[0] = source;
+            frontierSize = 1;
+            frontierEdges = degree(source);
+
+            long edgesLeft = offsets[n] - frontierEdges; //Lines of the Stations not visited yet
+            int count = 1;
+            boolean bottomUp = false;
+
+            while(frontierSize > 0) {
+                if(!bottomUp && frontierEdges > edgesLeft / ALPHA) {
+                    bottomUp = true;
+                    frontierBits = toBits();
+                } else if(bottomUp && frontierSize < n / BETA) {
+                    bottomUp = false;
+                    frontier = toList();
+                }
+
+                if(bottomUp)
+                    bottomUpLevel();
+                else
+                    topDownLevel();
+
+                level++;
+                count += frontierSize;
+                edgesLeft -= frontierEdges;
+            }
+            return count;
+        }
+
+        private void topDownLevel() {
+            int tasks = (frontierSize + GRAIN - 1) / GRAIN;
+            startLevel(tasks);
+            if(tasks == 1)
+                topDown(0, 0, frontierSize);
+            else
+                pool.invoke(new Split(0, tasks, false));
+
+            int size = 0;
+            long edges = 0;
+            for(int t = 0; t < tasks; t++) {
+                size += partSizes[t];
+                edges += partEdges[t];
+            }
+
+            int[] next = frontier.length >= size ? frontier : new int[Math.max(size, frontier.length * 2)];
+            int pos = 0;
+            for(int t = 0; t < tasks; t++) {
+                System.arraycopy(parts[t], 0, next, pos, partSizes[t]);
+                pos += partSizes[t];
+            }
+            frontier = next;
+            frontierSize = size;
+            frontierEdges = edges;
+        }
+
+        /**
+         * One slice of the frontier, claiming the neighbours with a CAS
+         */
+        private void topDown(int task, int from, int to) {
+            int[] buffer = new int[Math.max(16, (to - from) * 2)];
+            int size = 0;
+            long edges = 0;
+
+            for(int i = from; i < to; i++) {
+                int w = frontier[i];
+                for(int k = offsets[w]; k < offsets[w + 1]; k++) {
+                    int t = targets[k];
+                    if(claim(t)) {
+                        if(dist != null)
+                            dist[t] = level + 1;
+                        if(size == buffer.length)
+                            buffer = Arrays.copyOf(buffer, size * 2);
+                        buffer[size++] = t;
+                        edges += degree(t);
+                    }
+                }
+            }
+            parts[task] = buffer;
+            partSizes[task] = size;
+            partEdges[task] = edges;
+        }
+
+        private boolean claim(int t) {
+            int w = t >>> 6;
+            long bit = 1L << t;
+            long old;
+            do {
+                old = visited.get(w);
+                if((old & bit) != 0)
+                    return false;
+            } while(!visited.compareAndSet(w, old, old | bit));
+            return true;
+        }
+
+        private void bottomUpLevel() {
+            int words = visited.length();
+            int wordsPerTask = GRAIN >>> 6;
+            int tasks = (words + wordsPerTask - 1) / wordsPerTask;
+            long[] next = new long[words];
+
+            startLevel(tasks);
+            frontierNext = next;
+            if(tasks == 1)
+                bottomUp(0, 0, words);
+            else
+                pool.invoke(new Split(0, tasks, true));
+
+            int size = 0;
+            long edges = 0;
+            for(int t = 0; t < tasks; t++) {
+                size += partSizes[t];
+                edges += partEdges[t];
+            }
+            frontierBits = next;
+            frontierSize = size;
+            frontierEdges = edges;
+        }
+
+        /**
+         * Every unvisited Station of the words [from, to) looks for a parent in the frontier.
+         * The task owns these words of the visited bitmap, nobody else writes them during the level
+         */
+        private void bottomUp(int task, int from, int to) {
+            long[] current = frontierBits, next = frontierNext;
+            int size = 0;
+            long edges = 0;
+
+            for(int w = from; w < to; w++) {
+                long seen = visited.get(w), found = 0;
+                long unvisited = ~seen;
+                if(w == (n - 1) >>> 6 && (n & 63) != 0)
+                    unvisited &= (1L << n) - 1; //Bits past the last Station
+
+                while(unvisited != 0) {
+                    int v = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+                    unvisited &= unvisited - 1;
+
+                    for(int k = offsets[v]; k < offsets[v + 1]; k++) {
+                        int t = targets[k];
+                        if((current[t >>> 6] & (1L << t)) != 0) {
+                            found |= 1L << v;
+                            if(dist != null)
+                                dist[v] = level + 1;
+                            size++;
+                            edges += degree(v);
+                            break;
+                        }
+                    }
+                }
+                if(found != 0) {
+                    visited.set(w, seen | found);
+                    next[w] = found;
+                }
+            }
+            partSizes[task] = size;
+            partEdges[task] = edges;
+        }
+
+        private void startLevel(int tasks) {
+            if(partSizes == null || partSizes.length < tasks) {
+                parts = new int[tasks][];
+                partSizes = new int[tasks];
+                partEdges = new long[tasks];
+            }
+        }
+
+        private long[] toBits() {
+            long[] bits = new long[visited.length()];
+            for(int i = 0; i < frontierSize; i++)
+                bits[frontier[i] >>> 6] |= 1L << frontier[i];
+            return bits;
+        }
+
+        private int[] toList() {
+            int[] list = frontier.length >= frontierSize ? frontier : new int[frontierSize];
+            int pos = 0;
+            for(int w = 0; w < frontierBits.length; w++) {
+                for(long bits = frontierBits[w]; bits != 0; bits &= bits - 1)
+                    list[pos++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            return list;
+        }
+
+        private int degree(int v) {
+            return offsets[v + 1] - offsets[v];
+        }
+
+        /**
+         * Splits the tasks of a level in halves until there is one left, which then runs its slice
+         */
+        private final class Split extends RecursiveAction {
+            private static final long serialVersionUID = 1L; //Never serialized, ForkJoinTask is Serializable
+            private final int from, to;
+            private final boolean bottomUp;
+
+            Split(int from, int to, boolean bottomUp) {
+                this.from = from;
+                this.to = to;
+                this.bottomUp = bottomUp;
+            }
+
+            @Override
+            protected void compute() {
+                if(to - from > 1) {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new Split(from, mid, bottomUp), new Split(mid, to, bottomUp));
+                } else if(bottomUp) {
+                    int wordsPerTask = GRAIN >>> 6;
+                    bottomUp(from, from * wordsPerTask, Math.min(visited.length(), (from + 1) * wordsPerTask));
+                } else {
+                    topDown(from, from * GRAIN, Math.min(frontierSize, (from + 1) * GRAIN));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+/**
+ * Array that can be frozen in constant time, a 32-way trie of small blocks.
+ * Blocks remember the owner (an edit token) they were created for: while the token stays the same they are changed in place,
+ * after a new token is handed out every block is frozen and the first change to one copies it and the blocks above it.
+ * A frozen root, with its shift, is therefore an immutable copy of the whole array that shares all the untouched blocks.
+ * @author Edoardo Sanguineti
+ */
+final class PersistentArray {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private Block root;
+    private int shift; //Levels below the root times BITS
+
+    PersistentArray(Object owner) {
+        root = new Block(owner);
+    }
+
+    Block root() {
+        return root;
+    }
+
+    int shift() {
+        return shift;
+    }
+
+    Object get(int i) {
+        return get(root, shift, i);
+    }
+
+    /**
+     * Reads from any version of the array
+     */
+    static Object get(Block root, int shift, int i) {
+        if(i < 0 || i >>> shift >= WIDTH)
+            return null;
+
+        Block b = root;
+        for(int s = shift; s > 0 && b != null; s -= BITS)
+            b = (Block) b.slots[(i >>> s) & MASK];
+        return b == null ? null : b.slots[i & MASK];
+    }
+
+    /**
+     * Stores x at i, growing the trie if needed. Blocks that don't belong to owner are copied on the way down
+     */
+    void set(int i, Object x, Object owner) {
+        while(i >>> shift >= WIDTH) {
+            Block top = new Block(owner);
+            top.slots[0] = root;
+            root = top;
+            shift += BITS;
+        }
+
+        root = editable(root, owner);
+        Block b = root;
+        for(int s = shift; s > 0; s -= BITS) {
+            int j = (i >>> s) & MASK;
+            Block child = (Block) b.slots[j];
+            child = child == null ? new Block(owner) : editable(child, owner);
+            b.slots[j] = child;
+            b = child;
+        }
+        b.slots[i & MASK] = x;
+    }
+
+    private static Block editable(Block b, Object owner) {
+        if(b.owner == owner)
+            return b;
+
+        Block copy = new Block(owner);
+        System.arraycopy(b.slots, 0, copy.slots, 0, WIDTH);
+        return copy;
+    }
+
+    static final class Block {
+        private final Object owner;
+        private final Object[] slots = new Object[WIDTH];
+
+        Block(Object owner) {
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only Set of Stations backed by a bitset over their slots in the Graph.
+ * It costs one bit per Station of the graph instead of a reference per reachable Station, and the Vertex objects are only looked up while iterating.
+ * Slots move when the graph is modified, so any use of the Set after that throws a ConcurrentModificationException
+ * @author Edoardo Sanguineti
+ */
+final class ReachableSet extends AbstractSet<Vertex> {
+    private final Graph graph;
+    private final long[] bits;
+    private final int size;
+    private final int expectedModCount;
+
+    ReachableSet(Graph graph, long[] bits) {
+        this.graph = graph;
+        this.bits = bits;
+        this.expectedModCount = graph.modCount;
+
+        int count = 0;
+        for(long word : bits)
+            count += Long.bitCount(word);
+        this.size = count;
+    }
+
+    @Override
+    public int size() {
+        checkForComodification();
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        checkForComodification();
+        if(!(o instanceof Vertex) || !graph.contains((Vertex) o))
+            return false;
+
+        int id = ((Vertex) o).index;
+        return (bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    @Override
+    public Iterator<Vertex> iterator() {
+        checkForComodification();
+        return new Iterator<Vertex>() {
+            private int word = 0;
+            private long remaining = bits.length > 0 ? bits[0] : 0;
+
+            @Override
+            public boolean hasNext() {
+                while(remaining == 0 && word < bits.length - 1)
+                    remaining = bits[++word];
+                return remaining != 0;
+            }
+
+            @Override
+            public Vertex next() {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                checkForComodification();
+
+                int id = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1; //Clear the lowest bit
+                return graph.vertices().get(id);
+            }
+        };
+    }
+
+    private void checkForComodification() {
+        if(graph.modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Estimate of the weight still needed to travel between two Stations, used to guide A* in Router.
+ * It must never overestimate, and it should not decrease by more than the weight of a Line when moving across it (straight-line distance does both)
+ * @author Edoardo Sanguineti
+ */
+@FunctionalInterface
+public interface RouteHeuristic {
+    
+    /**
+     * Lower bound on the weight of any route from one Station to the other
+     * @param from Vertex
+     * @param to Vertex
+     * @return double estimate
+     */
+    public double estimate(Vertex from, Vertex to);
+    
+    /**
+     * Heuristic that ignores the destination, A* then behaves like Dijkstra
+     */
+    public static final RouteHeuristic NONE = (from, to) -> 0;
+    
+    /**
+     * Straight-line distance between the coordinates of two Stations, scaled by the smallest weight per unit of distance of any Line
+     * @param x x coordinate of a Station
+     * @param y y coordinate of a Station
+     * @param weightPerUnit minimum weight per unit of distance, e.g. 1 / top speed for travel times
+     * @return RouteHeuristic
+     */
+    public static RouteHeuristic straightLine(ToDoubleFunction<Vertex> x, ToDoubleFunction<Vertex> y, double weightPerUnit) {
+        return (from, to) -> {
+            double dx = x.applyAsDouble(from) - x.applyAsDouble(to);
+            double dy = y.applyAsDouble(from) - y.applyAsDouble(to);
+            return Math.sqrt(dx * dx + dy * dy) * weightPerUnit;
+        };
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Weighted routing over a Graph, using the weight column of the graph as the cost of each Line.
+ * Dijkstra and A* share the same search: Stations are identified by their slot and the tentative distances, parent Lines and
+ * the indexed heap are per-thread primitive arrays reused between queries (stamped with the query number instead of being cleared)
+ * @author Edoardo Sanguineti
+ */
+public final class Router {
+    private final Graph graph;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public Router(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Lightest route from u to v with Dijkstra's algorithm
+     * @param u Start Station
+     * @param v End Station
+     * @return The Lines of the route in order, empty if u == v, or null if v cannot be reached
+     */
+    public ArrayList<Edge> dijkstra(Vertex u, Vertex v) {
+        return aStar(u, v, RouteHeuristic.NONE);
+    }
+
+    /**
+     * Lightest route from u to v with A*, exploring Stations in order of weight so far plus the heuristic estimate of what is left
+     * @param u Start Station
+     * @param v End Station
+     * @param h Lower bound on the remaining weight
+     * @return The Lines of the route in order, empty if u == v, or null if v cannot be reached
+     */
+    public ArrayList<Edge> aStar(Vertex u, Vertex v, RouteHeuristic h) {
+        if(!graph.contains(u) || !graph.contains(v))
+            return null;
+        if(u == v)
+            return new ArrayList<>();
+
+        Scratch s = acquire();
+        try {
+            s.begin(graph.numVertices());
+            return search(s, u, v, h == RouteHeuristic.NONE ? null : h) ? buildRoute(s, v) : null;
+        } finally {
+            s.heap.clear();
+            release(s);
+        }
+    }
+
+    /**
+     * Returns the number of Stations settled by the last query of this thread, to see how much A* saves
+     * @return int settled Stations
+     */
+    public int lastSettled() {
+        return scratch.get().settled;
+    }
+
+    /**
+     * Returns the number of Lines looked at by the last query of this thread
+     * @return long scanned Lines
+     */
+    public long lastScanned() {
+        return scratch.get().scanned;
+    }
+
+    private boolean search(Scratch s, Vertex u, Vertex v, RouteHeuristic h) {
+        ArrayList<Vertex> vertices = graph.vertices();
+        double[] weights = graph.weights();
+        double[] dist = s.dist;
+        int[] parent = s.parent, stamp = s.stamp;
+        IndexedMinHeap heap = s.heap;
+        int epoch = s.epoch, target = v.index;
+
+        stamp[u.index] = epoch;
+        dist[u.index] = 0;
+        parent[u.index] = -1;
+        heap.insertOrDecrease(u.index, h == null ? 0 : h.estimate(u, v));
+        s.settled = 0;
+        s.scanned = 0;
+
+        while(!heap.isEmpty()) {
+            int w = heap.poll();
+            s.settled++;
+            if(w == target)
+                return true;
+
+            Vertex wv = vertices.get(w);
+            ArrayList<Edge> incidentEdges = wv.getIncidenceColl();
+            s.scanned += incidentEdges.size();
+            for(int i = 0; i < incidentEdges.size(); i++) {
+                Edge e = incidentEdges.get(i);
+                Vertex o = graph.across(e, wv);
+                if(o == null)
+                    continue;
+
+                int id = o.index;
+                double d = dist[w] + weights[e.index];
+                if(stamp[id] != epoch || d < dist[id]) {
+                    //An already settled Station can only improve with an inconsistent heuristic, it simply goes back in the heap
+                    stamp[id] = epoch;
+                    dist[id] = d;
+                    parent[id] = e.index;
+                    heap.insertOrDecrease(id, h == null ? d : d + h.estimate(o, v));
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Follows the parent Lines from v back to the start
+     */
+    private ArrayList<Edge> buildRoute(Scratch s, Vertex v) {
+        ArrayList<Vertex> vertices = graph.vertices();
+        ArrayList<Edge> edges = graph.edges();
+        ArrayList<Edge> path = new ArrayList<>();
+        int x = v.index;
+
+        while(s.parent[x] >= 0) {
+            Edge e = edges.get(s.parent[x]);
+            Vertex xv = vertices.get(x);
+            path.add(e);
+            x = (e.getEndPointA() == xv ? e.getEndPointB() : e.getEndPointA()).index;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Hands out this thread's scratch space, or a fresh one if the thread is already inside a query (e.g. from a heuristic)
+     */
+    private Scratch acquire() {
+        Scratch s = scratch.get();
+        if(s.inUse)
+            return new Scratch();
+        s.inUse = true;
+        return s;
+    }
+
+    private void release(Scratch s) {
+        s.inUse = false;
+    }
+
+    /**
+     * Per-thread distances, parents and heap
+     */
+    private static final class Scratch {
+        private double[] dist = new double[0];
+        private int[] parent = new int[0];
+        private int[] stamp = new int[0];
+        private IndexedMinHeap heap = new IndexedMinHeap(0);
+        private int epoch;
+        private int settled;
+        private long scanned;
+        private boolean inUse;
+
+        /**
+         * Starts a new query over n Stations, growing the arrays only if the graph got bigger
+         */
+        void begin(int n) {
+            if(stamp.length < n) {
+                dist = new double[n];
+                parent = new int[n];
+                stamp = new int[n];
+                heap = new IndexedMinHeap(n);
+                epoch = 0;
+            }
+            if(++epoch == 0) { //Wrapped around, old stamps could look current again
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+        }
+    }
+}
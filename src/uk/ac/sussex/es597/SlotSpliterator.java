@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Read-only Spliterator over a range of slots of the vertices or edges list of a Graph, behind vertexStream() and edgeStream().
+ * Splitting halves the range, so parallel streams divide the graph evenly without copying anything.
+ * The graph must not change while it is being used, this is checked when a traversal ends like the Iterators of ArrayList do.
+ * @author Edoardo Sanguineti
+ */
+final class SlotSpliterator<T> implements Spliterator<T> {
+    private final Graph graph;
+    private final ArrayList<T> list;
+    private final int expectedModCount;
+    private int origin;
+    private final int fence;
+
+    SlotSpliterator(Graph graph, ArrayList<T> list) {
+        this(graph, list, graph.modCount, 0, list.size());
+    }
+
+    private SlotSpliterator(Graph graph, ArrayList<T> list, int expectedModCount, int origin, int fence) {
+        this.graph = graph;
+        this.list = list;
+        this.expectedModCount = expectedModCount;
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if(origin >= fence)
+            return false;
+        action.accept(list.get(origin++));
+        checkForComodification();
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        for(int i = origin; i < fence; i++)
+            action.accept(list.get(i));
+        origin = fence;
+        checkForComodification();
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int mid = (origin + fence) >>> 1;
+        if(mid <= origin)
+            return null;
+        SlotSpliterator<T> prefix = new SlotSpliterator<>(graph, list, expectedModCount, origin, mid);
+        origin = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | DISTINCT;
+    }
+
+    private void checkForComodification() {
+        if(graph.modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+}
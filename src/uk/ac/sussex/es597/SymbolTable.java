@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.Arrays;
+
+/**
+ * The names used by a Graph, each different name stored once. Stations and Lines inserted or renamed through the Graph
+ * all point to the same String for the same name, so a million sections of the "Jubilee Line" cost one String instead of a million.
+ * Every name has an int symbol id and counts how many Stations and Lines of the graph use it; it is dropped, and its id reused,
+ * once the last of them is removed or renamed.
+ * Linear probing over the ids, deletions shift the following entries back instead of leaving tombstones.
+ * @author Edoardo Sanguineti
+ */
+public final class SymbolTable {
+    private String[] names = new String[16]; //By id, null when the id is free
+    private int[] uses = new int[16];
+    private int[] slots = new int[32]; //Hash table of id + 1, 0 when free
+    private int[] freeIds = new int[16];
+    private int size, ids, freeCount; //Names in the table, ids handed out so far, ids waiting to be reused
+
+    SymbolTable() {
+    }
+
+    /**
+     * Returns the stored copy of the name, adding it if needed, and counts one more use of it
+     */
+    String intern(String name) {
+        return intern(name, 1);
+    }
+
+    /**
+     * Same as intern, counting that many uses at once
+     */
+    String intern(String name, int count) {
+        if(name == null)
+            return null;
+
+        int mask = slots.length - 1;
+        int i = mix(name.hashCode()) & mask;
+        for(int id; (id = slots[i]) != 0; i = (i + 1) & mask) {
+            String s = names[id - 1];
+            if(s == name || s.equals(name)) {
+                uses[id - 1] += count;
+                return s;
+            }
+        }
+
+        int id = freeCount > 0 ? freeIds[--freeCount] : ids++;
+        if(id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            uses = Arrays.copyOf(uses, id * 2);
+        }
+        names[id] = name;
+        uses[id] = count;
+        slots[i] = id + 1;
+        if(++size * 2 > slots.length)
+            rehash(slots.length * 2);
+        return name;
+    }
+
+    /**
+     * Counts one less use of the name. Strings that did not come from intern (e.g. set with Vertex.setElement) are ignored
+     */
+    void release(String name) {
+        if(name == null)
+            return;
+
+        int mask = slots.length - 1;
+        int i = mix(name.hashCode()) & mask;
+        for(int id; (id = slots[i]) != 0; i = (i + 1) & mask) {
+            if(names[id - 1] == name) {
+                if(--uses[id - 1] == 0)
+                    delete(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the symbol id of a name, or -1 if no Station or Line of the graph is called that
+     * @param name String
+     * @return int id or -1
+     */
+    public int id(String name) {
+        if(name == null)
+            return -1;
+
+        int mask = slots.length - 1;
+        for(int i = mix(name.hashCode()) & mask, id; (id = slots[i]) != 0; i = (i + 1) & mask) {
+            if(names[id - 1].equals(name))
+                return id - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the name with the given symbol id, or null if the id is not in use
+     * @param id int
+     * @return String
+     */
+    public String name(int id) {
+        return id >= 0 && id < ids ? names[id] : null;
+    }
+
+    /**
+     * Returns the number of Stations and Lines called by the name with the given id
+     * @param id int
+     * @return int uses, 0 if the id is not in use
+     */
+    public int uses(int id) {
+        return id >= 0 && id < ids ? uses[id] : 0;
+    }
+
+    /**
+     * Returns the number of different names
+     * @return int size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empties slot i, then moves back any later entry of the same run that can no longer be reached from its home slot
+     */
+    private void delete(int i) {
+        int mask = slots.length - 1;
+        int id = slots[i] - 1;
+        names[id] = null;
+        if(freeCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+        size--;
+
+        for(int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = mix(names[slots[j] - 1].hashCode()) & mask;
+            if(((j - home) & mask) >= ((j - i) & mask)) { //home is not between i (excluded) and j, so j may move to i
+                slots[i] = slots[j];
+                i = j;
+            }
+        }
+        slots[i] = 0;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for(int id = 0; id < ids; id++) {
+            if(names[id] != null) {
+                int i = mix(names[id].hashCode()) & mask;
+                while(slots[i] != 0)
+                    i = (i + 1) & mask;
+                slots[i] = id + 1;
+            }
+        }
+    }
+
+    /**
+     * String hashes of similar names differ mostly in the low bits, spread them before masking
+     */
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
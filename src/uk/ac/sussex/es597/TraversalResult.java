@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+/**
+ * What a breadth-first or depth-first traversal found, as int arrays of Station and Line ids (slots, see Graph.vertexAt).
+ * The arrays are as long as the number of Stations reached, not the size of the graph, and entry i of depths, parents
+ * and parentEdges describes the Station order[i]. The ids are only meaningful until the graph changes.
+ * @author Edoardo Sanguineti
+ */
+public final class TraversalResult {
+    private final int[] order, depths, parents, parentEdges;
+    private final int[] levelStarts; //Breadth-first only
+    private final boolean stopped;
+
+    TraversalResult(int[] order, int[] depths, int[] parents, int[] parentEdges, int[] levelStarts, boolean stopped) {
+        this.order = order;
+        this.depths = depths;
+        this.parents = parents;
+        this.parentEdges = parentEdges;
+        this.levelStarts = levelStarts;
+        this.stopped = stopped;
+    }
+
+    /**
+     * Returns the number of Stations reached, the start included
+     * @return int count
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Ids of the Stations in the order they were reached
+     * @return int[] ids
+     */
+    public int[] order() {
+        return order;
+    }
+
+    /**
+     * Number of Lines between the start and each Station of order()
+     * @return int[] depths
+     */
+    public int[] depths() {
+        return depths;
+    }
+
+    /**
+     * Id of the Station each Station of order() was reached from, -1 for the start
+     * @return int[] ids
+     */
+    public int[] parents() {
+        return parents;
+    }
+
+    /**
+     * Id of the Line each Station of order() was reached through, -1 for the start
+     * @return int[] ids
+     */
+    public int[] parentEdges() {
+        return parentEdges;
+    }
+
+    /**
+     * For a breadth-first traversal, where each level starts in order(): level d is order()[levelStarts()[d]] up to
+     * order()[levelStarts()[d + 1] - 1], and the last entry is size(). Null for a depth-first traversal
+     * @return int[] positions
+     */
+    public int[] levelStarts() {
+        return levelStarts;
+    }
+
+    /**
+     * Returns true if the visitor stopped the traversal before it was done
+     * @return boolean stopped
+     */
+    public boolean stopped() {
+        return stopped;
+    }
+}
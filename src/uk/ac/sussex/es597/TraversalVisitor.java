@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+/**
+ * Callbacks of Graph.breadthFirst and Graph.depthFirst. Every method has a default that lets the traversal carry on,
+ * so a visitor only overrides what it needs. The visitor must not change the graph.
+ * @author Edoardo Sanguineti
+ */
+public interface TraversalVisitor {
+
+    /**
+     * What the traversal should do after a callback
+     */
+    public enum Decision {
+        /** Carry on as normal */
+        CONTINUE,
+        /** From discover: keep the Station but don't look at its Lines. From edge: don't follow this Line */
+        SKIP,
+        /** End the traversal now, the result holds everything found so far */
+        STOP
+    }
+
+    /**
+     * Called once for every Station reached, the start included, in visit order
+     * @param v Vertex
+     * @param depth number of Lines from the start
+     * @return Decision
+     */
+    public default Decision discover(Vertex v, int depth) {
+        return Decision.CONTINUE;
+    }
+
+    /**
+     * Called for every Line looked at while expanding a Station, including Lines to Stations that were already reached
+     * @param e Edge
+     * @param from the Station being expanded
+     * @param to the Station on the other side
+     * @return Decision
+     */
+    public default Decision edge(Edge e, Vertex from, Vertex to) {
+        return Decision.CONTINUE;
+    }
+
+    /**
+     * Called once all the Lines of a Station have been looked at (in depth-first order, after everything below it)
+     * @param v Vertex
+     */
+    public default void finish(Vertex v) {
+    }
+}
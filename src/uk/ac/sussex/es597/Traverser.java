@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import uk.ac.sussex.es597.TraversalVisitor.Decision;
+
+/**
+ * Breadth-first and depth-first traversals with a visitor and a depth limit, behind Graph.breadthFirst and Graph.depthFirst.
+ * Visited Stations are marked in the per-thread epoch bitset of the graph's BfsEngine, so a thread keeps one set of visited flags
+ * per graph whichever kind of traversal it runs. Everything else grows with the number of Stations reached, so a two hop query
+ * on a huge graph only costs what the two hops touch.
+ * The breadth-first queue is the visit order itself, the depth-first stack holds the position of each Station in it
+ * and how far through its incidence list the traversal is.
+ * @author Edoardo Sanguineti
+ */
+final class Traverser {
+    private static final TraversalVisitor NONE = new TraversalVisitor() {};
+
+    private final Graph graph;
+    private final BfsEngine bfs;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    Traverser(Graph graph, BfsEngine bfs) {
+        this.graph = graph;
+        this.bfs = bfs;
+    }
+
+    TraversalResult breadthFirst(Vertex source, int maxDepth, TraversalVisitor visitor) {
+        if(!graph.contains(source))
+            return empty(true);
+        if(visitor == null)
+            visitor = NONE;
+
+        Scratch s = acquire();
+        BfsEngine.Scratch marks = bfs.acquire();
+        try {
+            s.begin(marks, graph.numVertices());
+            ArrayList<Vertex> vertices = graph.vertices();
+            s.mark(source.index);
+            boolean stopped = s.discover(source, 0, -1, -1, visitor);
+
+            for(int head = 0; !stopped && head < s.count; head++) {
+                Vertex w = vertices.get(s.order[head]);
+                int depth = s.depths[head];
+                if(!s.pruned[head] && depth < maxDepth)
+                    stopped = s.expandAll(graph, w, depth, visitor);
+                if(!stopped)
+                    visitor.finish(w);
+            }
+            return s.result(true, stopped);
+        } finally {
+            bfs.release(marks);
+            release(s);
+        }
+    }
+
+    TraversalResult depthFirst(Vertex source, int maxDepth, TraversalVisitor visitor) {
+        if(!graph.contains(source))
+            return empty(false);
+        if(visitor == null)
+            visitor = NONE;
+
+        Scratch s = acquire();
+        BfsEngine.Scratch marks = bfs.acquire();
+        try {
+            s.begin(marks, graph.numVertices());
+            ArrayList<Vertex> vertices = graph.vertices();
+            s.mark(source.index);
+            boolean stopped = s.discover(source, 0, -1, -1, visitor);
+            int top = stopped ? 0 : s.push(0, 0);
+
+            while(!stopped && top > 0) {
+                int pos = s.stackPos[top - 1];
+                Vertex w = vertices.get(s.order[pos]);
+                ArrayList<Edge> incidence = w.getIncidenceColl();
+                int next = s.stackNext[top - 1];
+
+                if(s.pruned[pos] || s.depths[pos] >= maxDepth || next >= incidence.size()) {
+                    top--;
+                    visitor.finish(w);
+                    continue;
+                }
+
+                s.stackNext[top - 1]++;
+                s.scanned++;
+                Edge e = incidence.get(next);
+                Vertex o = graph.across(e, w);
+                if(o == null)
+                    continue;
+
+                Decision d = visitor.edge(e, w, o);
+                if(d == Decision.STOP)
+                    stopped = true;
+                else if(d == Decision.CONTINUE && s.mark(o.index)) {
+                    stopped = s.discover(o, s.depths[pos] + 1, w.index, e.index, visitor);
+                    if(!stopped)
+                        top = s.push(s.count - 1, top);
+                }
+            }
+            return s.result(false, stopped);
+        } finally {
+            bfs.release(marks);
+            release(s);
+        }
+    }
+
+    /**
+     * Returns the number of Lines looked at by the last traversal of this thread, for GraphMetrics
+     */
+    long lastScanned() {
+        return scratch.get().scanned;
+    }
+
+    private static TraversalResult empty(boolean levels) {
+        return new TraversalResult(new int[0], new int[0], new int[0], new int[0], levels ? new int[] {0} : null, false);
+    }
+
+    /**
+     * Hands out this thread's scratch space, or a fresh one if the thread is already inside a traversal (a visitor starting another)
+     */
+    private Scratch acquire() {
+        Scratch s = scratch.get();
+        if(s.inUse)
+            return new Scratch();
+        s.inUse = true;
+        return s;
+    }
+
+    private void release(Scratch s) {
+        s.inUse = false;
+    }
+
+    private static final class Scratch {
+        private BfsEngine.Scratch marks; //Lent by the BfsEngine for the current traversal
+        private int[] order = new int[64], depths = new int[64], parents = new int[64], parentEdges = new int[64];
+        private boolean[] pruned = new boolean[64];
+        private int[] stackPos = new int[64], stackNext = new int[64];
+        private int count;
+        private long scanned;
+        private boolean inUse;
+
+        void begin(BfsEngine.Scratch marks, int n) {
+            this.marks = marks;
+            marks.begin(n);
+            count = 0;
+            scanned = 0;
+        }
+
+        /**
+         * Marks a Station as reached
+         * @return true if it was not reached yet
+         */
+        boolean mark(int id) {
+            return marks.mark(id);
+        }
+
+        /**
+         * Records a newly reached Station, already marked, and tells the visitor
+         * @return true if the visitor stopped the traversal
+         */
+        boolean discover(Vertex v, int depth, int parent, int parentEdge, TraversalVisitor visitor) {
+            if(count == order.length)
+                grow();
+            order[count] = v.index;
+            depths[count] = depth;
+            parents[count] = parent;
+            parentEdges[count] = parentEdge;
+            count++;
+
+            Decision d = visitor.discover(v, depth);
+            pruned[count - 1] = d == Decision.SKIP;
+            return d == Decision.STOP;
+        }
+
+        /**
+         * Looks at every Line of w, breadth-first
+         * @return true if the visitor stopped the traversal
+         */
+        boolean expandAll(Graph graph, Vertex w, int depth, TraversalVisitor visitor) {
+            ArrayList<Edge> incidence = w.getIncidenceColl();
+            scanned += incidence.size();
+            for(int i = 0; i < incidence.size(); i++) {
+                Edge e = incidence.get(i);
+                Vertex o = graph.across(e, w);
+                if(o == null)
+                    continue;
+
+                Decision d = visitor.edge(e, w, o);
+                if(d == Decision.STOP)
+                    return true;
+                if(d == Decision.CONTINUE && mark(o.index) && discover(o, depth + 1, w.index, e.index, visitor))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Pushes the Station at position pos of the order on the depth-first stack
+         * @return the new stack size
+         */
+        int push(int pos, int top) {
+            if(top == stackPos.length) {
+                stackPos = Arrays.copyOf(stackPos, top * 2);
+                stackNext = Arrays.copyOf(stackNext, top * 2);
+            }
+            stackPos[top] = pos;
+            stackNext[top] = 0;
+            return top + 1;
+        }
+
+        TraversalResult result(boolean levels, boolean stopped) {
+            int[] levelStarts = null;
+            if(levels) {
+                int maxDepth = count == 0 ? -1 : depths[count - 1];
+                levelStarts = new int[maxDepth + 2];
+                for(int i = 0, d = 0; i < count; i++) {
+                    while(d < depths[i])
+                        levelStarts[++d] = i;
+                }
+                levelStarts[maxDepth + 1] = count;
+            }
+            return new TraversalResult(Arrays.copyOf(order, count), Arrays.copyOf(depths, count), Arrays.copyOf(parents, count),
+                    Arrays.copyOf(parentEdges, count), levelStarts, stopped);
+        }
+
+        private void grow() {
+            int capacity = order.length * 2;
+            order = Arrays.copyOf(order, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            parentEdges = Arrays.copyOf(parentEdges, capacity);
+            pruned = Arrays.copyOf(pruned, capacity);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.sussex.es597;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Copy of the adjacency structure of a Graph kept in PersistentArrays, so that GraphSnapshot can freeze it in constant time.
+ * Stations and Lines are stored by their key, which does not change while they are in the graph, rather than by slot.
+ * Keys are reused after a removal, so they are always looked up together with the object they should hold. Each Station's Lines are a Stop,
+ * changed in place while it belongs to the current edit token and copied the first time it is changed after a snapshot.
+ * The Graph keeps it up to date once the first snapshot has been taken.
+ * @author Edoardo Sanguineti
+ */
+final class VersionedAdjacency {
+    private static final Edge[] NO_EDGES = new Edge[0];
+
+    private Object owner = new Object();
+    private final PersistentArray stops = new PersistentArray(owner);
+    private final PersistentArray lines = new PersistentArray(owner);
+    private int vertexKeys, edgeKeys; //One past the highest key stored so far
+    private int numVertices, numEdges;
+
+    /**
+     * Copies the current state of the graph, once
+     */
+    VersionedAdjacency(Graph g) {
+        for(Vertex v : g.vertices()) {
+            Stop stop = new Stop(v, owner);
+            for(Edge e : v.getIncidenceColl())
+                stop.add(e);
+            setStop(v.key, stop);
+            numVertices++;
+        }
+        for(Edge e : g.edges()) {
+            setLine(e.key, e);
+            numEdges++;
+        }
+    }
+
+    /**
+     * Freezes the current version and starts a new one
+     */
+    GraphSnapshot snapshot() {
+        GraphSnapshot s = new GraphSnapshot(stops.root(), stops.shift(), vertexKeys, lines.root(), lines.shift(), edgeKeys,
+                numVertices, numEdges);
+        owner = new Object();
+        return s;
+    }
+
+    void addVertex(Vertex v) {
+        setStop(v.key, new Stop(v, owner));
+        numVertices++;
+    }
+
+    void removeVertex(Vertex v) {
+        if(stop(v) != null) {
+            stops.set(v.key, null, owner);
+            numVertices--;
+        }
+    }
+
+    /**
+     * Mirrors Graph.attach: the Line goes at the end of both lists, once for a self-loop
+     */
+    void addEdge(Edge e) {
+        setLine(e.key, e);
+        numEdges++;
+        Stop a = stop(e.getEndPointA()), b = stop(e.getEndPointB());
+        if(a != null)
+            editable(a).add(e);
+        if(b != null && b != a)
+            editable(b).add(e);
+    }
+
+    /**
+     * Mirrors Graph.detach, the positions are where Vertex.removeIncidenceEdge found the Line in each list
+     */
+    void removeEdge(Edge e, int slotA, int slotB) {
+        if(lines.get(e.key) != e)
+            return;
+
+        lines.set(e.key, null, owner);
+        numEdges--;
+        Stop a = stop(e.getEndPointA()), b = stop(e.getEndPointB());
+        if(a != null)
+            editable(a).remove(e, slotA);
+        if(b != null && b != a)
+            editable(b).remove(e, slotB);
+    }
+
+    private Stop stop(Vertex v) {
+        if(v == null || v.key < 0)
+            return null;
+        Stop stop = (Stop) stops.get(v.key);
+        return stop != null && stop.vertex == v ? stop : null;
+    }
+
+    private Stop editable(Stop stop) {
+        if(stop.owner == owner)
+            return stop;
+
+        Stop copy = new Stop(stop.vertex, owner);
+        copy.edges = Arrays.copyOf(stop.edges, Math.max(4, stop.size));
+        copy.size = stop.size;
+        stops.set(stop.vertex.key, copy, owner);
+        return copy;
+    }
+
+    private void setStop(int key, Stop stop) {
+        stops.set(key, stop, owner);
+        vertexKeys = Math.max(vertexKeys, key + 1);
+    }
+
+    private void setLine(int key, Edge e) {
+        lines.set(key, e, owner);
+        edgeKeys = Math.max(edgeKeys, key + 1);
+    }
+
+    /**
+     * A Station and its Lines in one version of the graph
+     */
+    static final class Stop {
+        final Vertex vertex;
+        private final Object owner;
+        Edge[] edges = NO_EDGES;
+        int size;
+
+        Stop(Vertex vertex, Object owner) {
+            this.vertex = vertex;
+            this.owner = owner;
+        }
+
+        private void add(Edge e) {
+            if(size == edges.length)
+                edges = Arrays.copyOf(edges, Math.max(4, size * 2));
+            edges[size++] = e;
+        }
+
+        /**
+         * Same swap-remove as Vertex.removeIncidenceEdge, so the order stays the same as the incidence list.
+         * Falls back to a scan if the lists have drifted apart (e.g. incidence edited by hand)
+         */
+        private void remove(Edge e, int slot) {
+            if(slot < 0 || slot >= size || edges[slot] != e) {
+                slot = -1;
+                for(int i = 0; i < size && slot < 0; i++) {
+                    if(edges[i] == e)
+                        slot = i;
+                }
+                if(slot < 0)
+                    return;
+            }
+            edges[slot] = edges[--size];
+            edges[size] = null;
+        }
+
+        ArrayList<Edge> toList() {
+            ArrayList<Edge> list = new ArrayList<>(size);
+            for(int i = 0; i < size; i++)
+                list.add(edges[i]);
+            return list;
+        }
+    }
+}
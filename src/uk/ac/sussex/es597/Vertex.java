@@ -28,12 +28,29 @@ import java.util.ArrayList;
 public class Vertex {
 	private String name;
 	private ArrayList<Edge> incidenceColl; 
+	int index = -1; //Slot in the owning Graph's vertex list, -1 when the Vertex is not in a Graph
+	int key = -1; //Given by the Graph when the Vertex is added and never changed, unlike index. Reused for a new Vertex after a removal
+	ConcurrentGraph.Node node; //Set instead by the ConcurrentGraph that created the Vertex
 	
 	public Vertex(String name) {
 		this.name = name;
 		incidenceColl = new ArrayList<Edge>();
 	}
 	
+	/**
+	 * Station whose incidence list already has room for the given number of Lines
+	 */
+	Vertex(String name, int degree) {
+		this.name = name;
+		incidenceColl = new ArrayList<Edge>(degree);
+	}
+	
+	/**
+	 * Station without a name or incidence list of its own, for subclasses that keep them elsewhere (OffHeapGraph)
+	 */
+	Vertex() {
+	}
+	
 	/**
 	 * Returns the name of the Train station
 	 * @return the Name
@@ -52,13 +69,102 @@ public class Vertex {
 	}
 	
 	/**
-	 * Adds the specified Edge to the list containing the adjacent Edges of this Vortex (Train Lines)
+	 * Adds the specified Edge to the list containing the adjacent Edges of this Vortex (Train Lines).
+	 * The Graph already does this for the Lines it inserts, adding a Line that is already there does nothing
 	 * @param e The name of the Line
 	 */
 	public void addIncidenceEdge(Edge e) {
+		if(e.getEndPointA() == this) {
+			if(isAt(e, e.slotA))
+				return;
+			e.slotA = incidenceColl.size();
+		} else if(e.getEndPointB() == this) {
+			if(isAt(e, e.slotB))
+				return;
+			e.slotB = incidenceColl.size();
+		}
 		incidenceColl.add(e);
 	}
 	
+	/**
+	 * Adds a Line at the end of the incidence list without checking anything, for Graph.load which sets the positions itself
+	 */
+	void appendIncidence(Edge e) {
+		incidenceColl.add(e);
+	}
+	
+	/**
+	 * Makes room for more Lines in the incidence list, for Graph.load
+	 * @return the current number of Lines
+	 */
+	int reserveIncidence(int more) {
+		incidenceColl.ensureCapacity(incidenceColl.size() + more);
+		return incidenceColl.size();
+	}
+	
+	/**
+	 * Removes a Line from the incidence list in constant time, the last Line of the list takes its place
+	 * @param e Edge
+	 * @return the position the Line was at, or -1 if it was not in the list
+	 */
+	int removeIncidenceEdge(Edge e) {
+		int slot = slotOf(e);
+		if(!isAt(e, slot))
+			return -1;
+		
+		Edge last = incidenceColl.remove(incidenceColl.size() - 1);
+		if(last != e) {
+			incidenceColl.set(slot, last);
+			setSlot(last, slot);
+		}
+		setSlot(e, -1);
+		return slot;
+	}
+	
+	/**
+	 * Checks if the Line is in the incidence list in constant time
+	 */
+	boolean hasIncidenceEdge(Edge e) {
+		return isAt(e, slotOf(e));
+	}
+	
+	/**
+	 * Works out the position of every Line of a list that was filled in by hand, before the end points were set.
+	 * Order is kept, Lines listed twice are dropped
+	 */
+	void indexIncidence() {
+		int kept = 0;
+		for(int i = 0; i < incidenceColl.size(); i++) {
+			Edge e = incidenceColl.get(i);
+			int slot = slotOf(e);
+			if(slot >= 0 && slot < kept && incidenceColl.get(slot) == e)
+				continue;
+			
+			incidenceColl.set(kept, e);
+			setSlot(e, kept++);
+		}
+		incidenceColl.subList(kept, incidenceColl.size()).clear();
+	}
+	
+	private int slotOf(Edge e) {
+		if(e.getEndPointA() == this)
+			return e.slotA;
+		if(e.getEndPointB() == this)
+			return e.slotB;
+		return -1;
+	}
+	
+	private void setSlot(Edge e, int slot) {
+		if(e.getEndPointA() == this) //A self-loop is only listed once, under A
+			e.slotA = slot;
+		else if(e.getEndPointB() == this)
+			e.slotB = slot;
+	}
+	
+	private boolean isAt(Edge e, int slot) {
+		return slot >= 0 && slot < incidenceColl.size() && incidenceColl.get(slot) == e;
+	}
+	
 	/**
 	 * Returns the list of adjacent Edges
 	 * @return List Edges
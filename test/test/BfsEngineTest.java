@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class BfsEngineTest {
+    
+    public BfsEngineTest() {
+    }
+    
+    /**
+     * A line of n Stations, plus the same again as a second disconnected line
+     */
+    private Graph twoLines(int n) {
+        ArrayList<Vertex> a = new ArrayList<>();
+        ArrayList<Edge> b = new ArrayList<>();
+        
+        for(int line = 0; line < 2; line++) {
+            Vertex prev = null;
+            for(int i = 0; i < n; i++) {
+                Vertex v = new Vertex("Station " + line + "-" + i);
+                a.add(v);
+                if(prev != null) {
+                    Edge e = new Edge("Line " + line);
+                    e.setEndpoints(prev, v);
+                    prev.addIncidenceEdge(e);
+                    v.addIncidenceEdge(e);
+                    b.add(e);
+                }
+                prev = v;
+            }
+        }
+        return new Graph(a,b);
+    }
+    
+    @Test
+    public void testRepeatedTraversals() {
+        Graph g = twoLines(100); //More than one word of the bitset
+        BfsEngine bfs = g.bfsEngine();
+        Vertex first = g.vertices().get(0);
+        Vertex other = g.vertices().get(100);
+        
+        for(int i = 0; i < 5; i++) { //Stale epochs must not leak into the next traversal
+            assertEquals(100,bfs.traverse(first));
+            assertEquals(100,bfs.traverse(other));
+            assertEquals(2,bfs.traverseAll());
+        }
+        
+        assertEquals(99,g.allReachable(first).size());
+        assertEquals(false,g.allConnected());
+        assertEquals(0,bfs.traverse(new Vertex("Bank")));
+    }
+    
+    @Test
+    public void testGraphChanges() {
+        Graph g = twoLines(70);
+        Vertex first = g.vertices().get(0);
+        Vertex other = g.vertices().get(70);
+        
+        g.insertEdge(first, other, "Link");
+        assertEquals(true,g.allConnected());
+        assertEquals(1,g.bfsEngine().traverseAll());
+        
+        for(int i = 0; i < 10; i++)
+            g.insertVertex("New " + i);
+        assertEquals(11,g.bfsEngine().traverseAll()); //Scratch space grows with the graph
+    }
+    
+    @Test
+    public void testReachableViews() {
+        Graph g = twoLines(100);
+        Vertex first = g.vertices().get(0);
+        Vertex last = g.vertices().get(99);
+        Vertex other = g.vertices().get(100);
+        
+        Set<Vertex> reachable = g.reachableSet(first);
+        assertEquals(99,reachable.size());
+        assertEquals(true,reachable.contains(last));
+        assertEquals(false,reachable.contains(first)); //v itself is excluded like in allReachable
+        assertEquals(false,reachable.contains(other));
+        assertEquals(new HashSet<>(g.allReachable(first)),new HashSet<>(reachable));
+        
+        //Stop after 10 stations
+        ArrayList<Vertex> seen = new ArrayList<>();
+        int handed = g.forEachReachable(first, (v) -> {
+            seen.add(v);
+            return seen.size() < 10;
+        });
+        assertEquals(10,handed);
+        assertEquals(g.allReachable(first).subList(0, 10),seen);
+        
+        g.insertVertex("Bank");
+        try {
+            reachable.size();
+            fail("The view should be stale after a change");
+        } catch(ConcurrentModificationException ex) {
+        }
+    }
+    
+    @Test
+    public void testRouteMatchesOneSidedSearch() {
+        Random rnd = new Random(7);
+        ArrayList<Vertex> a = new ArrayList<>();
+        ArrayList<Edge> b = new ArrayList<>();
+        for(int i = 0; i < 300; i++)
+            a.add(new Vertex("Station " + i));
+        for(int i = 0; i < 400; i++) {
+            Edge e = new Edge("Line " + i);
+            Vertex v = a.get(rnd.nextInt(a.size())), w = a.get(rnd.nextInt(a.size()));
+            e.setEndpoints(v, w);
+            v.addIncidenceEdge(e);
+            w.addIncidenceEdge(e);
+            b.add(e);
+        }
+        Graph g = new Graph(a,b);
+        
+        for(int q = 0; q < 200; q++) {
+            Vertex u = a.get(rnd.nextInt(a.size())), v = a.get(rnd.nextInt(a.size()));
+            ArrayList<Edge> both = g.bfsEngine().route(u, v, true);
+            ArrayList<Edge> one = g.bfsEngine().route(u, v, false);
+            
+            assertEquals(one == null,both == null);
+            if(both == null)
+                continue;
+            assertEquals(one.size(),both.size());
+            
+            Vertex at = u; //The route must be a walk from u to v
+            for(Edge e : both) {
+                at = g.opposite(e, at);
+                assertNotNull(at);
+            }
+            assertEquals(v,at);
+        }
+    }
+    
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class ComponentsTest {
+    
+    public ComponentsTest() {
+    }
+    
+    @Test
+    public void testComponents() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex v = g.insertVertex("London City Airport");
+        Vertex w = g.insertVertex("Pontoon Dock");
+        Vertex z = g.insertVertex("Canary Wharf");
+        Vertex m = g.insertVertex("North Greenwich");
+        Components c = g.components();
+        
+        assertEquals(4,c.count());
+        assertEquals(false,g.allConnected());
+        
+        g.insertEdge(v, w, "DLR");
+        Edge r = g.insertEdge(z, m, "Jubilee Line");
+        assertEquals(2,c.count());
+        assertEquals(true,g.sameComponent(w, v));
+        assertEquals(false,g.sameComponent(v, z));
+        assertEquals(2,c.sizeOf(m));
+        
+        g.insertEdge(w, z, "DLR Southern");
+        assertEquals(true,g.allConnected());
+        assertEquals(c.componentOf(v),c.componentOf(m));
+        
+        g.removeEdge(r); //Splits, rebuilt on the next query
+        assertEquals(false,g.allConnected());
+        assertArrayEquals(new int[] {3, 1},c.sizes());
+        
+        g.removeVertex(m);
+        assertEquals(true,g.allConnected());
+        assertEquals(-1,c.componentOf(m));
+        assertEquals(false,g.sameComponent(m, v));
+    }
+    
+    @Test
+    public void testAgainstTraversal() {
+        //Mix of inserts (kept up to date) and removals (rebuilt), checked against a BFS every time
+        Random rnd = new Random(11);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < 300; i++)
+            g.insertVertex("Station " + i);
+        
+        for(int op = 0; op < 2000; op++) {
+            int choice = rnd.nextInt(10);
+            if(choice < 6 || g.numEdges() == 0)
+                g.insertEdge(g.vertices().get(rnd.nextInt(g.numVertices())), g.vertices().get(rnd.nextInt(g.numVertices())), "Line " + op);
+            else if(choice < 8)
+                g.removeEdge(g.edges().get(rnd.nextInt(g.numEdges())));
+            else if(choice < 9)
+                g.insertVertex("Station " + op);
+            else
+                g.removeVertex(g.vertices().get(rnd.nextInt(g.numVertices())));
+            
+            if(op % 10 == 0) {
+                Vertex u = g.vertices().get(rnd.nextInt(g.numVertices()));
+                Vertex v = g.vertices().get(rnd.nextInt(g.numVertices()));
+                assertEquals(g.bfsEngine().traverseAll(),g.components().count());
+                assertEquals(g.bfsEngine().traverse(u),g.components().sizeOf(u));
+                assertEquals(u == v || g.allReachable(u).contains(v),g.sameComponent(u, v));
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class ConcurrentGraphTest {
+    
+    public ConcurrentGraphTest() {
+    }
+    
+    @Test
+    public void testMethods() {
+        ConcurrentGraph g = new ConcurrentGraph();
+        Vertex v = g.insertVertex("London City Airport");
+        Vertex w = g.insertVertex("Pontoon Dock");
+        Vertex z = g.insertVertex("Canary Wharf");
+        Vertex m = g.insertVertex("North Greenwich");
+        
+        Edge e = g.insertEdge(v, w, "DLR");
+        Edge e2 = g.insertEdge(z, w, "DLR Southern");
+        Edge r = g.insertEdge(z, m, "Jubilee Line");
+        
+        assertEquals(w,g.opposite(e, v));
+        assertEquals(null,g.opposite(e, z));
+        assertEquals(true,g.areAdjacent(w, v));
+        assertEquals(false,g.areAdjacent(v, z));
+        assertEquals(r,g.getEdge(m, z));
+        assertEquals(2,g.incidentEdges(w).size());
+        assertEquals(true,g.allConnected());
+        assertEquals(3,g.allReachable(v).size());
+        
+        assertEquals("DLR Southern",g.rename(e2, "DLR"));
+        assertEquals("DLR",g.removeEdge(e2));
+        assertEquals(false,g.allConnected());
+        
+        assertEquals("Canary Wharf",g.removeVertex(z));
+        assertEquals(null,g.removeVertex(z));
+        assertEquals(false,g.contains(r));
+        assertEquals(0,g.incidentEdges(m).size());
+        assertEquals(1,g.numEdges());
+        assertEquals(3,g.vertices().size());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testEdgeToMissingStation() {
+        ConcurrentGraph g = new ConcurrentGraph(4);
+        Vertex v = g.insertVertex("Bank");
+        Vertex w = g.insertVertex("Monument");
+        g.removeVertex(w);
+        g.insertEdge(v, w, "Northern Line");
+    }
+    
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        ConcurrentGraph g = new ConcurrentGraph(8); //Few stripes, so threads keep meeting on the same locks
+        ArrayList<Vertex> stations = new ArrayList<>();
+        for(int i = 0; i < 200; i++)
+            stations.add(g.insertVertex("Station " + i));
+        
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[8];
+        for(int t = 0; t < threads.length; t++) {
+            Random rnd = new Random(t);
+            threads[t] = new Thread(() -> {
+                try {
+                    for(int op = 0; op < 5000; op++) {
+                        Vertex v = stations.get(rnd.nextInt(stations.size())), w = stations.get(rnd.nextInt(stations.size()));
+                        int choice = rnd.nextInt(10);
+                        if(choice < 5) {
+                            try {
+                                g.insertEdge(v, w, "Line " + op);
+                            } catch(IllegalArgumentException removed) {
+                                //One of them was removed by another thread, fine
+                            }
+                        } else if(choice < 7) {
+                            Edge e = g.getEdge(v, w);
+                            if(e != null)
+                                g.removeEdge(e);
+                        } else if(choice < 8 && v.getElement().hashCode() % 7 == 0) {
+                            g.removeVertex(v);
+                        } else {
+                            for(Edge e : g.incidentEdges(v))
+                                assertEquals(true,e.getEndPointA() == v || e.getEndPointB() == v);
+                            g.allReachable(v);
+                        }
+                    }
+                } catch(Throwable ex) {
+                    failure.set(ex);
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread t : threads)
+            t.join();
+        assertNull(failure.get());
+        
+        //Once everyone is done every Line must be listed at both of its Stations, and nowhere else
+        int listed = 0, loops = 0;
+        for(Vertex v : g.vertices()) {
+            for(Edge e : g.incidentEdges(v)) {
+                assertEquals(true,g.contains(e));
+                assertEquals(true,g.contains(g.opposite(e, v)));
+            }
+            listed += g.incidentEdges(v).size();
+        }
+        for(Edge e : g.edges()) {
+            assertEquals(true,g.contains(e.getEndPointA()));
+            assertEquals(true,g.contains(e.getEndPointB()));
+            if(e.getEndPointA() == e.getEndPointB())
+                loops++;
+        }
+        assertEquals(2 * g.numEdges() - loops,listed);
+    }
+    
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class ContractionHierarchyTest {
+    
+    public ContractionHierarchyTest() {
+    }
+    
+    private Graph randomGraph(Random rnd, int n, int m) {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < n; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < m; i++) {
+            Vertex v = g.vertices().get(rnd.nextInt(n)), w = g.vertices().get(rnd.nextInt(n));
+            g.insertEdge(v, w, "Line " + i, 1 + rnd.nextInt(10));
+        }
+        return g;
+    }
+    
+    /**
+     * The route must be a walk from u to v
+     */
+    private void assertWalk(Graph g, Vertex u, Vertex v, ArrayList<Edge> route) {
+        Vertex at = u;
+        for(Edge e : route) {
+            at = g.opposite(e, at);
+            assertNotNull(at);
+        }
+        assertEquals(v,at);
+    }
+    
+    @Test
+    public void testWeightedMatchesDijkstra() {
+        Random rnd = new Random(11);
+        Graph g = randomGraph(rnd, 400, 700);
+        ContractionHierarchy ch = g.contract(true);
+        
+        for(int q = 0; q < 300; q++) {
+            Vertex u = g.vertices().get(rnd.nextInt(400)), v = g.vertices().get(rnd.nextInt(400));
+            ArrayList<Edge> expected = g.shortestRoute(u, v);
+            ArrayList<Edge> route = ch.route(u, v);
+            
+            assertEquals(expected == null,route == null);
+            if(route == null) {
+                assertEquals(Double.POSITIVE_INFINITY,ch.distance(u, v),0);
+                continue;
+            }
+            assertWalk(g, u, v, route);
+            assertEquals(g.routeWeight(expected),g.routeWeight(route),1e-9);
+            assertEquals(g.routeWeight(expected),ch.distance(u, v),1e-9);
+        }
+    }
+    
+    @Test
+    public void testHopsMatchMostDirectRoute() {
+        Random rnd = new Random(12);
+        Graph g = randomGraph(rnd, 300, 450);
+        ContractionHierarchy ch = g.contract(false);
+        
+        for(int q = 0; q < 300; q++) {
+            Vertex u = g.vertices().get(rnd.nextInt(300)), v = g.vertices().get(rnd.nextInt(300));
+            ArrayList<Edge> expected = g.mostDirectRoute(u, v);
+            ArrayList<Edge> route = ch.route(u, v);
+            
+            assertEquals(expected == null,route == null);
+            if(route != null) {
+                assertWalk(g, u, v, route);
+                assertEquals(expected.size(),route.size());
+            }
+        }
+        
+        Vertex u = g.vertices().get(0);
+        assertEquals(0,ch.route(u, u).size());
+        assertEquals(null,ch.route(u, new Vertex("Bank")));
+    }
+    
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class CsrGraphTest {
+    
+    public CsrGraphTest() {
+    }
+    
+    @Test
+    public void testFreeze() {
+        ArrayList<Vertex> a = new ArrayList<>();
+        ArrayList<Edge> b = new ArrayList<>();
+    
+        Edge e = new Edge("DLR");
+        Edge e2 = new Edge("DLR Southern");
+        Edge r = new Edge("Jubilee Line");
+        
+        Vertex v = new Vertex("London City Airport");
+        v.addIncidenceEdge(e);
+        
+        Vertex w = new Vertex("Pontoon Dock");
+        w.addIncidenceEdge(e);
+        w.addIncidenceEdge(e2);
+        
+        Vertex z = new Vertex("Canary Wharf");
+        z.addIncidenceEdge(r);
+        z.addIncidenceEdge(e2);
+        
+        Vertex m = new Vertex("North Greenwich");
+        m.addIncidenceEdge(r);
+        
+        Vertex s = new Vertex("Stratford"); //Not connected to anything
+        
+        e.setEndpoints(v, w);
+        e2.setEndpoints(z, w);
+        r.setEndpoints(z, m);
+        
+        a.add(v);a.add(z);a.add(w);a.add(m);a.add(s);
+        b.add(e);b.add(e2);b.add(r);
+        
+        Graph g = new Graph(a,b);
+        CsrGraph csr = g.freeze();
+        
+        assertEquals(5,csr.numVertices());
+        assertEquals(3,csr.numEdges());
+        assertEquals(2,csr.degree(csr.idOf(z)));
+        assertEquals(m,csr.vertex(csr.neighbour(csr.idOf(z), 0)));
+        assertEquals(r,csr.edge(csr.neighbourEdge(csr.idOf(z), 0)));
+        
+        int[] order = csr.bfTraverse(csr.idOf(v));
+        assertEquals(4,order.length);
+        assertEquals(v,csr.vertex(order[0]));
+        assertEquals(w,csr.vertex(order[1]));
+        
+        int[] dist = csr.distances(csr.idOf(v));
+        assertEquals(3,dist[csr.idOf(m)]);
+        assertEquals(-1,dist[csr.idOf(s)]);
+        
+        assertEquals(false,csr.allConnected());
+        assertEquals(-1,csr.idOf(new Vertex("Bank")));
+        
+        //The snapshot does not follow later changes
+        g.removeEdge(r);
+        assertEquals(3,csr.numEdges());
+        assertEquals(1,g.freeze().degree(csr.idOf(z)));
+        
+        //Ids stay those of the freeze after the Graph moves Stations to other slots
+        g.removeVertex(v); //Stratford takes the slot of London City Airport
+        assertEquals(0,csr.idOf(v));
+        assertEquals(4,csr.idOf(s));
+        assertEquals(s,csr.vertex(csr.idOf(s)));
+        assertEquals(-1,csr.idOf(g.insertVertex("Bank")));
+    }
+    
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class EdgeListFileTest {
+    private Path file;
+    
+    public EdgeListFileTest() {
+    }
+    
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("edges", ".csv");
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Test
+    public void testRead() throws IOException {
+        String text = "# Docklands\r\n"
+                + "Bank,Shadwell,DLR,3\r\n"
+                + "\r\n"
+                + "Shadwell,Limehouse,,1.75\n"
+                + "Limehouse,Westferry\n"
+                + "King’s Cross St. Pancras\n"
+                + "Westferry,Bank,DLR"; //No line break at the end
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        ArrayList<Long> progress = new ArrayList<>();
+        
+        Graph g = EdgeListFile.read(file, ',', progress::add);
+        
+        assertEquals(5,g.numVertices());
+        assertEquals(4,g.numEdges());
+        assertEquals("King’s Cross St. Pancras",g.vertices().get(4).getElement());
+        Vertex bank = g.vertices().get(0), shadwell = g.vertices().get(1);
+        assertEquals("DLR",g.getEdge(bank, shadwell).getElement());
+        assertEquals(3.0,g.getWeight(g.getEdge(bank, shadwell)),0);
+        assertEquals(null,g.edges().get(1).getElement());
+        assertEquals(1.75,g.getWeight(g.edges().get(1)),0);
+        assertEquals(Graph.DEFAULT_WEIGHT,g.getWeight(g.edges().get(2)),0);
+        assertEquals(true,g.edges().get(0).getElement() == g.edges().get(3).getElement()); //Same String
+        assertEquals(Long.valueOf(7),progress.get(progress.size() - 1));
+    }
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random rnd = new Random(8);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < 2000; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < 150000; i++) //Several batches
+            g.insertEdge(g.vertices().get(rnd.nextInt(1900)), g.vertices().get(rnd.nextInt(1900)), "Line " + (i % 40), rnd.nextInt(3) == 0 ? rnd.nextDouble() * 10 : rnd.nextInt(100));
+        
+        EdgeListFile.write(g, file, '\t');
+        Graph back = EdgeListFile.read(file, '\t', null);
+        
+        assertEquals(g.numEdges(),back.numEdges());
+        assertEquals(g.numVertices(),back.numVertices());
+        HashMap<String, Vertex> byName = new HashMap<>();
+        for(Vertex v : back.vertices())
+            byName.put(v.getElement(), v);
+        for(int i = 0; i < g.numEdges(); i += 101) {
+            Edge e = g.edges().get(i), f = back.edges().get(i);
+            assertEquals(e.getElement(),f.getElement());
+            assertEquals(g.getWeight(e),back.getWeight(f),0);
+            assertEquals(true,f.getEndPointA() == byName.get(e.getEndPointA().getElement()));
+        }
+        assertEquals(0,back.incidentEdges(byName.get("Station 1999")).size());
+        for(Vertex v : g.vertices()) //Lines of every batch listed under both end points
+            assertEquals(g.incidentEdges(v).size(),back.incidentEdges(byName.get(v.getElement())).size());
+        for(Edge f : back.edges())
+            assertEquals(true,back.areAdjacent(f.getEndPointA(), f.getEndPointB()));
+        back.removeVertex(byName.get("Station 7")); //Positions in the incidence lists must be right for this to work
+        int listed = 0, loops = 0;
+        for(Vertex v : back.vertices()) {
+            for(Edge f : back.incidentEdges(v)) {
+                assertEquals(true,back.contains(f));
+                listed++;
+            }
+        }
+        for(Edge f : back.edges())
+            loops += f.getEndPointA() == f.getEndPointB() ? 1 : 0;
+        assertEquals(2 * back.numEdges() - loops,listed);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testBadWeight() throws IOException {
+        Files.write(file, "Bank,Shadwell,DLR,-2\n".getBytes(StandardCharsets.UTF_8));
+        EdgeListFile.read(file, ',', null);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testNameWithSeparator() throws IOException {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        g.insertVertex("Heathrow Terminals 1,2,3");
+        EdgeListFile.write(g, file, ',');
+    }
+    
+}
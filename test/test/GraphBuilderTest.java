@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class GraphBuilderTest {
+    
+    public GraphBuilderTest() {
+    }
+    
+    @Test
+    public void testBuild() {
+        GraphBuilder b = new GraphBuilder();
+        int bank = b.addVertex("Bank");
+        int first = b.addVertices(new String[] {"Shadwell", "Limehouse"});
+        b.addVertices(Stream.of("Westferry", "Poplar"));
+        b.addEdge(first + 1, first, "DLR", 2);
+        b.addEdge(bank, first, "DLR");
+        b.addEdges(new int[] {3, 4}, new int[] {4, 4}, null, new double[] {1.5, 0});
+        Graph g = b.build();
+        
+        assertEquals(5,g.numVertices());
+        assertEquals(4,g.numEdges());
+        Vertex v = g.vertices().get(bank), w = g.vertices().get(first);
+        assertEquals("Shadwell",w.getElement());
+        assertEquals(true,g.areAdjacent(v, w));
+        assertEquals(2,g.incidentEdges(w).size());
+        assertEquals(2.0,g.getWeight(g.getEdge(w, g.vertices().get(2))),0);
+        assertEquals(2,g.incidentEdges(g.vertices().get(4)).size()); //Self-loop listed once
+        assertEquals("Bank",g.edges().get(0).getEndPointA().getElement()); //Sorted by first Station
+        assertEquals(false,g.allConnected());
+        
+        Graph again = b.build();
+        assertEquals(false,again.vertices().get(0) == v);
+    }
+    
+    @Test
+    public void testSameAsInserts() {
+        //Same graph as the one built with insertEdge, and it still behaves after removals
+        Random rnd = new Random(6);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        GraphBuilder b = new GraphBuilder(300, 1000);
+        for(int i = 0; i < 300; i++) {
+            g.insertVertex("Station " + i);
+            b.addVertex("Station " + i);
+        }
+        for(int i = 0; i < 1000; i++) {
+            int x = rnd.nextInt(300), y = rnd.nextInt(300);
+            g.insertEdge(g.vertices().get(x), g.vertices().get(y), "Line " + i % 7, i);
+            b.addEdge(x, y, "Line " + i % 7, i);
+        }
+        Graph built = b.build();
+        
+        assertEquals(g.numEdges(),built.numEdges());
+        for(int i = 0; i < 300; i++) {
+            Vertex v = built.vertices().get(i);
+            assertEquals(g.incidentEdges(g.vertices().get(i)).size(),built.incidentEdges(v).size());
+            assertEquals(g.allReachable(g.vertices().get(i)).size(),built.allReachable(v).size());
+        }
+        assertEquals(307,built.symbols().size()); //Line names shared
+        assertEquals(g.symbols().uses(g.symbols().id("Line 3")),built.symbols().uses(built.symbols().id("Line 3")));
+        assertEquals(g.components().count(),built.components().count());
+        for(int i = 0; i < 1000; i++) {
+            int x = rnd.nextInt(300), y = rnd.nextInt(300);
+            assertEquals(g.areAdjacent(g.vertices().get(x), g.vertices().get(y)),built.areAdjacent(built.vertices().get(x), built.vertices().get(y)));
+        }
+        
+        for(int i = 0; i < 500; i++)
+            built.removeEdge(built.edges().get(rnd.nextInt(built.numEdges())));
+        built.removeVertex(built.vertices().get(0));
+        int incidences = 0, loops = 0;
+        for(Vertex v : built.vertices()) {
+            for(Edge e : built.incidentEdges(v)) {
+                assertEquals(true,built.contains(e));
+                incidences++;
+            }
+        }
+        for(Edge e : built.edges()) {
+            assertEquals(true,built.areAdjacent(e.getEndPointA(), e.getEndPointB()));
+            if(e.getEndPointA() == e.getEndPointB())
+                loops++;
+        }
+        assertEquals(2 * built.numEdges() - loops,incidences); //Nothing left behind or listed twice
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStation() {
+        GraphBuilder b = new GraphBuilder();
+        b.addVertex("Bank");
+        b.addEdge(0, 1, "DLR");
+    }
+    
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class GraphFileTest {
+    private Path file;
+    
+    public GraphFileTest() {
+    }
+    
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("graph", ".bin");
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex v = g.insertVertex("London City Airport");
+        Vertex w = g.insertVertex("Pontoon Dock");
+        Vertex z = g.insertVertex("Canary Wharf");
+        Vertex m = g.insertVertex("King’s Cross St. Pancras"); //Not plain ASCII
+        g.insertVertex("Stratford"); //Not connected
+        g.insertEdge(v, w, "DLR", 2.5);
+        g.insertEdge(w, z, "DLR Southern", 4);
+        g.insertEdge(z, m, "Jubilee Line", 12);
+        
+        GraphFile.write(g, file);
+        MappedGraph mapped = GraphFile.open(file);
+        
+        assertEquals(5,mapped.numVertices());
+        assertEquals(3,mapped.numEdges());
+        assertEquals("King’s Cross St. Pancras",mapped.vertexName(3));
+        assertEquals("DLR Southern",mapped.edgeName(1));
+        assertEquals(2.5,mapped.weight(0),0);
+        assertEquals(1,mapped.endPointB(0));
+        assertEquals(2,mapped.degree(1));
+        assertEquals(4,mapped.countReachable(0));
+        assertEquals(false,mapped.allConnected());
+        assertEquals(3,mapped.distances(0)[3]);
+        
+        Graph back = mapped.toGraph();
+        assertEquals(5,back.numVertices());
+        assertEquals(3,back.numEdges());
+        assertEquals("Canary Wharf",back.vertices().get(2).getElement());
+        assertEquals(12.0,back.getWeight(back.getEdge(back.vertices().get(2), back.vertices().get(3))),0);
+        assertEquals(3,back.allReachable(back.vertices().get(0)).size());
+    }
+    
+    @Test
+    public void testSameAsCsr() throws IOException {
+        Random rnd = new Random(4);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < 3000; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < 4000; i++)
+            g.insertEdge(g.vertices().get(rnd.nextInt(3000)), g.vertices().get(rnd.nextInt(3000)), "Line " + i);
+        for(int i = 0; i < 200; i++) //Leaves the slots shuffled
+            g.removeVertex(g.vertices().get(rnd.nextInt(g.numVertices())));
+        
+        GraphFile.write(g, file);
+        MappedGraph mapped = GraphFile.open(file);
+        CsrGraph csr = g.freeze();
+        
+        for(int v = 0; v < csr.numVertices(); v += 97) {
+            assertEquals(csr.degree(v),mapped.degree(v));
+            assertArrayEquals(csr.distances(v),mapped.distances(v));
+            assertArrayEquals(csr.bfTraverse(v),mapped.bfTraverse(v));
+            assertEquals(csr.vertex(v).getElement(),mapped.vertexName(v));
+        }
+    }
+    
+    @Test
+    public void testNullNames() throws IOException {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex v = g.insertVertex("Bank");
+        Vertex w = g.insertVertex(null);
+        Vertex z = g.insertVertex("");
+        g.insertVertex(null);
+        g.insertEdge(v, w, null);
+        g.insertEdge(w, z, "");
+        g.insertEdge(z, v, "Northern");
+        
+        GraphFile.write(g, file);
+        MappedGraph mapped = GraphFile.open(file);
+        
+        assertEquals("Bank",mapped.vertexName(0));
+        assertEquals(null,mapped.vertexName(1));
+        assertEquals("",mapped.vertexName(2)); //Empty is not null
+        assertEquals(null,mapped.vertexName(3));
+        assertEquals(null,mapped.edgeName(0));
+        assertEquals("",mapped.edgeName(1));
+        assertEquals("Northern",mapped.edgeName(2));
+        
+        Graph back = mapped.toGraph();
+        assertEquals(null,back.vertices().get(1).getElement());
+        assertEquals(null,back.edges().get(0).getElement());
+        assertEquals("",back.edges().get(1).getElement());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testNotAGraphFile() throws IOException {
+        Files.write(file, new byte[100]);
+        GraphFile.open(file);
+    }
+    
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class GraphIntApiTest {
+    
+    public GraphIntApiTest() {
+    }
+    
+    /**
+     * Checks every int answer against the Vertex and Edge objects
+     */
+    private void checkAgainstObjects(Graph g) {
+        for(int v = 0; v < g.numVertices(); v++) {
+            Vertex vx = g.vertexAt(v);
+            ArrayList<Edge> incidence = g.incidentEdges(vx);
+            assertEquals(incidence.size(),g.degree(v));
+            for(int i = 0; i < incidence.size(); i++)
+                assertEquals(g.vertexId(g.opposite(incidence.get(i), vx)),g.neighbour(v, i));
+        }
+    }
+    
+    @Test
+    public void testIds() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        int bank = g.addVertex("Bank");
+        int moorgate = g.addVertex("Moorgate");
+        int angel = g.addVertex("Angel");
+        int northern = g.addEdge(bank, moorgate, "Northern");
+        g.addEdge(moorgate, angel, "Northern");
+        g.addEdge(angel, angel, "Loop");
+        
+        assertEquals("Bank",g.vertexAt(bank).getElement());
+        assertEquals("Northern",g.edgeAt(northern).getElement());
+        assertEquals(1,g.degree(bank));
+        assertEquals(2,g.degree(moorgate));
+        assertEquals(2,g.degree(angel)); //The self-loop is listed once
+        assertEquals(moorgate,g.neighbour(bank, 0));
+        assertEquals(angel,g.neighbour(angel, 1));
+        assertEquals(true,g.adjacent(bank, moorgate));
+        assertEquals(true,g.adjacent(moorgate, bank));
+        assertEquals(false,g.adjacent(bank, angel));
+        assertEquals(true,g.adjacent(angel, angel));
+        
+        g.removeVertex(g.vertexAt(bank)); //Angel takes slot 0
+        assertEquals(0,g.vertexId(g.findVertex("Angel")));
+        assertEquals(1,g.degree(moorgate));
+        assertEquals(0,g.neighbour(moorgate, 0));
+        checkAgainstObjects(g);
+    }
+    
+    @Test
+    public void testRandomChanges() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Random rnd = new Random(11);
+        int hub = g.addVertex("Hub");
+        for(int i = 0; i < 200; i++)
+            g.addVertex("Station " + i);
+        for(int i = 0; i < 100; i++) //More Lines than adjacent scans
+            g.addEdge(hub, 1 + i, "Spoke " + i);
+        for(int i = 0; i < 300; i++)
+            g.addEdge(rnd.nextInt(201), rnd.nextInt(201), "Line " + i);
+        checkAgainstObjects(g); //Built from the objects on first use
+        
+        for(int step = 0; step < 3000; step++) {
+            int op = rnd.nextInt(6);
+            int n = g.numVertices();
+            if(op == 0 && g.numEdges() > 0)
+                g.removeEdge(g.edgeAt(rnd.nextInt(g.numEdges())));
+            else if(op == 1)
+                g.addEdge(rnd.nextInt(n), rnd.nextInt(n), "New " + step);
+            else if(op == 2)
+                g.insertEdge(g.vertexAt(rnd.nextInt(n)), g.vertexAt(rnd.nextInt(n)), "New " + step);
+            else if(op == 3 && n > 150)
+                g.removeVertex(g.vertexAt(rnd.nextInt(n)));
+            else if(op == 4)
+                g.addVertex("New " + step);
+            
+            n = g.numVertices();
+            int v = rnd.nextInt(n), w = rnd.nextInt(n);
+            assertEquals(g.areAdjacent(g.vertexAt(v), g.vertexAt(w)),g.adjacent(v, w));
+            if(step % 100 == 0)
+                checkAgainstObjects(g);
+        }
+        checkAgainstObjects(g);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+import uk.ac.sussex.es597.GraphMetrics.Operation;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class GraphMetricsTest {
+    
+    public GraphMetricsTest() {
+    }
+    
+    /**
+     * Bank in the middle, with a Line to each of n other Stations
+     */
+    private Graph star(int n) {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex bank = g.insertVertex("Bank");
+        for(int i = 0; i < n; i++)
+            g.insertEdge(bank, g.insertVertex("Station " + i), "Line " + i);
+        return g;
+    }
+    
+    @Test
+    public void testHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0,h.valueAtPercentile(99));
+        
+        ArrayList<Long> values = new ArrayList<>();
+        Random rnd = new Random(3);
+        for(int i = 0; i < 100000; i++) {
+            long v = (long) Math.exp(rnd.nextDouble() * 30); //Spread over many powers of two
+            values.add(v);
+            h.record(v);
+        }
+        values.sort(null);
+        
+        assertEquals(100000,h.count());
+        assertEquals((long) values.get(values.size() - 1),h.max());
+        for(double p : new double[] {1, 50, 90, 99, 99.9}) {
+            long exact = values.get((int) Math.ceil(p / 100 * values.size()) - 1);
+            long estimate = h.valueAtPercentile(p);
+            assertEquals(true,estimate >= exact && estimate <= exact + exact / 60 + 1);
+        }
+        
+        h.record(-5);
+        h.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE,h.valueAtPercentile(100));
+        h.reset();
+        assertEquals(0,h.count());
+        assertEquals(0,h.max());
+    }
+    
+    @Test
+    public void testInstrumentedGraph() {
+        Graph g = star(3);
+        InstrumentedGraph ig = new InstrumentedGraph(g);
+        GraphMetrics m = ig.metrics();
+        
+        Vertex a = ig.insertVertex("Aldgate");
+        Vertex bank = g.findVertex("Bank");
+        ig.insertEdge(a, bank, "Circle");
+        ig.areAdjacent(a, bank);
+        ig.areAdjacent(a, bank);
+        ig.removeVertex(a);
+        
+        assertEquals(1,m.count(Operation.INSERT_VERTEX));
+        assertEquals(2,m.count(Operation.ARE_ADJACENT));
+        assertEquals(0,m.count(Operation.OPPOSITE));
+        assertEquals("{INSERT_VERTEX=1, REMOVE_VERTEX=1, INSERT_EDGE=1, ARE_ADJACENT=2}",m.getOperationCounts().toString());
+        assertEquals(2,m.getLatencies().get("ARE_ADJACENT").getCount());
+        
+        m.setSampling(1000); //Still counted, but mostly not timed
+        for(int i = 0; i < 100; i++)
+            ig.opposite(g.edgeAt(0), bank);
+        assertEquals(100,m.count(Operation.OPPOSITE));
+        assertEquals(true,m.latency(Operation.OPPOSITE).count() < 100);
+        
+        ig.setMetrics(null); //Switched off, nothing more is recorded
+        ig.areAdjacent(a, bank);
+        assertEquals(2,m.count(Operation.ARE_ADJACENT));
+        assertEquals(g,ig.delegate());
+    }
+    
+    @Test
+    public void testTraversalHooks() {
+        Graph g = star(10);
+        GraphMetrics m = new GraphMetrics(g);
+        Vertex bank = g.findVertex("Bank");
+        
+        g.bfTraverse(bank); //Not recorded yet
+        g.setMetrics(m);
+        g.bfTraverse(bank);
+        g.allReachable(g.findVertex("Station 4"));
+        g.breadthFirst(bank, 1, null);
+        g.mostDirectRoute(g.findVertex("Station 1"), g.findVertex("Station 2"));
+        
+        assertEquals(1,m.count(Operation.BF_TRAVERSE));
+        assertEquals(1,m.count(Operation.ALL_REACHABLE));
+        assertEquals(1,m.count(Operation.BREADTH_FIRST));
+        assertEquals(1,m.count(Operation.MOST_DIRECT_ROUTE));
+        assertEquals(4,m.traversalVertices().count());
+        assertEquals(11,m.traversalVertices().max());
+        assertEquals(20,m.traversalEdges().max()); //Every Line is looked at from both ends
+        
+        g.setMetrics(null);
+        g.bfTraverse();
+        assertEquals(0,m.count(Operation.BF_TRAVERSE_ALL));
+    }
+    
+    @Test
+    public void testDegrees() {
+        Graph g = star(5);
+        g.insertVertex("Angel");
+        GraphMetrics m = new GraphMetrics(g);
+        
+        assertEquals(7,m.getVertexCount());
+        assertEquals(5,m.getEdgeCount());
+        GraphMetrics.Degrees d = m.scanDegrees();
+        assertEquals(5,d.getMaxDegree());
+        assertEquals("[1, 5, 0, 1]",Arrays.toString(d.getDistribution())); //Degree 0, 1, 2-3 and 4-7
+        
+        OffHeapGraph off = new OffHeapGraph(); //Read on ids, skipping removed ones
+        Vertex bank = off.insertVertex("Bank");
+        for(int i = 0; i < 5; i++)
+            off.insertEdge(bank, off.insertVertex("Station " + i), "Line " + i);
+        off.removeVertex(off.vertexAt(3));
+        InstrumentedGraph ig = new InstrumentedGraph(off);
+        GraphMetrics om = new GraphMetrics(ig);
+        assertEquals(5,om.getVertexCount());
+        assertEquals(4,om.getEdgeCount());
+        assertEquals("[0, 4, 0, 1]",Arrays.toString(om.scanDegrees().getDistribution()));
+        assertEquals(4,om.scanDegrees().getMaxDegree());
+        assertEquals(0,ig.metrics().count(Operation.VERTICES)); //Read behind the wrapper's back
+        
+        ConcurrentGraph cg = new ConcurrentGraph();
+        Vertex angel = cg.insertVertex("Angel");
+        cg.insertEdge(angel, cg.insertVertex("Old Street"), "Northern");
+        cg.insertEdge(angel, cg.insertVertex("King's Cross"), "Northern");
+        assertEquals(2,cg.degree(angel));
+        assertEquals(-1,cg.degree(new Vertex("Angel")));
+        assertEquals("[0, 2, 1]",Arrays.toString(new GraphMetrics(cg).scanDegrees().getDistribution()));
+    }
+    
+    @Test
+    public void testJmx() throws Exception {
+        Graph g = star(4);
+        InstrumentedGraph ig = new InstrumentedGraph(g);
+        GraphMetrics m = ig.metrics();
+        ig.vertices();
+        
+        ObjectName name = m.register("Underground");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(5,server.getAttribute(name, "VertexCount"));
+            CompositeData degrees = (CompositeData) server.invoke(name, "scanDegrees", null, null);
+            assertEquals(4,degrees.get("maxDegree"));
+            CompositeData vertices = (CompositeData) server.getAttribute(name, "TraversalVertices");
+            assertEquals(0L,vertices.get("count"));
+            assertEquals(true,server.getAttribute(name, "OperationCounts") != null);
+            server.invoke(name, "reset", null, null);
+            assertEquals(0,m.count(Operation.VERTICES));
+        } finally {
+            m.unregister();
+        }
+        assertEquals(false,ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class GraphSnapshotTest {
+    
+    public GraphSnapshotTest() {
+    }
+    
+    @Test
+    public void testPointInTime() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex v = g.insertVertex("London City Airport");
+        Vertex w = g.insertVertex("Pontoon Dock");
+        Vertex z = g.insertVertex("Canary Wharf");
+        Edge e = g.insertEdge(v, w, "DLR");
+        Edge e2 = g.insertEdge(w, z, "DLR Southern");
+        
+        GraphSnapshot before = g.snapshot();
+        g.removeEdge(e);
+        Vertex m = g.insertVertex("North Greenwich");
+        Edge r = g.insertEdge(z, m, "Jubilee Line");
+        g.removeVertex(w);
+        GraphSnapshot after = g.snapshot();
+        
+        assertEquals(3,before.numVertices());
+        assertEquals(2,before.numEdges());
+        assertEquals(true,before.areAdjacent(v, w));
+        assertEquals(e2,before.getEdge(z, w));
+        assertEquals(2,before.incidentEdges(w).size());
+        assertEquals(false,before.contains(m));
+        assertEquals(false,before.contains(r));
+        assertEquals(true,before.allConnected());
+        assertEquals(2,before.allReachable(v).size());
+        assertEquals(v,before.opposite(e, w));
+        
+        assertEquals(3,after.numVertices());
+        assertEquals(1,after.numEdges());
+        assertEquals(false,after.contains(w));
+        assertEquals(false,after.areAdjacent(v, w));
+        assertEquals(1,after.incidentEdges(z).size());
+        assertEquals(false,after.allConnected());
+        assertEquals(2,after.bfTraverse(m));
+        
+        assertEquals(3,before.vertices().size());
+        assertEquals(2,before.edges().size());
+    }
+    
+    @Test
+    public void testReusedKeys() {
+        //A Station or Line added after a removal takes the key of the removed one, older snapshots must still tell them apart
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex v = g.insertVertex("Stratford");
+        Vertex w = g.insertVertex("Pudding Mill Lane");
+        Vertex z = g.insertVertex("Bow Church");
+        Edge e = g.insertEdge(v, w, "DLR");
+        GraphSnapshot before = g.snapshot();
+        
+        g.removeVertex(w);
+        Vertex x = g.insertVertex("Hackney Wick");
+        Edge r = g.insertEdge(x, z, "Overground");
+        g.insertEdge(w, v, "Closed"); //w is not in the graph any more, its Line must not show up as one of x
+        GraphSnapshot after = g.snapshot();
+        
+        assertEquals(true,before.contains(w) && before.contains(e) && before.areAdjacent(v, w));
+        assertEquals(false,before.contains(x) || before.contains(r));
+        assertEquals(true,after.contains(x) && after.contains(r) && after.areAdjacent(x, z));
+        assertEquals(false,after.contains(w) || after.contains(e));
+        assertEquals(false,g.areAdjacent(x, v));
+        
+        for(int i = 0; i < 10000; i++) //Churn, every snapshot only holds the Stations that are there
+            g.removeVertex(g.insertVertex("Temporary " + i));
+        assertEquals(g.numVertices(),g.snapshot().vertices().size());
+        assertEquals(3,before.vertices().size());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        g.snapshot().insertVertex("Bank");
+    }
+    
+    @Test
+    public void testManySnapshots() {
+        //Every snapshot must keep showing exactly the Lines of each Station at the time it was taken
+        Random rnd = new Random(5);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < 50; i++)
+            g.insertVertex("Station " + i);
+        
+        ArrayList<GraphSnapshot> snapshots = new ArrayList<>();
+        ArrayList<ArrayList<HashSet<Edge>>> expected = new ArrayList<>();
+        ArrayList<ArrayList<Vertex>> stations = new ArrayList<>();
+        
+        for(int op = 0; op < 4000; op++) {
+            int choice = rnd.nextInt(20);
+            if(choice < 12 || g.numEdges() == 0)
+                g.insertEdge(g.vertices().get(rnd.nextInt(g.numVertices())), g.vertices().get(rnd.nextInt(g.numVertices())), "Line " + op);
+            else if(choice < 18)
+                g.removeEdge(g.edges().get(rnd.nextInt(g.numEdges())));
+            else {
+                g.removeVertex(g.vertices().get(rnd.nextInt(g.numVertices())));
+                g.insertVertex("Station " + op);
+            }
+            
+            if(op % 100 == 0) {
+                snapshots.add(g.snapshot());
+                ArrayList<HashSet<Edge>> lists = new ArrayList<>();
+                for(Vertex v : g.vertices())
+                    lists.add(new HashSet<>(g.incidentEdges(v)));
+                expected.add(lists);
+                stations.add(new ArrayList<>(g.vertices()));
+            }
+        }
+        
+        for(int s = 0; s < snapshots.size(); s++) {
+            GraphSnapshot snap = snapshots.get(s);
+            assertEquals(stations.get(s).size(),snap.numVertices());
+            for(int i = 0; i < stations.get(s).size(); i++) {
+                Vertex v = stations.get(s).get(i);
+                assertEquals(expected.get(s).get(i),new HashSet<>(snap.incidentEdges(v)));
+            }
+        }
+    }
+    
+    @Test
+    public void testTraversalWhileUpdating() throws InterruptedException {
+        Random rnd = new Random(3);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < 2000; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < 3000; i++)
+            g.insertEdge(g.vertices().get(rnd.nextInt(2000)), g.vertices().get(rnd.nextInt(2000)), "Line " + i);
+        
+        Vertex source = g.vertices().get(0);
+        int reachable = g.allReachable(source).size();
+        GraphSnapshot snap = g.snapshot();
+        
+        AtomicInteger mismatches = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            for(int round = 0; round < 200; round++) {
+                if(snap.allReachable(source).size() != reachable)
+                    mismatches.incrementAndGet();
+            }
+        });
+        reader.start();
+        
+        for(int op = 0; op < 20000; op++) { //Meanwhile the graph keeps changing
+            if(rnd.nextBoolean())
+                g.insertEdge(g.vertices().get(rnd.nextInt(g.numVertices())), g.vertices().get(rnd.nextInt(g.numVertices())), "Extra " + op);
+            else
+                g.removeEdge(g.edges().get(rnd.nextInt(g.numEdges())));
+        }
+        reader.join();
+        
+        assertEquals(0,mismatches.get());
+    }
+    
+}
@@ -17,6 +17,8 @@
 package test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import uk.ac.sussex.es597.*;
@@ -215,4 +217,298 @@ public class GraphTest {
         g.bfTraverse();
     }
     
+    @Test
+    public void testIndexedRemoval() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        
+        Vertex v = g.insertVertex("Bank");
+        Vertex w = g.insertVertex("Monument");
+        Vertex z = g.insertVertex("Liverpool Street");
+        Edge e = g.insertEdge(v, w, "Northern Line");
+        Edge r = g.insertEdge(w, z, "Central Line");
+        
+        assertEquals(true,g.contains(v));
+        assertEquals("Bank",g.removeVertex(v));
+        assertEquals(false,g.contains(v));
+        assertEquals(null,g.removeVertex(v)); //Already gone
+        
+        //The last Vertex took the free slot, the others are still found
+        assertEquals(2,g.numVertices());
+        assertEquals(true,g.contains(w));
+        assertEquals(true,g.contains(z));
+        assertEquals(z,g.vertices().get(0));
+        
+        assertEquals(null,g.removeEdge(e)); //Went with Bank
+        assertEquals(true,g.contains(r));
+        assertEquals(1,g.numEdges());
+        
+        Graph other = new Graph(new ArrayList<>(), new ArrayList<>());
+        assertEquals(false,other.contains(z)); //Same slot, different graph
+    }
+    
+    @Test
+    public void testMostDirectRoute() {
+        ArrayList<Vertex> a = new ArrayList<>();
+        ArrayList<Edge> b = new ArrayList<>();
+    
+        Edge e = new Edge("DLR");
+        Edge e2 = new Edge("DLR Southern");
+        Edge r = new Edge("Jubilee Line");
+        Edge s = new Edge("Elizabeth Line");
+        
+        Vertex v = new Vertex("London City Airport");
+        v.addIncidenceEdge(e);
+        
+        Vertex w = new Vertex("Pontoon Dock");
+        w.addIncidenceEdge(e);
+        w.addIncidenceEdge(e2);
+        
+        Vertex z = new Vertex("Canary Wharf");
+        z.addIncidenceEdge(r);
+        z.addIncidenceEdge(e2);
+        z.addIncidenceEdge(s);
+        
+        Vertex m = new Vertex("North Greenwich");
+        m.addIncidenceEdge(r);
+        m.addIncidenceEdge(s);
+        
+        Vertex x = new Vertex("Stratford"); //Not connected
+        
+        e.setEndpoints(v, w);
+        e2.setEndpoints(z, w);
+        r.setEndpoints(z, m);
+        s.setEndpoints(m, z); //Second line between the same stations
+        
+        a.add(v);a.add(z);a.add(w);a.add(m);a.add(x);
+        b.add(e);b.add(e2);b.add(r);b.add(s);
+        
+        Graph g = new Graph(a,b);
+        
+        ArrayList<Edge> route = g.mostDirectRoute(v, m);
+        assertEquals(3,route.size());
+        assertEquals(e,route.get(0));
+        assertEquals(e2,route.get(1));
+        assertEquals(true,route.get(2) == r || route.get(2) == s);
+        
+        assertEquals(3,g.mostDirectRoute(m, v).size());
+        assertEquals(0,g.mostDirectRoute(v, v).size());
+        assertEquals(null,g.mostDirectRoute(v, x));
+        assertEquals(null,g.mostDirectRoute(v, new Vertex("Bank")));
+    }
+    
+    @Test
+    public void testAdjacencyIndex() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex v = g.insertVertex("Stratford");
+        Vertex w = g.insertVertex("West Ham");
+        Vertex z = g.insertVertex("Canning Town");
+        
+        Edge jubilee = g.insertEdge(v, w, "Jubilee Line");
+        Edge dlr = g.insertEdge(w, v, "DLR"); //Same pair, other way round
+        
+        assertEquals(true,g.areAdjacent(v, w));
+        assertEquals(true,g.areAdjacent(w, v));
+        assertEquals(false,g.areAdjacent(v, z));
+        
+        g.removeEdge(dlr);
+        assertEquals(jubilee,g.getEdge(w, v));
+        g.removeEdge(jubilee);
+        assertEquals(false,g.areAdjacent(v, w));
+        assertEquals(null,g.getEdge(v, w));
+        
+        Edge e = g.insertEdge(w, z, "Jubilee Line");
+        g.removeVertex(z);
+        assertEquals(false,g.areAdjacent(w, z));
+        assertEquals(false,g.areAdjacent(w, new Vertex("Bank")));
+        g.removeEdge(e);
+    }
+    
+    @Test
+    public void testAdjacencyIndexChurn() {
+        //Lots of inserts and removals, checked against a plain scan of edges()
+        Random rnd = new Random(21);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < 60; i++)
+            g.insertVertex("Station " + i);
+        
+        for(int op = 0; op < 5000; op++) {
+            if(rnd.nextInt(3) > 0 || g.numEdges() == 0)
+                g.insertEdge(g.vertices().get(rnd.nextInt(60)), g.vertices().get(rnd.nextInt(60)), "Line " + op);
+            else
+                g.removeEdge(g.edges().get(rnd.nextInt(g.numEdges())));
+            
+            Vertex v = g.vertices().get(rnd.nextInt(60)), w = g.vertices().get(rnd.nextInt(60));
+            boolean expected = false;
+            for(Edge e : g.edges())
+                expected |= (e.getEndPointA() == v && e.getEndPointB() == w) || (e.getEndPointA() == w && e.getEndPointB() == v);
+            
+            assertEquals(expected,g.areAdjacent(v, w));
+            Edge found = g.getEdge(v, w);
+            if(found != null)
+                assertEquals(true,g.edges().contains(found));
+        }
+    }
+    
+    @Test
+    public void testIncidenceMaintenance() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex hub = g.insertVertex("Bank");
+        Vertex v = g.insertVertex("Monument");
+        Vertex w = g.insertVertex("Moorgate");
+        Vertex z = g.insertVertex("Waterloo");
+        
+        Edge a = g.insertEdge(hub, v, "Northern Line");
+        Edge b = g.insertEdge(w, hub, "Northern Line");
+        Edge c = g.insertEdge(hub, z, "Waterloo & City");
+        Edge d = g.insertEdge(v, w, "Circle Line");
+        
+        assertEquals(3,g.incidentEdges(hub).size());
+        assertEquals(2,g.incidentEdges(v).size());
+        hub.addIncidenceEdge(a); //Already there, nothing happens
+        assertEquals(3,g.incidentEdges(hub).size());
+        
+        g.removeEdge(a); //c moves into a's place
+        assertEquals(2,g.incidentEdges(hub).size());
+        assertEquals(false,g.incidentEdges(v).contains(a));
+        assertEquals(null,g.opposite(a, hub));
+        assertEquals(z,g.opposite(c, hub));
+        assertEquals(hub,g.opposite(b, w));
+        
+        assertEquals("Bank",g.removeVertex(hub));
+        assertEquals(false,g.contains(b));
+        assertEquals(false,g.contains(c));
+        assertEquals(1,g.numEdges());
+        assertEquals(0,g.incidentEdges(z).size());
+        assertEquals(1,g.incidentEdges(w).size());
+        assertEquals(d,g.incidentEdges(w).get(0));
+        assertEquals(false,g.areAdjacent(hub, w));
+    }
+    
+    @Test
+    public void testIncidenceChurn() {
+        //Incidence lists must always hold exactly the Lines of the graph, self-loops once
+        Random rnd = new Random(9);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < 40; i++)
+            g.insertVertex("Station " + i);
+        
+        for(int op = 0; op < 3000; op++) {
+            int choice = rnd.nextInt(10);
+            if(choice < 6 || g.numEdges() == 0)
+                g.insertEdge(g.vertices().get(rnd.nextInt(g.numVertices())), g.vertices().get(rnd.nextInt(g.numVertices())), "Line " + op);
+            else if(choice < 9)
+                g.removeEdge(g.edges().get(rnd.nextInt(g.numEdges())));
+            else {
+                g.removeVertex(g.vertices().get(rnd.nextInt(g.numVertices())));
+                g.insertVertex("Station " + op);
+            }
+        }
+        
+        int listed = 0, loops = 0;
+        for(Vertex v : g.vertices()) {
+            for(Edge e : g.incidentEdges(v)) {
+                assertEquals(true,g.contains(e));
+                assertEquals(true,e.getEndPointA() == v || e.getEndPointB() == v);
+                assertNotNull(g.opposite(e, v));
+            }
+            listed += g.incidentEdges(v).size();
+        }
+        for(Edge e : g.edges()) {
+            if(e.getEndPointA() == e.getEndPointB())
+                loops++;
+        }
+        assertEquals(2 * g.numEdges() - loops,listed);
+    }
+    
+    @Test
+    public void testFindByName() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex bank = g.insertVertex("Bank");
+        Vertex waterloo = g.insertVertex("Waterloo");
+        Edge e = g.insertEdge(bank, waterloo, "Waterloo & City");
+        
+        assertEquals(bank,g.findVertex("Bank"));
+        assertEquals(null,g.findVertex("Monument"));
+        
+        //Kept up to date once built
+        Vertex monument = g.insertVertex("Monument");
+        g.insertEdge(monument, waterloo, "Waterloo & City");
+        assertEquals(monument,g.findVertex("Monument"));
+        assertEquals(2,g.findEdges("Waterloo & City").size());
+        g.rename(monument, "Bank");
+        assertEquals(2,g.findVertices("Bank").size());
+        assertEquals(null,g.findVertex("Monument"));
+        g.removeVertex(bank);
+        assertEquals(monument,g.findVertex("Bank"));
+        assertEquals(1,g.findEdges("Waterloo & City").size());
+        assertEquals(false,g.findEdges("Waterloo & City").contains(e));
+        g.rename(g.edges().get(0), "Drain");
+        assertEquals(0,g.findEdges("Waterloo & City").size());
+    }
+    
+    @Test
+    public void testNamesStartingWith() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(String name : new String[] {"Kings Cross", "Kingsbury", "Kennington", "Kentish Town", "Kings Cross", "Kilburn"})
+            g.insertVertex(name);
+        
+        assertEquals(Arrays.asList("Kennington", "Kentish Town"),g.vertexNamesStartingWith("Ken", 10));
+        assertEquals(Arrays.asList("Kings Cross"),g.vertexNamesStartingWith("King", 1));
+        g.insertVertex("Kingston");
+        g.removeVertex(g.findVertex("Kingsbury"));
+        assertEquals(Arrays.asList("Kings Cross", "Kingston"),g.vertexNamesStartingWith("King", 10));
+        assertEquals(0,g.vertexNamesStartingWith("Z", 10).size());
+    }
+    
+    @Test
+    public void testIterationViews() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex v = g.insertVertex("Bank");
+        Vertex w = g.insertVertex("Shadwell");
+        Vertex z = g.insertVertex("Limehouse");
+        g.insertEdge(v, w, "DLR");
+        g.insertEdge(w, z, "DLR");
+        g.insertEdge(w, w, "Loop");
+        
+        ArrayList<String> names = new ArrayList<>();
+        g.forEachVertex(x -> names.add(x.getElement()));
+        assertEquals(Arrays.asList("Bank", "Shadwell", "Limehouse"),names);
+        int[] count = new int[1];
+        g.forEachIncidentEdge(w, e -> count[0]++);
+        assertEquals(3,count[0]);
+        g.forEachEdge(e -> count[0]++);
+        assertEquals(6,count[0]);
+        
+        assertEquals(3,g.vertexStream().filter(x -> x.getElement().length() > 3).count());
+        assertEquals(2,g.edgeStream().filter(e -> "DLR".equals(e.getElement())).count());
+        assertEquals(3,g.vertexIds().sum());
+        assertEquals(g.vertexId(v) + g.vertexId(z) + g.vertexId(w),g.neighbourIds(w).sum()); //The loop leads back to w
+        assertEquals(z,g.vertexAt(g.vertexId(z)));
+        assertEquals(-1,g.vertexId(new Vertex("Westferry")));
+    }
+    
+    @Test
+    public void testParallelStream() {
+        Random rnd = new Random(12);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < 5000; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < 20000; i++)
+            g.insertEdge(g.vertices().get(rnd.nextInt(5000)), g.vertices().get(rnd.nextInt(5000)), "Line " + i);
+        
+        long degrees = 0;
+        for(Vertex v : g.vertices())
+            degrees += g.incidentEdges(v).size();
+        assertEquals(degrees,g.vertexStream().parallel().mapToLong(v -> g.incidentEdges(v).size()).sum());
+        assertEquals(g.numEdges(),g.edgeStream().parallel().distinct().count());
+    }
+    
+    @Test(expected = java.util.ConcurrentModificationException.class)
+    public void testViewsDetectChanges() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        g.insertVertex("Bank");
+        g.insertVertex("Shadwell");
+        g.forEachVertex(x -> g.insertVertex(x.getElement() + " 2"));
+    }
+    
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class NeighbourhoodCacheTest {
+    
+    public NeighbourhoodCacheTest() {
+    }
+    
+    /**
+     * A line of n Stations
+     */
+    private Graph line(int n) {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex prev = null;
+        for(int i = 0; i < n; i++) {
+            Vertex v = g.insertVertex("Station " + i);
+            if(prev != null)
+                g.insertEdge(prev, v, "Line");
+            prev = v;
+        }
+        return g;
+    }
+    
+    @Test
+    public void testNeighbourhood() {
+        Graph g = line(10);
+        Vertex s3 = g.findVertex("Station 3");
+        
+        List<Vertex> near = g.neighbourhood(s3, 2);
+        assertEquals("[Station 2, Station 4, Station 1, Station 5]",near.toString());
+        assertEquals(true,g.neighbourhood(s3, 0).isEmpty());
+        assertEquals(9,g.neighbourhood(s3, 100).size());
+        assertEquals(true,g.neighbourhood(new Vertex("Bank"), 2).isEmpty());
+        
+        assertEquals(near,g.neighbourhood(s3, 2));
+        NeighbourhoodCache cache = g.neighbourhoodCache();
+        assertEquals(1,cache.hits());
+        assertEquals(3,cache.misses());
+        assertEquals(3,cache.size());
+    }
+    
+    @Test
+    public void testPreciseInvalidation() {
+        Graph g = line(10);
+        NeighbourhoodCache cache = g.neighbourhoodCache();
+        Vertex s1 = g.findVertex("Station 1");
+        g.neighbourhood(s1, 2); //Stations 0 to 3
+        
+        //Station 3 is on the edge of the ball, a Line from it cannot bring anything within 2 Lines of Station 1
+        g.insertEdge(g.findVertex("Station 3"), g.findVertex("Station 9"), "Loop");
+        g.removeVertex(g.findVertex("Station 7"));
+        assertEquals(0,cache.invalidations());
+        assertEquals(3,g.neighbourhood(s1, 2).size());
+        assertEquals(1,cache.hits());
+        
+        //Station 2 is inside, this one does
+        Vertex bank = g.insertVertex("Bank");
+        g.insertEdge(g.findVertex("Station 2"), bank, "Branch");
+        assertEquals(1,cache.invalidations());
+        assertEquals(true,g.neighbourhood(s1, 2).contains(bank));
+        
+        //Removing a Station on the edge drops the ball too
+        g.removeVertex(bank);
+        assertEquals(false,g.neighbourhood(s1, 2).contains(bank));
+        assertEquals(1,cache.size()); //Only the current ball is left
+    }
+    
+    @Test
+    public void testEviction() {
+        Graph g = line(100);
+        NeighbourhoodCache cache = g.neighbourhoodCache();
+        cache.setCapacity(20); //Four balls of 5 Stations
+        
+        for(int i = 10; i < 15; i++)
+            g.neighbourhood(g.findVertex("Station " + i), 2);
+        assertEquals(1,cache.evictions());
+        assertEquals(4,cache.size());
+        assertEquals(20,cache.heldStations());
+        
+        g.neighbourhood(g.findVertex("Station 11"), 2); //Now the most recently used
+        g.neighbourhood(g.findVertex("Station 50"), 2);
+        g.neighbourhood(g.findVertex("Station 11"), 2);
+        assertEquals(2,cache.hits());
+        assertEquals(2,cache.evictions());
+        
+        g.neighbourhood(g.findVertex("Station 50"), 50); //Bigger than the whole cache, not kept
+        assertEquals(4,cache.size());
+        
+        cache.setCapacity(0);
+        assertEquals(0,cache.size());
+        assertEquals(0,cache.heldStations());
+    }
+    
+    @Test
+    public void testHub() {
+        //Every ball holds the hub, entries are dropped from the middle of its list and then all at once
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex hub = g.insertVertex("Hub");
+        ArrayList<Edge> spokes = new ArrayList<>();
+        for(int i = 0; i < 3000; i++)
+            spokes.add(g.insertEdge(hub, g.insertVertex("Leaf " + i), "Spoke " + i));
+        NeighbourhoodCache cache = g.neighbourhoodCache();
+        for(Edge e : spokes)
+            assertEquals(1,g.neighbourhood(e.getEndPointB(), 1).size());
+        assertEquals(3000,cache.size());
+        
+        for(int i = 0; i < 3000; i += 2)
+            g.removeEdge(spokes.get(i));
+        assertEquals(1500,cache.invalidations());
+        assertEquals(3000,cache.heldStations());
+        for(int i = 1; i < 3000; i += 2)
+            assertEquals(hub,g.neighbourhood(spokes.get(i).getEndPointB(), 1).get(0));
+        assertEquals(1500,cache.hits());
+        
+        g.removeVertex(hub);
+        assertEquals(0,cache.size());
+        assertEquals(0,cache.heldStations());
+    }
+    
+    @Test
+    public void testRandomChanges() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Random rnd = new Random(7);
+        for(int i = 0; i < 200; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < 220; i++)
+            g.insertEdge(g.vertexAt(rnd.nextInt(200)), g.vertexAt(rnd.nextInt(200)), "Line " + i);
+        
+        for(int step = 0; step < 2000; step++) {
+            int op = rnd.nextInt(10);
+            if(op == 0 && g.numEdges() > 0)
+                g.removeEdge(g.edgeAt(rnd.nextInt(g.numEdges())));
+            else if(op == 1)
+                g.insertEdge(g.vertexAt(rnd.nextInt(g.numVertices())), g.vertexAt(rnd.nextInt(g.numVertices())), "New " + step);
+            else if(op == 2 && g.numVertices() > 150)
+                g.removeVertex(g.vertexAt(rnd.nextInt(g.numVertices())));
+            else if(op == 3)
+                g.insertVertex("New " + step);
+            
+            Vertex v = g.vertexAt(rnd.nextInt(g.numVertices()));
+            int k = 1 + rnd.nextInt(3);
+            HashSet<Vertex> expected = new HashSet<>();
+            int[] order = g.breadthFirst(v, k, null).order();
+            for(int i = 1; i < order.length; i++)
+                expected.add(g.vertexAt(order[i]));
+            assertEquals(expected,new HashSet<>(g.neighbourhood(v, k)));
+        }
+        assertEquals(true,g.neighbourhoodCache().hits() > 0);
+        assertEquals(true,g.neighbourhoodCache().invalidations() > 0);
+    }
+}
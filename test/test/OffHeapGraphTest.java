@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class OffHeapGraphTest {
+    
+    public OffHeapGraphTest() {
+    }
+    
+    private static HashSet<String> names(ArrayList<? extends Object> list) {
+        HashSet<String> set = new HashSet<>();
+        for(Object o : list)
+            set.add(o instanceof Vertex ? ((Vertex) o).getElement() : ((Edge) o).getElement());
+        return set;
+    }
+    
+    @Test
+    public void testContract() {
+        OffHeapGraph g = new OffHeapGraph();
+        Vertex bank = g.insertVertex("Bank");
+        Vertex moorgate = g.insertVertex("Moorgate");
+        Vertex angel = g.insertVertex("Angel");
+        Edge northern = g.insertEdge(bank, moorgate, "Northern");
+        Edge city = g.insertEdge(moorgate, angel, "City Branch");
+        Edge loop = g.insertEdge(angel, angel, "Loop");
+        
+        assertEquals(3,g.numVertices());
+        assertEquals(3,g.numEdges());
+        assertEquals("Bank",bank.getElement());
+        assertEquals("City Branch",city.getElement());
+        assertEquals(moorgate,g.opposite(northern, bank));
+        assertEquals(bank,g.opposite(northern, moorgate));
+        assertEquals(null,g.opposite(northern, angel));
+        assertEquals(angel,g.opposite(loop, angel));
+        assertEquals(bank,northern.getEndPointA());
+        assertEquals(true,g.areAdjacent(bank, moorgate));
+        assertEquals(true,g.areAdjacent(angel, moorgate));
+        assertEquals(false,g.areAdjacent(bank, angel));
+        assertEquals(2,g.incidentEdges(moorgate).size());
+        assertEquals(2,g.incidentEdges(angel).size()); //The self-loop is listed once, like in Graph
+        assertEquals(2,moorgate.getIncidenceColl().size());
+        
+        assertEquals("Bank",g.rename(bank, "Bank (Northern)"));
+        assertEquals("Bank (Northern)",bank.getElement());
+        assertEquals("Northern",g.rename(northern, "N"));
+        assertEquals("N",northern.getElement());
+        
+        assertEquals("Moorgate",g.removeVertex(moorgate));
+        assertEquals(2,g.numVertices());
+        assertEquals(1,g.numEdges()); //Its two Lines went with it
+        assertEquals(null,g.removeVertex(moorgate));
+        assertEquals(null,g.removeEdge(northern));
+        assertEquals(0,g.incidentEdges(bank).size());
+        assertEquals(1,g.incidentEdges(angel).size());
+        assertEquals("Loop",g.removeEdge(loop));
+        assertEquals(0,g.numEdges());
+    }
+    
+    @Test
+    public void testHandles() {
+        OffHeapGraph g = new OffHeapGraph();
+        Vertex bank = g.insertVertex("Bank");
+        Vertex moorgate = g.insertVertex("Moorgate");
+        Edge northern = g.insertEdge(bank, moorgate, "Northern");
+        
+        Vertex again = g.vertices().get(0);
+        assertEquals(true,again.equals(bank));
+        assertEquals(bank.hashCode(),again.hashCode());
+        assertEquals(true,g.edges().get(0).equals(northern));
+        assertEquals(false,bank.equals(new Vertex("Bank")));
+        
+        g.removeVertex(bank);
+        Vertex reused = g.insertVertex("Angel"); //Takes the record Bank had
+        assertEquals(0,g.vertexId(reused));
+        assertEquals(false,g.contains(bank));
+        assertEquals(false,reused.equals(bank));
+        assertEquals(null,bank.getElement());
+        assertEquals(false,g.contains(northern));
+        assertEquals(null,northern.getEndPointA());
+        
+        assertEquals(false,g.contains(new Vertex("Moorgate")));
+        assertEquals(false,new OffHeapGraph().contains(moorgate));
+        try {
+            g.insertEdge(bank, moorgate, "Northern");
+            fail("Bank is not in the graph anymore");
+        } catch(IllegalArgumentException expected) {
+        }
+    }
+    
+    @Test
+    public void testNames() {
+        OffHeapGraph g = new OffHeapGraph();
+        Vertex v = g.insertVertex("King's Cross St. Pancras");
+        g.rename(v, "Zürich HB");
+        assertEquals("Zürich HB",v.getElement());
+        g.rename(v, "Kings Cross and a much longer name than before");
+        assertEquals("Kings Cross and a much longer name than before",v.getElement());
+        assertEquals(true,g.wastedNameBytes() > 0);
+        v.setElement("");
+        assertEquals("",g.vertices().get(0).getElement());
+    }
+    
+    @Test
+    public void testNameChurn() {
+        OffHeapGraph g = new OffHeapGraph();
+        Vertex hub = g.insertVertex("Clapham Junction");
+        for(int i = 0; i < 1000; i++)
+            g.insertEdge(hub, g.insertVertex("Station " + i), "Line " + i);
+        long used = g.offHeapBytes(), wasted = g.wastedNameBytes();
+        Vertex last = null;
+        for(int round = 0; round < 50; round++) {
+            for(Vertex v : g.vertices()) {
+                if(!v.equals(hub))
+                    g.removeVertex(v);
+            }
+            for(int i = 0; i < 1000; i++) {
+                last = g.insertVertex("Station " + (round * 1000 + i));
+                g.insertEdge(hub, last, "Line " + i);
+            }
+            g.rename(hub, round % 2 == 0 ? "Clapham Junction, the busiest in Europe" : "Clapham Junction");
+        }
+        assertEquals(used,g.offHeapBytes()); //Every name went back into a slot freed before
+        assertEquals(true,g.wastedNameBytes() <= wasted + 64);
+        assertEquals("Clapham Junction",hub.getElement());
+        assertEquals("Station 49999",last.getElement());
+        assertEquals(1000,g.incidentEdges(hub).size());
+    }
+    
+    @Test
+    public void testNullNamesAndWeights() throws IOException {
+        OffHeapGraph g = new OffHeapGraph();
+        Vertex v = g.insertVertex(null);
+        Vertex w = g.insertVertex("Moorgate");
+        Edge e = g.insertEdge(v, w, null, 2.5);
+        assertEquals(null,v.getElement());
+        assertEquals(null,e.getElement());
+        assertEquals(2.5,g.getWeight(e),0);
+        assertEquals(null,g.rename(v, "Bank"));
+        assertEquals("Bank",v.getElement());
+        assertEquals("Moorgate",g.rename(w, null));
+        assertEquals(null,w.getElement());
+        assertEquals(2.5,g.setWeight(e, 4),0);
+        
+        Graph back = g.toGraph();
+        assertEquals(null,back.vertices().get(1).getElement());
+        assertEquals(null,back.edges().get(0).getElement());
+        assertEquals(4.0,back.getWeight(back.edges().get(0)),0);
+        OffHeapGraph again = OffHeapGraph.copyOf(back);
+        assertEquals(4.0,again.getWeight(again.edges().get(0)),0);
+        assertEquals(null,again.edges().get(0).getElement());
+        
+        Path file = Files.createTempFile("lines", ".csv");
+        try {
+            Files.write(file, "Bank,Moorgate,,3\nMoorgate,Angel\n".getBytes(StandardCharsets.UTF_8));
+            OffHeapGraph read = OffHeapGraph.copyOf(EdgeListFile.read(file, ',', null)); //An empty Line name is read as null
+            assertEquals(2,read.numEdges());
+            assertEquals(null,read.edges().get(0).getElement());
+            assertEquals(3.0,read.getWeight(read.edges().get(0)),0);
+            assertEquals(Graph.DEFAULT_WEIGHT,read.getWeight(read.edges().get(1)),0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test
+    public void testTraversals() {
+        OffHeapGraph g = new OffHeapGraph();
+        Vertex[] v = new Vertex[6];
+        for(int i = 0; i < v.length; i++)
+            v[i] = g.insertVertex("Station " + i);
+        g.insertEdge(v[0], v[1], "a");
+        g.insertEdge(v[1], v[2], "b");
+        g.insertEdge(v[2], v[3], "c");
+        g.insertEdge(v[0], v[3], "d");
+        g.insertEdge(v[4], v[5], "e");
+        
+        assertEquals(3,g.allReachable(v[0]).size());
+        assertEquals(false,g.allConnected());
+        assertEquals(1,g.mostDirectRoute(v[0], v[3]).size());
+        assertEquals(2,g.mostDirectRoute(v[1], v[3]).size());
+        assertEquals(0,g.mostDirectRoute(v[2], v[2]).size());
+        assertEquals(null,g.mostDirectRoute(v[0], v[5]));
+        assertEquals(4,g.bfTraverse(g.vertexId(v[3])).length);
+        g.bfTraverse(v[3]);
+        g.bfTraverse();
+        
+        g.insertEdge(v[3], v[4], "f");
+        assertEquals(true,g.allConnected());
+        ArrayList<Edge> route = g.mostDirectRoute(v[1], v[5]);
+        assertEquals(4,route.size());
+        assertEquals("e",route.get(3).getElement());
+    }
+    
+    @Test
+    public void testRandomChangesAgainstGraph() {
+        Graph heap = new Graph(new ArrayList<>(), new ArrayList<>());
+        OffHeapGraph off = new OffHeapGraph();
+        ArrayList<Vertex> heapVertices = new ArrayList<>(), offVertices = new ArrayList<>();
+        ArrayList<Edge> heapEdges = new ArrayList<>(), offEdges = new ArrayList<>();
+        Random rnd = new Random(5);
+        
+        for(int step = 0; step < 4000; step++) {
+            int op = rnd.nextInt(10);
+            if(op < 3 || heapVertices.size() < 2) {
+                String name = "S" + step;
+                heapVertices.add(heap.insertVertex(name));
+                offVertices.add(off.insertVertex(name));
+            } else if(op < 7) {
+                int a = rnd.nextInt(heapVertices.size()), b = rnd.nextInt(heapVertices.size());
+                String name = "L" + step;
+                heapEdges.add(heap.insertEdge(heapVertices.get(a), heapVertices.get(b), name));
+                offEdges.add(off.insertEdge(offVertices.get(a), offVertices.get(b), name));
+            } else if(op < 9 && !heapEdges.isEmpty()) {
+                int i = rnd.nextInt(heapEdges.size());
+                assertEquals(heap.removeEdge(heapEdges.remove(i)),off.removeEdge(offEdges.remove(i)));
+            } else {
+                int i = rnd.nextInt(heapVertices.size());
+                assertEquals(heap.removeVertex(heapVertices.remove(i)),off.removeVertex(offVertices.remove(i)));
+            }
+        }
+        
+        assertEquals(heap.vertices().size(),off.numVertices());
+        assertEquals(heap.edges().size(),off.numEdges());
+        assertEquals(names(heap.edges()),names(off.edges()));
+        for(int i = 0; i < heapVertices.size(); i++) {
+            Vertex hv = heapVertices.get(i), ov = offVertices.get(i);
+            assertEquals(names(heap.incidentEdges(hv)),names(off.incidentEdges(ov)));
+            assertEquals(names(heap.allReachable(hv)),names(off.allReachable(ov)));
+            int j = rnd.nextInt(heapVertices.size());
+            assertEquals(heap.areAdjacent(hv, heapVertices.get(j)),off.areAdjacent(ov, offVertices.get(j)));
+            ArrayList<Edge> a = heap.mostDirectRoute(hv, heapVertices.get(j)), b = off.mostDirectRoute(ov, offVertices.get(j));
+            assertEquals(a == null,b == null);
+            if(a != null) {
+                assertEquals(a.size(),b.size());
+                Vertex at = ov;
+                for(Edge e : b) //Every Line carries on from where the last one ended
+                    at = off.opposite(e, at);
+                assertEquals(offVertices.get(j),at);
+            }
+        }
+        
+        Graph back = off.toGraph();
+        assertEquals(names(heap.vertices()),names(back.vertices()));
+        assertEquals(heap.allConnected(),OffHeapGraph.copyOf(heap).allConnected());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class ParallelBfsTest {
+    
+    public ParallelBfsTest() {
+    }
+    
+    private static Graph randomGraph(int n, int m, long seed) {
+        Random rnd = new Random(seed);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int i = 0; i < n; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < m; i++)
+            g.insertEdge(g.vertices().get(rnd.nextInt(n)), g.vertices().get(rnd.nextInt(n)), "Line " + i);
+        return g;
+    }
+    
+    @Test
+    public void testSameAsSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            //Sparse (mostly top-down, several components) and dense (goes bottom-up for the middle levels)
+            for(Graph g : new Graph[] {randomGraph(60000, 50000, 1), randomGraph(60000, 400000, 2)}) {
+                CsrGraph csr = g.freeze();
+                ParallelBfs bfs = new ParallelBfs(csr, pool);
+                for(int source : new int[] {0, 17, 59999}) {
+                    assertArrayEquals(csr.distances(source),bfs.distances(source));
+                    assertEquals(csr.countReachable(source),bfs.countReachable(source));
+                }
+                assertEquals(csr.allConnected(),bfs.allConnected());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void testSmallGraphs() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        assertEquals(false,new ParallelBfs(g.freeze()).allConnected());
+        
+        Vertex v = g.insertVertex("Bank");
+        assertEquals(true,new ParallelBfs(g.freeze()).allConnected());
+        
+        Vertex w = g.insertVertex("Monument");
+        assertEquals(false,new ParallelBfs(g.freeze()).allConnected());
+        
+        g.insertEdge(v, w, "Northern Line");
+        g.insertEdge(w, w, "Loop");
+        ParallelBfs bfs = new ParallelBfs(g.freeze());
+        assertEquals(true,bfs.allConnected());
+        assertEquals(1,bfs.distances(0)[1]);
+    }
+    
+}
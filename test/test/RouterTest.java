@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class RouterTest {
+    
+    public RouterTest() {
+    }
+    
+    @Test
+    public void testShortestRoute() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex a = g.insertVertex("Stratford");
+        Vertex b = g.insertVertex("Canary Wharf");
+        Vertex c = g.insertVertex("Canning Town");
+        Vertex d = g.insertVertex("West Ham");
+        Vertex x = g.insertVertex("Bank"); //Not connected
+        
+        Edge slow = g.insertEdge(a, b, "Slow Bus", 40);
+        Edge e1 = g.insertEdge(a, d, "Jubilee Line", 2);
+        Edge e2 = g.insertEdge(d, c, "Jubilee Line", 3);
+        Edge e3 = g.insertEdge(c, b, "Jubilee Line", 4);
+        
+        assertEquals(1,g.mostDirectRoute(a, b).size());
+        
+        ArrayList<Edge> route = g.shortestRoute(a, b);
+        assertEquals(3,route.size());
+        assertEquals(e1,route.get(0));
+        assertEquals(e3,route.get(2));
+        assertEquals(9.0,g.routeWeight(route),0);
+        
+        assertEquals(0,g.shortestRoute(a, a).size());
+        assertEquals(null,g.shortestRoute(a, x));
+        
+        assertEquals(40.0,g.setWeight(slow, 5),0);
+        assertEquals(slow,g.shortestRoute(b, a).get(0));
+        
+        //Removing a Line moves the last one into its slot, its weight must follow
+        g.removeEdge(slow);
+        assertEquals(4.0,g.getWeight(e3),0);
+        assertEquals(9.0,g.routeWeight(g.shortestRoute(a, b)),0);
+        assertEquals(Double.NaN,g.getWeight(slow),0);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeight() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        g.insertEdge(g.insertVertex("Bank"), g.insertVertex("Monument"), "Walk", -1);
+    }
+    
+    @Test
+    public void testAStarMatchesDijkstra() {
+        Random rnd = new Random(3);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        HashMap<Vertex, double[]> position = new HashMap<>();
+        
+        //Random stations on a 100x100 map, each linked to a few others, weight at least the distance
+        for(int i = 0; i < 300; i++)
+            position.put(g.insertVertex("Station " + i), new double[] {rnd.nextDouble() * 100, rnd.nextDouble() * 100});
+        for(int i = 0; i < 900; i++) {
+            Vertex v = g.vertices().get(rnd.nextInt(300)), w = g.vertices().get(rnd.nextInt(300));
+            double[] p = position.get(v), q = position.get(w);
+            double distance = Math.hypot(p[0] - q[0], p[1] - q[1]);
+            g.insertEdge(v, w, "Line " + i, distance * (1 + rnd.nextDouble()));
+        }
+        
+        RouteHeuristic h = RouteHeuristic.straightLine((v) -> position.get(v)[0], (v) -> position.get(v)[1], 1);
+        for(int q = 0; q < 100; q++) {
+            Vertex u = g.vertices().get(rnd.nextInt(300)), v = g.vertices().get(rnd.nextInt(300));
+            ArrayList<Edge> dijkstra = g.shortestRoute(u, v);
+            ArrayList<Edge> aStar = g.shortestRoute(u, v, h);
+            
+            assertEquals(dijkstra == null,aStar == null);
+            if(dijkstra != null)
+                assertEquals(g.routeWeight(dijkstra),g.routeWeight(aStar),1e-9);
+        }
+    }
+    
+}
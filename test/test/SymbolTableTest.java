@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class SymbolTableTest {
+    
+    public SymbolTableTest() {
+    }
+    
+    @Test
+    public void testSharedNames() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex v = g.insertVertex("Stratford");
+        Vertex w = g.insertVertex("West Ham");
+        Vertex z = g.insertVertex("Canning Town");
+        Edge a = g.insertEdge(v, w, new String("Jubilee Line"));
+        Edge b = g.insertEdge(w, z, new String("Jubilee Line"));
+        SymbolTable symbols = g.symbols();
+        
+        assertEquals(true,a.getElement() == b.getElement());
+        assertEquals(4,symbols.size());
+        int id = symbols.id("Jubilee Line");
+        assertEquals("Jubilee Line",symbols.name(id));
+        assertEquals(2,symbols.uses(id));
+        
+        g.removeEdge(a);
+        assertEquals(1,symbols.uses(id));
+        g.rename(b, "DLR");
+        assertEquals(-1,symbols.id("Jubilee Line"));
+        assertEquals("DLR",b.getElement());
+        g.rename(v, "West Ham");
+        assertEquals(true,v.getElement() == w.getElement());
+        g.removeVertex(z); //Takes its Line with it
+        assertEquals(-1,symbols.id("DLR"));
+        assertEquals(1,symbols.size());
+    }
+    
+    @Test
+    public void testChurn() {
+        //Counts must match the Stations actually in the graph, whatever the order of the changes
+        Random rnd = new Random(3);
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        for(int op = 0; op < 20000; op++) {
+            int choice = rnd.nextInt(10);
+            if(choice < 5 || g.numVertices() == 0)
+                g.insertVertex("Station " + rnd.nextInt(300));
+            else if(choice < 8)
+                g.removeVertex(g.vertices().get(rnd.nextInt(g.numVertices())));
+            else
+                g.rename(g.vertices().get(rnd.nextInt(g.numVertices())), "Station " + rnd.nextInt(300));
+        }
+        
+        HashMap<String, Integer> expected = new HashMap<>();
+        for(Vertex v : g.vertices()) {
+            expected.merge(v.getElement(), 1, Integer::sum);
+            assertEquals(true,g.symbols().name(g.symbols().id(v.getElement())) == v.getElement());
+        }
+        assertEquals(expected.size(),g.symbols().size());
+        for(String name : expected.keySet())
+            assertEquals((int) expected.get(name),g.symbols().uses(g.symbols().id(name)));
+    }
+    
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2020 Edoardo Sanguineti
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.ac.sussex.es597.*;
+import uk.ac.sussex.es597.TraversalVisitor.Decision;
+
+/**
+ *
+ * @author Edoardo Sanguineti
+ */
+public class TraversalTest {
+    
+    public TraversalTest() {
+    }
+    
+    /**
+     * Bank - Moorgate - Old Street - Angel, with Liverpool Street and Shoreditch hanging off Moorgate and Liverpool Street
+     */
+    private Graph tree() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Vertex bank = g.insertVertex("Bank");
+        Vertex moorgate = g.insertVertex("Moorgate");
+        Vertex oldStreet = g.insertVertex("Old Street");
+        Vertex angel = g.insertVertex("Angel");
+        Vertex liverpool = g.insertVertex("Liverpool Street");
+        Vertex shoreditch = g.insertVertex("Shoreditch");
+        g.insertEdge(bank, moorgate, "Northern");
+        g.insertEdge(moorgate, oldStreet, "Northern");
+        g.insertEdge(oldStreet, angel, "Northern");
+        g.insertEdge(moorgate, liverpool, "Circle");
+        g.insertEdge(liverpool, shoreditch, "Overground");
+        return g;
+    }
+    
+    private String[] names(Graph g, int[] ids) {
+        String[] n = new String[ids.length];
+        for(int i = 0; i < ids.length; i++)
+            n[i] = g.vertexAt(ids[i]).getElement();
+        return n;
+    }
+    
+    @Test
+    public void testBreadthFirst() {
+        Graph g = tree();
+        Vertex bank = g.findVertex("Bank");
+        TraversalResult r = g.breadthFirst(bank, Integer.MAX_VALUE, null);
+        
+        assertEquals(6,r.size());
+        assertEquals("[Bank, Moorgate, Old Street, Liverpool Street, Angel, Shoreditch]",Arrays.toString(names(g, r.order())));
+        assertEquals("[0, 1, 2, 2, 3, 3]",Arrays.toString(r.depths()));
+        assertEquals("[0, 1, 2, 4, 6]",Arrays.toString(r.levelStarts()));
+        assertEquals(-1,r.parents()[0]);
+        assertEquals(-1,r.parentEdges()[0]);
+        assertEquals("Moorgate",g.vertexAt(r.parents()[3]).getElement());
+        assertEquals("Circle",g.edgeAt(r.parentEdges()[3]).getElement());
+        assertEquals(false,r.stopped());
+        
+        TraversalResult near = g.breadthFirst(bank, 2, null);
+        assertEquals(4,near.size());
+        assertEquals("[0, 1, 2, 4]",Arrays.toString(near.levelStarts()));
+    }
+    
+    @Test
+    public void testDepthFirst() {
+        Graph g = tree();
+        ArrayList<String> finished = new ArrayList<>();
+        TraversalResult r = g.depthFirst(g.findVertex("Bank"), Integer.MAX_VALUE, new TraversalVisitor() {
+            @Override
+            public void finish(Vertex v) {
+                finished.add(v.getElement());
+            }
+        });
+        
+        assertEquals("[Bank, Moorgate, Old Street, Angel, Liverpool Street, Shoreditch]",Arrays.toString(names(g, r.order())));
+        assertEquals("[0, 1, 2, 3, 2, 3]",Arrays.toString(r.depths()));
+        assertEquals("[Angel, Old Street, Shoreditch, Liverpool Street, Moorgate, Bank]",finished.toString());
+        assertEquals(null,r.levelStarts());
+        
+        assertEquals(4,g.depthFirst(g.findVertex("Bank"), 2, null).size());
+    }
+    
+    @Test
+    public void testDecisions() {
+        Graph g = tree();
+        Vertex bank = g.findVertex("Bank");
+        
+        //Skipping Old Street keeps it but not Angel
+        TraversalResult r = g.breadthFirst(bank, Integer.MAX_VALUE, new TraversalVisitor() {
+            @Override
+            public Decision discover(Vertex v, int depth) {
+                return v.getElement().equals("Old Street") ? Decision.SKIP : Decision.CONTINUE;
+            }
+        });
+        assertEquals("[Bank, Moorgate, Old Street, Liverpool Street, Shoreditch]",Arrays.toString(names(g, r.order())));
+        
+        //Not following the Circle cuts off Liverpool Street and Shoreditch
+        r = g.depthFirst(bank, Integer.MAX_VALUE, new TraversalVisitor() {
+            @Override
+            public Decision edge(Edge e, Vertex from, Vertex to) {
+                return e.getElement().equals("Circle") ? Decision.SKIP : Decision.CONTINUE;
+            }
+        });
+        assertEquals("[Bank, Moorgate, Old Street, Angel]",Arrays.toString(names(g, r.order())));
+        
+        //Stopping on the first station at depth 2
+        r = g.breadthFirst(bank, Integer.MAX_VALUE, new TraversalVisitor() {
+            @Override
+            public Decision discover(Vertex v, int depth) {
+                return depth == 2 ? Decision.STOP : Decision.CONTINUE;
+            }
+        });
+        assertEquals(true,r.stopped());
+        assertEquals(3,r.size());
+        
+        r = g.breadthFirst(new Vertex("Aldgate"), 3, null);
+        assertEquals(0,r.size());
+    }
+    
+    @Test
+    public void testMatchesAllReachable() {
+        Graph g = new Graph(new ArrayList<>(), new ArrayList<>());
+        Random rnd = new Random(42);
+        for(int i = 0; i < 300; i++)
+            g.insertVertex("Station " + i);
+        for(int i = 0; i < 350; i++)
+            g.insertEdge(g.vertexAt(rnd.nextInt(300)), g.vertexAt(rnd.nextInt(300)), "Line " + i);
+        
+        for(int i = 0; i < 300; i += 37) {
+            Vertex v = g.vertexAt(i);
+            int expected = g.allReachable(v).size() + 1;
+            assertEquals(expected,g.breadthFirst(v, Integer.MAX_VALUE, null).size());
+            assertEquals(expected,g.depthFirst(v, Integer.MAX_VALUE, null).size());
+            
+            int[] depths = g.breadthFirst(v, 3, null).depths();
+            for(int d : depths)
+                assertEquals(true,d <= 3);
+        }
+    }
+}